@@ -0,0 +1,43 @@
+package com.yby6.mcp.server.config;
+
+import lombok.Data;
+import org.noear.solon.annotation.BindProps;
+import org.noear.solon.annotation.Configuration;
+
+/**
+ * 大文件下载配置
+ * 对应 app.yml 中的 yby6.download 节点
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Data
+@Configuration
+@BindProps(prefix = "yby6.download")
+public class DownloadProperties {
+    
+    /**
+     * 读取超时（毫秒），两次收到数据之间的最长间隔
+     */
+    private long readTimeoutMillis = 60000;
+    
+    /**
+     * 文件不小于该大小（MB）且服务器支持Range时分段并行下载
+     */
+    private long parallelThresholdMegabytes = 16;
+    
+    /**
+     * 并行下载的分段数，小于等于1时不分段
+     */
+    private int parallelSegments = 4;
+    
+    /**
+     * 每个分段中途失败后的最大重试次数，服务器支持Range时从已写入的位置续传
+     */
+    private int maxRetries = 3;
+    
+    /**
+     * 首次重试前的等待时间（毫秒），之后每次翻倍
+     */
+    private long retryBackoffMillis = 500;
+}
@@ -0,0 +1,53 @@
+package com.yby6.mcp.server.config;
+
+import lombok.Data;
+import org.noear.solon.annotation.BindProps;
+import org.noear.solon.annotation.Configuration;
+
+/**
+ * 页面请求对冲配置
+ * 对应 app.yml 中的 yby6.hedge 节点
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Data
+@Configuration
+@BindProps(prefix = "yby6.hedge")
+public class HedgeProperties {
+    
+    /**
+     * 是否启用对冲请求
+     */
+    private boolean enabled = true;
+    
+    /**
+     * 请求耗时超过该百分位（按平台最近的成功耗时统计）仍未返回时发出对冲请求
+     */
+    private double percentile = 95;
+    
+    /**
+     * 参与统计的最近耗时样本数
+     */
+    private int sampleSize = 256;
+    
+    /**
+     * 样本不足时使用的对冲等待时间（毫秒）
+     */
+    private long initialDelayMillis = 2000;
+    
+    /**
+     * 对冲等待时间下限（毫秒），避免平台响应普遍很快时几乎每个请求都被对冲
+     */
+    private long minDelayMillis = 200;
+    
+    /**
+     * 每个请求为重试预算存入的额度，即对冲与重试的请求数最多约为正常请求数的该比例
+     */
+    private double budgetRatio = 0.1;
+    
+    /**
+     * 重试预算上限，限制请求稀疏时积攒的额度
+     */
+    private double budgetMax = 10;
+}
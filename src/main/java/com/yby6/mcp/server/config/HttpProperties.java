@@ -0,0 +1,88 @@
+package com.yby6.mcp.server.config;
+
+import lombok.Data;
+import org.noear.solon.annotation.BindProps;
+import org.noear.solon.annotation.Configuration;
+
+/**
+ * 共享HTTP连接配置
+ * 对应 app.yml 中的 yby6.http 节点，未配置时使用默认值
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Data
+@Configuration
+@BindProps(prefix = "yby6.http")
+public class HttpProperties {
+    
+    /**
+     * 连接超时（毫秒）
+     */
+    private long connectTimeout = 5000;
+    
+    /**
+     * 默认读取超时（毫秒）
+     */
+    private long readTimeout = 15000;
+    
+    /**
+     * 连接池最大空闲连接数
+     */
+    private int maxIdleConnections = 32;
+    
+    /**
+     * 空闲连接保活时间（秒）
+     */
+    private long keepAliveSeconds = 300;
+    
+    /**
+     * 最大并发请求数，每个进行中的请求占用一个调度线程
+     */
+    private int maxRequests = 256;
+    
+    /**
+     * 单个域名最大并发请求数
+     */
+    private int maxRequestsPerHost = 32;
+    
+    /**
+     * 虚拟线程模式下的最大并发请求数，调度线程为虚拟线程，可支撑数千个慢请求同时进行
+     */
+    private int virtualThreadMaxRequests = 4096;
+    
+    /**
+     * 虚拟线程模式下单个域名最大并发请求数，各平台的请求速率另由 yby6.upstream 限制
+     */
+    private int virtualThreadMaxRequestsPerHost = 1024;
+    
+    /**
+     * 是否启用HTTP/2（由服务端通过ALPN协商），虚拟线程模式下始终使用HTTP/1.1
+     */
+    private boolean http2Enabled = true;
+    
+    /**
+     * DNS缓存时间（秒），小于等于0时不缓存
+     */
+    private long dnsCacheSeconds = 300;
+    
+    /**
+     * DNS缓存的最大条目数，下载与CDN链接来自第三方页面，主机名不可控，需要限制容量
+     */
+    private int dnsCacheMaxSize = 1024;
+    
+    /**
+     * 解析短链接时最多跟随的跳转次数
+     */
+    private int maxRedirects = 5;
+    
+    /**
+     * 短链接跳转结果缓存的最大条目数
+     */
+    private int redirectCacheMaxSize = 4096;
+    
+    /**
+     * 短链接跳转结果缓存时间（秒），跳转目标中的签名参数（如小红书的 xsec_token）会过期，不宜长期缓存
+     */
+    private long redirectCacheTtlSeconds = 600;
+}
@@ -0,0 +1,48 @@
+package com.yby6.mcp.server.config;
+
+import lombok.Data;
+import org.noear.solon.annotation.BindProps;
+import org.noear.solon.annotation.Configuration;
+
+/**
+ * 解析结果缓存配置
+ * 对应 app.yml 中的 yby6.parseCache 节点
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Data
+@Configuration
+@BindProps(prefix = "yby6.parseCache")
+public class ParseCacheProperties {
+    
+    /**
+     * 是否启用缓存
+     */
+    private boolean enabled = true;
+    
+    /**
+     * 最大缓存条目数
+     */
+    private int maxSize = 2048;
+    
+    /**
+     * 缓存时间（秒），需小于平台CDN链接的失效时间
+     */
+    private long ttlSeconds = 600;
+    
+    /**
+     * 过期结果的保留时间（秒），上游平台熔断时仍可返回，小于等于0时不保留
+     */
+    private long staleTtlSeconds = 3600;
+    
+    /**
+     * 短链接别名最大条目数
+     */
+    private int aliasMaxSize = 8192;
+    
+    /**
+     * 短链接别名缓存时间（秒），短链接指向的视频不会变化
+     */
+    private long aliasTtlSeconds = 86400;
+}
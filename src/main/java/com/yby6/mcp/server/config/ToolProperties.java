@@ -0,0 +1,56 @@
+package com.yby6.mcp.server.config;
+
+import lombok.Data;
+import org.noear.solon.annotation.BindProps;
+import org.noear.solon.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * MCP工具调用配置
+ * 对应 app.yml 中的 yby6.tools 节点
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Data
+@Configuration
+@BindProps(prefix = "yby6.tools")
+public class ToolProperties {
+    
+    /**
+     * 每个工具的默认并发上限，超过时排队等待
+     */
+    private int defaultConcurrency = 256;
+    
+    /**
+     * 按工具名单独设置的并发上限（语音识别由 yby6.transcribe 的任务队列限制）
+     */
+    private Map<String, Integer> concurrency = new HashMap<>();
+    
+    /**
+     * 排队等待超时（毫秒），超时后直接返回繁忙提示
+     */
+    private long acquireTimeoutMillis = 30000;
+    
+    /**
+     * 批量解析单次最多链接数
+     */
+    private int batchMaxItems = 200;
+    
+    /**
+     * 批量解析时每个平台同时进行的解析数（所有批量请求共享）
+     */
+    private int batchPlatformConcurrency = 16;
+    
+    /**
+     * 批量解析整体超时（毫秒），超时未完成的条目单独返回超时错误
+     */
+    private long batchTimeoutMillis = 120000;
+    
+    /**
+     * 流式接口SSE连接超时（毫秒），需覆盖下载、音频提取与语音识别的总耗时
+     */
+    private long streamTimeoutMillis = 600000;
+}
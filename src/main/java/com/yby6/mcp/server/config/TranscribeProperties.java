@@ -0,0 +1,63 @@
+package com.yby6.mcp.server.config;
+
+import lombok.Data;
+import org.noear.solon.annotation.BindProps;
+import org.noear.solon.annotation.Configuration;
+
+/**
+ * 语音识别配置
+ * 对应 app.yml 中的 yby6.transcribe 节点
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Data
+@Configuration
+@BindProps(prefix = "yby6.transcribe")
+public class TranscribeProperties {
+    
+    /**
+     * 分段识别的目标段长（秒），到达后在下一个静音处切分；小于等于0时整段上传识别（默认），长音频可设为60左右开启分段
+     */
+    private int segmentSeconds = 0;
+    
+    /**
+     * 到达目标段长后最多再等待多久寻找静音（秒），超过时在其间最安静处切分
+     */
+    private int maxExtensionSeconds = 15;
+    
+    /**
+     * 静音判定阈值（dBFS），20毫秒帧的均方根音量低于该值视为静音
+     */
+    private double silenceThresholdDb = -40;
+    
+    /**
+     * 单个视频同时识别的分段数，也限制了内存中待识别分段的数量
+     */
+    private int concurrency = 4;
+    
+    /**
+     * 整段上传识别（segmentSeconds小于等于0）时的音频格式：mp3 / opus / wav，分段识别固定上传WAV
+     */
+    private String uploadFormat = "mp3";
+    
+    /**
+     * 同时执行的识别任务数（每个任务一个ffmpeg进程），小于等于0时使用CPU核数
+     */
+    private int workers = 0;
+    
+    /**
+     * 等待执行的任务队列容量，队列已满时直接拒绝并返回建议的重试等待时间
+     */
+    private int queueCapacity = 32;
+    
+    /**
+     * 任务完成后结果的保留时间（秒），供异步提交的调用方查询
+     */
+    private long jobRetentionSeconds = 3600;
+    
+    /**
+     * 最多保留的已完成任务数
+     */
+    private int maxRetainedJobs = 1024;
+}
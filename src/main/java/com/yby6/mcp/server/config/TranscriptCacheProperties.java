@@ -0,0 +1,38 @@
+package com.yby6.mcp.server.config;
+
+import lombok.Data;
+import org.noear.solon.annotation.BindProps;
+import org.noear.solon.annotation.Configuration;
+
+/**
+ * 识别结果缓存配置
+ * 对应 app.yml 中的 yby6.transcriptCache 节点
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Data
+@Configuration
+@BindProps(prefix = "yby6.transcriptCache")
+public class TranscriptCacheProperties {
+    
+    /**
+     * 是否启用缓存
+     */
+    private boolean enabled = true;
+    
+    /**
+     * 本地存储文件路径，重启后仍然有效
+     */
+    private String file = "data/transcripts.log";
+    
+    /**
+     * 本地存储文件大小上限（MB），超过时淘汰最久未访问的结果
+     */
+    private long maxMegabytes = 64;
+    
+    /**
+     * 内存热数据最大条目数
+     */
+    private int hotMaxSize = 1024;
+}
@@ -0,0 +1,87 @@
+package com.yby6.mcp.server.config;
+
+import lombok.Data;
+import org.noear.solon.annotation.BindProps;
+import org.noear.solon.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 上游平台请求保护配置
+ * 对应 app.yml 中的 yby6.upstream 节点，按平台限速并在平台持续失败时熔断
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Data
+@Configuration
+@BindProps(prefix = "yby6.upstream")
+public class UpstreamProperties {
+    
+    /**
+     * 是否启用限速与熔断
+     */
+    private boolean enabled = true;
+    
+    /**
+     * 每个平台每秒最多发起的解析数，成功时速率逐步恢复到该值
+     * 按解析计而非按HTTP请求计：一次解析可能包含跳转、页面与接口等多个请求，对冲与重试请求由 yby6.hedge 的重试预算另行限制
+     */
+    private double ratePerSecond = 5;
+    
+    /**
+     * 按平台代码单独设置的每秒解析数（如 douyin、redbook）
+     */
+    private Map<String, Double> rates = new HashMap<>();
+    
+    /**
+     * 允许的突发解析数（令牌桶容量）
+     */
+    private int burst = 10;
+    
+    /**
+     * 按平台代码单独设置的突发解析数
+     */
+    private Map<String, Integer> bursts = new HashMap<>();
+    
+    /**
+     * 失败后降速的下限（每秒解析数）
+     */
+    private double minRatePerSecond = 0.2;
+    
+    /**
+     * 每次解析成功后速率增加的值（加性增）
+     */
+    private double increaseStep = 0.1;
+    
+    /**
+     * 请求失败或触发验证码时速率乘以的系数（乘性减）
+     */
+    private double decreaseFactor = 0.5;
+    
+    /**
+     * 两次降速的最小间隔（毫秒），同一时刻并发失败的请求只降速一次
+     */
+    private long decreaseIntervalMillis = 1000;
+    
+    /**
+     * 等待令牌的最长时间（毫秒），超过时直接拒绝
+     */
+    private long maxWaitMillis = 5000;
+    
+    /**
+     * 连续失败多少次后熔断，只统计限流、验证码、网络错误与超时、5xx等平台健康问题
+     */
+    private int failureThreshold = 5;
+    
+    /**
+     * 熔断持续时间（毫秒），到期后放行一个探测请求，成功则恢复
+     */
+    private long openMillis = 30000;
+    
+    /**
+     * 熔断或限速拒绝时，是否返回已过期但仍保留的解析结果（见 yby6.parseCache.staleTtlSeconds）
+     */
+    private boolean serveStale = true;
+}
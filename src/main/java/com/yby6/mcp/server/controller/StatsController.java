@@ -0,0 +1,72 @@
+package com.yby6.mcp.server.controller;
+
+import com.yby6.mcp.server.http.HedgedFetcher;
+import com.yby6.mcp.server.http.RedirectResolver;
+import com.yby6.mcp.server.parser.ParserFactory;
+import com.yby6.mcp.server.service.ToolLimiter;
+import com.yby6.mcp.server.service.TranscriptionScheduler;
+import com.yby6.mcp.server.service.UpstreamGuard;
+import com.yby6.mcp.server.service.VideoParseCache;
+import com.yby6.mcp.server.service.VideoParseService;
+import com.yby6.mcp.server.service.VideoTextExtractor;
+import org.noear.solon.annotation.Controller;
+import org.noear.solon.annotation.Get;
+import org.noear.solon.annotation.Inject;
+import org.noear.solon.annotation.Mapping;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 运行统计接口
+ * 汇总各组件的命中率、队列深度等指标，便于容量评估
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Controller
+public class StatsController {
+    
+    @Inject
+    private VideoParseCache parseCache;
+    
+    @Inject
+    private VideoParseService videoParseService;
+    
+    @Inject
+    private ParserFactory parserFactory;
+    
+    @Inject
+    private RedirectResolver redirectResolver;
+    
+    @Inject
+    private UpstreamGuard upstreamGuard;
+    
+    @Inject
+    private HedgedFetcher hedgedFetcher;
+    
+    @Inject
+    private ToolLimiter toolLimiter;
+    
+    @Inject
+    private VideoTextExtractor videoTextExtractor;
+    
+    @Inject
+    private TranscriptionScheduler transcriptionScheduler;
+    
+    @Get
+    @Mapping("/stats")
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("parseCache", parseCache.stats());
+        stats.put("parse", videoParseService.stats());
+        stats.put("parsers", parserFactory.stats());
+        stats.put("redirects", redirectResolver.stats());
+        stats.put("upstream", upstreamGuard.stats());
+        stats.put("hedge", hedgedFetcher.stats());
+        stats.put("tools", toolLimiter.stats());
+        stats.put("transcribe", videoTextExtractor.stats());
+        stats.put("transcribeJobs", transcriptionScheduler.stats());
+        return stats;
+    }
+}
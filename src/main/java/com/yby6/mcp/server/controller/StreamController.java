@@ -0,0 +1,161 @@
+package com.yby6.mcp.server.controller;
+
+import com.yby6.mcp.server.config.ToolProperties;
+import com.yby6.mcp.server.model.Transcript;
+import com.yby6.mcp.server.model.VideoInfo;
+import com.yby6.mcp.server.service.ProgressListener;
+import com.yby6.mcp.server.service.TranscriptionScheduler;
+import com.yby6.mcp.server.service.VideoParseService;
+import com.yby6.mcp.server.service.VideoTextExtractor;
+import com.yby6.mcp.server.tools.VideoServer;
+import com.yby6.mcp.server.utils.JsonUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.noear.solon.annotation.Controller;
+import org.noear.solon.annotation.Header;
+import org.noear.solon.annotation.Inject;
+import org.noear.solon.annotation.Mapping;
+import org.noear.solon.annotation.Param;
+import org.noear.solon.annotation.Post;
+import org.noear.solon.web.sse.SseEmitter;
+import org.noear.solon.web.sse.SseEvent;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 流式工具接口
+ * 多阶段工具每完成一个阶段就以SSE事件推送部分结果（事件名为阶段名），最后推送 result 或 error 事件
+ * 与 MCP 工具共享语音识别任务队列，适合更关注首个结果到达时间的调用方。
+ * 使用POST请求，API密钥通过 Authorization 请求头传递，不出现在URL与访问日志中；客户端断开或超时后取消识别任务
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Slf4j
+@Controller
+public class StreamController {
+    
+    private static final String RESULT_EVENT = "result";
+    private static final String ERROR_EVENT = "error";
+    private static final String BEARER_PREFIX = "Bearer ";
+    
+    @Inject
+    private VideoParseService videoParseService;
+    
+    @Inject
+    private VideoTextExtractor videoTextExtractor;
+    
+    @Inject
+    private TranscriptionScheduler transcriptionScheduler;
+    
+    @Inject
+    private ToolProperties toolProperties;
+    
+    /**
+     * 流式提取视频文本：解析完成推送 video_info，下载、音频提取完成推送对应阶段，识别出文本推送 transcript
+     *
+     * @param authorization 语音识别API密钥，格式为 Bearer 密钥（可选，默认从环境变量YBY6_API_KEY获取，指定apiBaseUrl时必填）
+     * @param shareText     分享链接或包含链接的文本
+     * @param apiBaseUrl    API基础URL（可选）
+     * @param model         语音识别模型（可选）
+     * @return SSE事件流
+     */
+    @Post
+    @Mapping("/mcp/stream/share_text")
+    public SseEmitter extractTextFromShareUrl(@Header(name = "Authorization", required = false) String authorization,
+                                              @Param(name = "shareText") String shareText,
+                                              @Param(name = "apiBaseUrl", required = false) String apiBaseUrl,
+                                              @Param(name = "model", required = false) String model) {
+        SseEmitter emitter = new SseEmitter(toolProperties.getStreamTimeoutMillis());
+        // 连接因客户端断开（推送失败）、超时或处理完成而结束时取消仍未完成的任务，不再占用识别队列
+        AtomicReference<TranscriptionScheduler.Job<Void>> job = new AtomicReference<>();
+        emitter.onCompletion(() -> cancel(job.get()));
+        emitter.onInited(e -> job.set(submitExtractText(e, shareText, bearerToken(authorization), apiBaseUrl, model)));
+        return emitter;
+    }
+    
+    /**
+     * 校验参数后提交到识别任务队列，队列已满时推送带重试等待时间的 error 事件
+     *
+     * @return 识别任务，未提交时返回null
+     */
+    private TranscriptionScheduler.Job<Void> submitExtractText(SseEmitter emitter, String shareText, String apiKey,
+                                                              String apiBaseUrl, String model) {
+        String finalApiKey = videoTextExtractor.resolveApiKey(apiKey, apiBaseUrl);
+        if (finalApiKey == null) {
+            finish(emitter, ERROR_EVENT, new VideoServer.Response(VideoServer.missingApiKeyMsg(apiBaseUrl)));
+            return null;
+        }
+        if (!VideoServer.isValidApiBaseUrl(apiBaseUrl)) {
+            finish(emitter, ERROR_EVENT, new VideoServer.Response(VideoServer.invalidApiBaseUrlMsg(apiBaseUrl)));
+            return null;
+        }
+        
+        try {
+            return transcriptionScheduler.submit(() -> {
+                runExtractText(emitter, shareText, finalApiKey, apiBaseUrl, model);
+                return null;
+            });
+        } catch (TranscriptionScheduler.QueueFullException e) {
+            finish(emitter, ERROR_EVENT, new VideoServer.Response(429, e.getMessage(),
+                    Map.of("retryAfterSeconds", e.getRetryAfterSeconds())));
+            return null;
+        }
+    }
+    
+    private void cancel(TranscriptionScheduler.Job<Void> job) {
+        if (job != null && job.cancel()) {
+            log.info("流式连接已结束，取消文本提取任务: jobId={}", job.getId());
+        }
+    }
+    
+    private static String bearerToken(String authorization) {
+        if (StringUtils.isBlank(authorization)) {
+            return null;
+        }
+        return authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())
+                ? authorization.substring(BEARER_PREFIX.length()).trim() : authorization.trim();
+    }
+    
+    private void runExtractText(SseEmitter emitter, String shareText, String apiKey, String apiBaseUrl, String model) {
+        try {
+            log.info("开始流式提取视频文本内容: {}", shareText);
+            ProgressListener listener = (stage, data) -> send(emitter, stage, new VideoServer.Response(200, stage, data));
+            
+            VideoInfo videoInfo = videoParseService.parseShareUrl(shareText);
+            listener.onProgress(ProgressListener.VIDEO_INFO, videoInfo);
+            
+            String videoKey = videoParseService.canonicalKey(shareText, videoInfo);
+            Transcript transcript = videoTextExtractor.transcribeVideo(videoInfo, videoKey, apiKey, apiBaseUrl, model, listener);
+            finish(emitter, RESULT_EVENT, new VideoServer.Response(200, "文本提取完成",
+                    new VideoServer.TextExtractionResult(transcript, videoInfo.getTitle(), "已成功提取视频中的文本内容")));
+        } catch (Exception e) {
+            if (emitter.isCompleted()) {
+                log.info("流式连接已结束，停止提取视频文本: {}", e.getMessage());
+                return;
+            }
+            log.error("流式提取视频文本失败", e);
+            finish(emitter, ERROR_EVENT, new VideoServer.Response("提取视频文本失败: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * 推送事件，客户端已断开时推送失败，连接随之结束并取消任务
+     */
+    private void send(SseEmitter emitter, String event, Object data) {
+        if (emitter.isCompleted()) {
+            return;
+        }
+        try {
+            emitter.send(new SseEvent().name(event).data(JsonUtil.toJsonString(data)));
+        } catch (Exception e) {
+            log.debug("推送SSE事件失败: event={}, error={}", event, e.getMessage());
+        }
+    }
+    
+    private void finish(SseEmitter emitter, String event, Object data) {
+        send(emitter, event, data);
+        emitter.complete();
+    }
+}
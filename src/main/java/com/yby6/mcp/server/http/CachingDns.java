@@ -0,0 +1,58 @@
+package com.yby6.mcp.server.http;
+
+import com.yby6.mcp.server.utils.LruCache;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Dns;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带缓存的DNS解析
+ * 解析失败时优先返回已过期的旧记录，避免DNS抖动导致请求失败；
+ * 过期记录最多再保留一小时作为兜底，缓存按容量淘汰最久未访问的主机
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Slf4j
+public class CachingDns implements Dns {
+    
+    private static final long STALE_MILLIS = TimeUnit.HOURS.toMillis(1);
+    
+    private final Dns delegate;
+    private final long ttlNanos;
+    private final LruCache<String, Entry> cache;
+    
+    public CachingDns(Dns delegate, long ttlSeconds, int maxSize) {
+        this.delegate = delegate;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.cache = new LruCache<>(maxSize, TimeUnit.SECONDS.toMillis(ttlSeconds) + STALE_MILLIS);
+    }
+    
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        long now = System.nanoTime();
+        Entry entry = cache.get(hostname);
+        if (entry != null && now - entry.resolvedAt() < ttlNanos) {
+            return entry.addresses();
+        }
+        
+        try {
+            List<InetAddress> addresses = delegate.lookup(hostname);
+            cache.put(hostname, new Entry(addresses, now));
+            return addresses;
+        } catch (UnknownHostException e) {
+            if (entry != null) {
+                log.warn("DNS解析失败，使用缓存记录: {}", hostname);
+                return entry.addresses();
+            }
+            throw e;
+        }
+    }
+    
+    private record Entry(List<InetAddress> addresses, long resolvedAt) {
+    }
+}
@@ -0,0 +1,368 @@
+package com.yby6.mcp.server.http;
+
+import com.yby6.mcp.server.config.HedgeProperties;
+import com.yby6.mcp.server.utils.AsyncUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.noear.solon.annotation.Component;
+import org.noear.solon.annotation.Inject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 对冲页面请求
+ * 请求耗时超过该平台近期成功耗时的指定百分位仍未返回时，再发出一个相同的请求，取先成功的响应并取消另一个，
+ * 避免个别慢节点拖长整体耗时；请求很快因连接错误失败时立即重试一次。
+ * 对冲与重试都从按平台计算的重试预算中扣除，预算按正常请求数的比例积攒，上游变慢或出错时不会成倍放大请求量；
+ * 平台限速（UpstreamGuard）按解析计，对冲与重试请求不另取令牌，只受该预算限制
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Slf4j
+@Component
+public class HedgedFetcher {
+    
+    // 样本数不足时使用初始对冲等待时间
+    private static final int MIN_SAMPLES = 20;
+    
+    // 每新增多少个样本重新计算对冲等待时间
+    private static final int RECOMPUTE_INTERVAL = 16;
+    
+    @Inject
+    private HttpTransport httpTransport;
+    
+    @Inject
+    private HedgeProperties properties;
+    
+    private final Map<String, Target> targets = new ConcurrentHashMap<>();
+    
+    // 纳秒时钟与延迟执行（延迟毫秒数, 任务），测试中替换以控制请求耗时与对冲时机
+    LongSupplier nanoClock = System::nanoTime;
+    BiConsumer<Long, Runnable> scheduler = (delayMillis, task) ->
+            CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS).execute(task);
+    
+    public HedgedFetcher() {
+    }
+    
+    HedgedFetcher(HttpTransport httpTransport, HedgeProperties properties) {
+        this.httpTransport = httpTransport;
+        this.properties = properties;
+    }
+    
+    /**
+     * 异步发送可对冲的GET请求，请求需是幂等的
+     *
+     * @param name          统计名称（如平台代码），耗时百分位、重试预算与对冲胜率按名称分别统计
+     * @param url           请求地址
+     * @param headers       请求头
+     * @param timeoutMillis 单个请求的超时时间（毫秒）
+     * @param handler       响应处理器，每个请求各执行一次
+     * @return 先成功的处理结果，取消时同时取消所有请求
+     */
+    public <T> CompletableFuture<T> getAsync(String name, String url, Map<String, String> headers, long timeoutMillis,
+                                             HttpTransport.BodyHandler<T> handler) {
+        if (!properties.isEnabled()) {
+            return httpTransport.getAsync(url, headers, timeoutMillis, handler);
+        }
+        
+        Target target = targets.computeIfAbsent(name, n -> new Target());
+        target.requests.increment();
+        target.deposit();
+        
+        Hedge<T> hedge = new Hedge<>(target, nanoClock, () -> httpTransport.getAsync(url, headers, timeoutMillis, handler));
+        hedge.launch(Kind.PRIMARY);
+        long delayMillis = target.getDelayMillis();
+        if (delayMillis < timeoutMillis) {
+            scheduler.accept(delayMillis, hedge::hedge);
+        }
+        return hedge.result;
+    }
+    
+    /**
+     * 获取各名称的耗时分布、对冲与重试统计
+     *
+     * @return 名称 -> 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        targets.forEach((name, target) -> stats.put(name, target.stats()));
+        return stats;
+    }
+    
+    private enum Kind {
+        PRIMARY, HEDGE, RETRY
+    }
+    
+    /**
+     * 一次对冲请求：最多两个请求（首个请求加一个对冲或重试请求），第一个成功的结果即为最终结果
+     */
+    private static final class Hedge<T> {
+        
+        private final Target target;
+        private final LongSupplier nanoClock;
+        private final Supplier<CompletableFuture<T>> request;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final List<CompletableFuture<T>> attempts = new ArrayList<>(2);
+        private final ReentrantLock lock = new ReentrantLock();
+        private int launched;
+        private int pending;
+        private Throwable failure;
+        
+        private Hedge(Target target, LongSupplier nanoClock, Supplier<CompletableFuture<T>> request) {
+            this.target = target;
+            this.nanoClock = nanoClock;
+            this.request = request;
+            result.whenComplete((value, e) -> {
+                if (result.isCancelled()) {
+                    cancelAttempts();
+                }
+            });
+        }
+        
+        /**
+         * 对冲等待时间到达时仍未完成，且尚未发出第二个请求、预算充足时发出对冲请求
+         */
+        private void hedge() {
+            if (result.isDone() || !reserve()) {
+                return;
+            }
+            if (!target.withdraw()) {
+                unreserve();
+                target.budgetExhausted.increment();
+                return;
+            }
+            target.hedged.increment();
+            launch(Kind.HEDGE);
+        }
+        
+        private void launch(Kind kind) {
+            long startedAt = nanoClock.getAsLong();
+            CompletableFuture<T> attempt;
+            try {
+                attempt = request.get();
+            } catch (Exception e) {
+                attempt = CompletableFuture.failedFuture(e);
+            }
+            lock.lock();
+            try {
+                if (kind == Kind.PRIMARY) {
+                    launched++;
+                }
+                attempts.add(attempt);
+                pending++;
+            } finally {
+                lock.unlock();
+            }
+            attempt.whenComplete((value, e) -> complete(kind, startedAt, value, e));
+            if (result.isDone()) {
+                attempt.cancel(true);
+            }
+        }
+        
+        private void complete(Kind kind, long startedAt, T value, Throwable e) {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(nanoClock.getAsLong() - startedAt);
+            if (e == null) {
+                target.record(elapsedMillis);
+                if (result.complete(value)) {
+                    if (kind == Kind.HEDGE) {
+                        target.hedgeWins.increment();
+                    } else if (kind == Kind.RETRY) {
+                        target.retrySuccesses.increment();
+                    }
+                    cancelAttempts();
+                }
+                return;
+            }
+            if (result.isDone()) {
+                return;
+            }
+            
+            Throwable cause = AsyncUtil.unwrap(e);
+            boolean othersRunning;
+            lock.lock();
+            try {
+                pending--;
+                if (failure == null) {
+                    failure = cause;
+                }
+                othersRunning = pending > 0;
+            } finally {
+                lock.unlock();
+            }
+            // 响应处理失败（如页面结构不符）说明请求本身已完成，换一个请求多半结果相同，直接结束
+            if (!(cause instanceof IOException)) {
+                completeExceptionally(cause);
+                return;
+            }
+            if (othersRunning) {
+                return;
+            }
+            // 很快失败的连接错误（连接被重置等）立即重试，超时等慢失败不重试
+            if (elapsedMillis < target.getDelayMillis() && reserve()) {
+                if (target.withdraw()) {
+                    target.retries.increment();
+                    log.debug("请求{}ms后失败，立即重试: {}", elapsedMillis, cause.getMessage());
+                    launch(Kind.RETRY);
+                    return;
+                }
+                unreserve();
+                target.budgetExhausted.increment();
+            }
+            completeExceptionally(failure);
+        }
+        
+        private void completeExceptionally(Throwable cause) {
+            if (result.completeExceptionally(cause)) {
+                cancelAttempts();
+            }
+        }
+        
+        /**
+         * 占用第二个请求的名额
+         */
+        private boolean reserve() {
+            lock.lock();
+            try {
+                if (launched >= 2) {
+                    return false;
+                }
+                launched++;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        private void unreserve() {
+            lock.lock();
+            try {
+                launched--;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        private void cancelAttempts() {
+            List<CompletableFuture<T>> running;
+            lock.lock();
+            try {
+                running = new ArrayList<>(attempts);
+            } finally {
+                lock.unlock();
+            }
+            running.forEach(attempt -> attempt.cancel(true));
+        }
+    }
+    
+    /**
+     * 单个名称的耗时样本与重试预算，样本与预算在锁内读写
+     */
+    private final class Target {
+        
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long[] samples = new long[Math.max(MIN_SAMPLES, properties.getSampleSize())];
+        private long sampleCount;
+        private double budget = properties.getBudgetMax();
+        private volatile long delayMillis = properties.getInitialDelayMillis();
+        
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder hedged = new LongAdder();
+        private final LongAdder hedgeWins = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder retrySuccesses = new LongAdder();
+        private final LongAdder budgetExhausted = new LongAdder();
+        
+        private long getDelayMillis() {
+            return delayMillis;
+        }
+        
+        /**
+         * 记录成功请求的耗时，样本足够时按百分位更新对冲等待时间
+         */
+        private void record(long millis) {
+            lock.lock();
+            try {
+                samples[(int) (sampleCount % samples.length)] = millis;
+                sampleCount++;
+                if (sampleCount == MIN_SAMPLES || (sampleCount > MIN_SAMPLES && sampleCount % RECOMPUTE_INTERVAL == 0)) {
+                    delayMillis = Math.max(properties.getMinDelayMillis(), percentile(properties.getPercentile()));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        private void deposit() {
+            lock.lock();
+            try {
+                budget = Math.min(properties.getBudgetMax(), budget + properties.getBudgetRatio());
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        private boolean withdraw() {
+            lock.lock();
+            try {
+                if (budget < 1) {
+                    return false;
+                }
+                budget -= 1;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        /**
+         * 计算最近样本的百分位耗时，调用方需持有锁
+         */
+        private long percentile(double percentile) {
+            int count = (int) Math.min(sampleCount, samples.length);
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100 * count) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, index))];
+        }
+        
+        private Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            long hedgedCount = hedged.sum();
+            stats.put("requests", requests.sum());
+            stats.put("hedged", hedgedCount);
+            stats.put("hedgeWins", hedgeWins.sum());
+            stats.put("hedgeWinRate", hedgedCount > 0 ? String.format("%.2f", hedgeWins.sum() / (double) hedgedCount) : "0.00");
+            stats.put("retries", retries.sum());
+            stats.put("retrySuccesses", retrySuccesses.sum());
+            stats.put("budgetExhausted", budgetExhausted.sum());
+            stats.put("hedgeDelayMillis", delayMillis);
+            lock.lock();
+            try {
+                stats.put("budget", String.format("%.1f", budget));
+                stats.put("samples", Math.min(sampleCount, samples.length));
+                stats.put("p50Millis", percentile(50));
+                stats.put("p95Millis", percentile(95));
+                stats.put("p99Millis", percentile(99));
+            } finally {
+                lock.unlock();
+            }
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.yby6.mcp.server.http;
+
+/**
+ * HTTP页面响应
+ *
+ * @param status 状态码
+ * @param url    跟随重定向后的最终URL
+ * @param body   响应内容
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public record HttpPage(int status, String url, String body) {
+    
+    public boolean isOk() {
+        return status >= 200 && status < 300;
+    }
+}
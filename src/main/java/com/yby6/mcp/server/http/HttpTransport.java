@@ -0,0 +1,243 @@
+package com.yby6.mcp.server.http;
+
+import com.yby6.mcp.server.config.HttpProperties;
+import com.yby6.mcp.server.utils.AsyncUtil;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Dns;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.noear.solon.annotation.Component;
+import org.noear.solon.annotation.Destroy;
+import org.noear.solon.annotation.Init;
+import org.noear.solon.annotation.Inject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 共享HTTP传输层
+ * 所有解析器与文本提取服务共用同一个连接池，复用到同一域名的TCP/TLS连接
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Slf4j
+@Component
+public class HttpTransport {
+    
+    @Inject
+    private HttpProperties properties;
+    
+    private OkHttpClient client;
+    
+    // 按超时时间派生的客户端，与主客户端共享连接池和调度器
+    private final Map<Long, OkHttpClient> timeoutClients = new ConcurrentHashMap<>();
+    
+    @Init
+    public void init() {
+        // OkHttp的异步请求在调度线程上以阻塞I/O执行，每个进行中的请求占用一个调度线程。
+        // 虚拟线程模式下调度线程为虚拟线程，阻塞的代价很低，可放宽并发上限；否则每个请求占用一个平台线程
+        boolean virtualThreads = AsyncUtil.isVirtualThreadsEnabled();
+        Dispatcher dispatcher = virtualThreads
+                ? new Dispatcher(AsyncUtil.newBlockingExecutor("okhttp-dispatcher-"))
+                : new Dispatcher();
+        int maxRequests = virtualThreads ? properties.getVirtualThreadMaxRequests() : properties.getMaxRequests();
+        int maxRequestsPerHost = virtualThreads ? properties.getVirtualThreadMaxRequestsPerHost() : properties.getMaxRequestsPerHost();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(properties.getMaxIdleConnections(),
+                        properties.getKeepAliveSeconds(), TimeUnit.SECONDS))
+                .dispatcher(dispatcher)
+                .connectTimeout(properties.getConnectTimeout(), TimeUnit.MILLISECONDS)
+                .readTimeout(properties.getReadTimeout(), TimeUnit.MILLISECONDS)
+                .followRedirects(true)
+                .followSslRedirects(true);
+        
+        // OkHttp的HTTP/2流在synchronized方法中等待响应头（Http2Stream.takeHeaders），
+        // JDK 21-23上会把虚拟线程钉在载体线程上，大量慢请求会占满载体线程，虚拟线程模式下只使用HTTP/1.1
+        boolean http2 = properties.isHttp2Enabled() && !virtualThreads;
+        if (http2) {
+            builder.protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1));
+        } else {
+            builder.protocols(List.of(Protocol.HTTP_1_1));
+        }
+        if (properties.isHttp2Enabled() && virtualThreads) {
+            log.info("虚拟线程模式下禁用HTTP/2，避免等待响应时钉住载体线程");
+        }
+        
+        if (properties.getDnsCacheSeconds() > 0) {
+            builder.dns(new CachingDns(Dns.SYSTEM, properties.getDnsCacheSeconds(), properties.getDnsCacheMaxSize()));
+        }
+        
+        this.client = builder.build();
+        log.info("HTTP传输层初始化完成: maxIdle={}, keepAlive={}s, http2={}, virtualThreads={}, maxRequests={}, maxRequestsPerHost={}",
+                properties.getMaxIdleConnections(), properties.getKeepAliveSeconds(), http2, virtualThreads,
+                maxRequests, maxRequestsPerHost);
+    }
+    
+    /**
+     * 获取共享客户端
+     *
+     * @return {@link OkHttpClient }
+     */
+    public OkHttpClient client() {
+        return client;
+    }
+    
+    /**
+     * 获取指定超时时间的客户端，与共享客户端使用同一个连接池
+     *
+     * @param timeoutMillis 读取超时（毫秒）
+     * @return {@link OkHttpClient }
+     */
+    public OkHttpClient client(long timeoutMillis) {
+        return timeoutClients.computeIfAbsent(timeoutMillis, t -> client.newBuilder()
+                .readTimeout(t, TimeUnit.MILLISECONDS)
+                .callTimeout(t, TimeUnit.MILLISECONDS)
+                .build());
+    }
+    
+    /**
+     * 基于共享客户端创建构建器，用于需要特殊超时等配置的场景
+     *
+     * @return {@link OkHttpClient.Builder }
+     */
+    public OkHttpClient.Builder newBuilder() {
+        return client.newBuilder();
+    }
+    
+    /**
+     * 发送GET请求并读取完整响应，默认跟随重定向
+     * 注意：不要手动设置Accept-Encoding，由OkHttp自动处理gzip解压
+     *
+     * @param url           请求地址
+     * @param headers       请求头
+     * @param timeoutMillis 超时时间（毫秒）
+     * @return {@link HttpPage }
+     * @throws IOException 请求失败
+     */
+    public HttpPage get(String url, Map<String, String> headers, long timeoutMillis) throws IOException {
+        try (Response response = client(timeoutMillis).newCall(newRequest(url, headers)).execute()) {
+            ResponseBody body = response.body();
+            return new HttpPage(response.code(), response.request().url().toString(),
+                    body != null ? body.string() : "");
+        }
+    }
+    
+    /**
+     * 发送GET请求并以流的方式处理响应，处理器返回后立即关闭响应，
+     * 未读完的内容不再下载
+     *
+     * @param url           请求地址
+     * @param headers       请求头
+     * @param timeoutMillis 超时时间（毫秒）
+     * @param handler       响应处理器
+     * @return 处理结果
+     * @throws Exception 请求或处理失败
+     */
+    public <T> T get(String url, Map<String, String> headers, long timeoutMillis, BodyHandler<T> handler) throws Exception {
+        try (Response response = client(timeoutMillis).newCall(newRequest(url, headers)).execute()) {
+            return handle(response, handler);
+        }
+    }
+    
+    /**
+     * 异步发送GET请求，调用线程不等待响应
+     * 请求本身仍在OkHttp调度线程上以阻塞I/O执行，进行中的请求数受 maxRequests / maxRequestsPerHost 限制，
+     * 超出的请求在调度器中排队；虚拟线程模式下调度线程为虚拟线程，使用 virtualThreadMaxRequests 等更高的上限。
+     * 处理器在HTTP调度线程上执行，后续的异步阶段默认也在该线程上继续
+     *
+     * @param url           请求地址
+     * @param headers       请求头
+     * @param timeoutMillis 超时时间（毫秒）
+     * @param handler       响应处理器
+     * @return 处理结果，取消时同时取消HTTP请求
+     */
+    public <T> CompletableFuture<T> getAsync(String url, Map<String, String> headers, long timeoutMillis, BodyHandler<T> handler) {
+        Call call;
+        try {
+            call = client(timeoutMillis).newCall(newRequest(url, headers));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        
+        CompletableFuture<T> future = new CompletableFuture<>();
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(e);
+            }
+            
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    future.complete(handle(response, handler));
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        future.whenComplete((result, e) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return future;
+    }
+    
+    private Request newRequest(String url, Map<String, String> headers) {
+        Request.Builder builder = new Request.Builder().url(url).get();
+        if (headers != null) {
+            headers.forEach(builder::header);
+        }
+        return builder.build();
+    }
+    
+    private <T> T handle(Response response, BodyHandler<T> handler) throws Exception {
+        ResponseBody body = response.body();
+        InputStream stream = body != null ? body.byteStream() : InputStream.nullInputStream();
+        return handler.handle(response.code(), response.request().url().toString(), stream);
+    }
+    
+    @Destroy
+    public void destroy() {
+        if (client != null) {
+            client.dispatcher().executorService().shutdown();
+            client.connectionPool().evictAll();
+        }
+    }
+    
+    /**
+     * 响应流处理器
+     *
+     * @param <T> 处理结果类型
+     */
+    @FunctionalInterface
+    public interface BodyHandler<T> {
+        
+        /**
+         * 处理响应
+         *
+         * @param status 状态码
+         * @param url    跟随重定向后的最终URL
+         * @param body   响应体字节流
+         * @return 处理结果
+         * @throws Exception 处理失败
+         */
+        T handle(int status, String url, InputStream body) throws Exception;
+    }
+}
@@ -0,0 +1,204 @@
+package com.yby6.mcp.server.http;
+
+import com.yby6.mcp.server.config.HttpProperties;
+import com.yby6.mcp.server.utils.LruCache;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.noear.solon.annotation.Component;
+import org.noear.solon.annotation.Init;
+import org.noear.solon.annotation.Inject;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * 短链接跳转解析
+ * 不跟随重定向，逐跳发送HEAD请求只读取 Location 响应头，不下载落地页内容；
+ * 服务器不支持HEAD时该跳改用GET，读到响应头后立即关闭。
+ * 只缓存满足调用方条件的跳转目标，跳转次数超限、请求出错或跳转到验证码页面的结果不缓存；
+ * 目标地址可能带有会过期的签名参数（如小红书的 xsec_token），缓存按 yby6.http.redirectCacheTtlSeconds 过期
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Slf4j
+@Component
+public class RedirectResolver {
+    
+    // 触发风控后跳转到的验证码/登录页面：验证服务的域名（含子域名），或路径中的验证码、登录页目录（如小红书 /website-login/captcha）；
+    // 只按域名与完整的路径段匹配，标题、签名等查询参数中碰巧出现的单词不算
+    private static final Set<String> VERIFICATION_HOSTS = Set.of("verify.snssdk.com", "verify.zijieapi.com", "captcha.zt.kuaishou.com");
+    private static final Set<String> VERIFICATION_PATH_SEGMENTS = Set.of("captcha", "website-login");
+    
+    @Inject
+    private HttpTransport httpTransport;
+    
+    @Inject
+    private HttpProperties properties;
+    
+    private OkHttpClient client;
+    private LruCache<String, String> cache;
+    
+    private final LongAdder resolves = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder hops = new LongAdder();
+    private final LongAdder headFallbacks = new LongAdder();
+    
+    @Init
+    public void init() {
+        this.client = httpTransport.newBuilder()
+                .followRedirects(false)
+                .followSslRedirects(false)
+                .callTimeout(properties.getReadTimeout(), TimeUnit.MILLISECONDS)
+                .build();
+        this.cache = new LruCache<>(properties.getRedirectCacheMaxSize(),
+                TimeUnit.SECONDS.toMillis(properties.getRedirectCacheTtlSeconds()));
+    }
+    
+    /**
+     * 解析短链接的跳转目标
+     *
+     * @param url     短链接
+     * @param headers 请求头（部分平台按 User-Agent 跳转到不同页面）
+     * @param done    判断地址已满足需要（如已包含视频ID），满足时不再继续跳转
+     * @return 满足条件的地址或跳转链的最终地址，请求失败时异常结束
+     */
+    public CompletableFuture<String> resolveAsync(String url, Map<String, String> headers, Predicate<String> done) {
+        if (done.test(url)) {
+            return CompletableFuture.completedFuture(url);
+        }
+        String cached = cache.get(url);
+        if (cached != null) {
+            cacheHits.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+        
+        resolves.increment();
+        return follow(url, headers, done, 0).thenApply(target -> {
+            // 未满足条件的地址（跳转次数超限、错误响应、落地页）可能只是暂时的，下次重新解析
+            if (done.test(target) && !isVerificationPage(target)) {
+                cache.put(url, target);
+                log.debug("短链接跳转: {} -> {}", url, target);
+            }
+            return target;
+        });
+    }
+    
+    /**
+     * 判断地址是否为平台触发风控后的验证码或登录页面
+     *
+     * @param url 地址
+     * @return 是否为验证码页面
+     */
+    public static boolean isVerificationPage(String url) {
+        HttpUrl parsed = url != null ? HttpUrl.parse(url) : null;
+        if (parsed == null) {
+            return false;
+        }
+        String host = parsed.host();
+        for (String verificationHost : VERIFICATION_HOSTS) {
+            if (host.equals(verificationHost) || host.endsWith("." + verificationHost)) {
+                return true;
+            }
+        }
+        for (String segment : parsed.pathSegments()) {
+            if (VERIFICATION_PATH_SEGMENTS.contains(segment.toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 获取统计信息
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("resolves", resolves.sum());
+        stats.put("cacheHits", cacheHits.sum());
+        stats.put("hops", hops.sum());
+        stats.put("headFallbacks", headFallbacks.sum());
+        stats.put("cache", cache.stats());
+        return stats;
+    }
+    
+    private CompletableFuture<String> follow(String url, Map<String, String> headers, Predicate<String> done, int hop) {
+        if (hop >= properties.getMaxRedirects()) {
+            log.warn("跳转次数超过{}次，停止跟随: {}", properties.getMaxRedirects(), url);
+            return CompletableFuture.completedFuture(url);
+        }
+        return send(url, headers, true)
+                .thenCompose(status -> {
+                    // 不支持HEAD的服务器改用GET，只读响应头
+                    if (status.code() == 405 || status.code() == 501) {
+                        headFallbacks.increment();
+                        return send(url, headers, false);
+                    }
+                    return CompletableFuture.completedFuture(status);
+                })
+                .thenCompose(status -> {
+                    HttpUrl next = isRedirect(status.code()) && status.location() != null
+                            ? HttpUrl.get(url).resolve(status.location()) : null;
+                    if (next == null) {
+                        return CompletableFuture.completedFuture(url);
+                    }
+                    hops.increment();
+                    String nextUrl = next.toString();
+                    if (done.test(nextUrl)) {
+                        return CompletableFuture.completedFuture(nextUrl);
+                    }
+                    return follow(nextUrl, headers, done, hop + 1);
+                });
+    }
+    
+    /**
+     * 发送一跳请求，只取状态码和 Location 响应头
+     */
+    private CompletableFuture<HopStatus> send(String url, Map<String, String> headers, boolean head) {
+        Request.Builder builder = new Request.Builder().url(url);
+        headers.forEach(builder::header);
+        Call call = client.newCall(head ? builder.head().build() : builder.get().build());
+        
+        CompletableFuture<HopStatus> future = new CompletableFuture<>();
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(e);
+            }
+            
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    future.complete(new HopStatus(response.code(), response.header("Location")));
+                }
+            }
+        });
+        future.whenComplete((result, e) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return future;
+    }
+    
+    private static boolean isRedirect(int code) {
+        return code == 301 || code == 302 || code == 303 || code == 307 || code == 308;
+    }
+    
+    private record HopStatus(int code, String location) {
+    }
+}
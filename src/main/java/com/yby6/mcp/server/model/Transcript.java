@@ -0,0 +1,30 @@
+package com.yby6.mcp.server.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 视频文本提取结果
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Transcript {
+    
+    /**
+     * 完整文本，分段识别时按时间顺序逐段换行拼接
+     */
+    private String text;
+    
+    /**
+     * 带时间戳的分段结果，整段识别时为空
+     */
+    private List<TranscriptSegment> segments = new ArrayList<>();
+}
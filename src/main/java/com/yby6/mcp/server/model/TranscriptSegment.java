@@ -0,0 +1,37 @@
+package com.yby6.mcp.server.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 分段识别结果
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TranscriptSegment {
+    
+    /**
+     * 分段序号，从0开始
+     */
+    private int index;
+    
+    /**
+     * 分段在音频中的开始时间（毫秒）
+     */
+    private long startMillis;
+    
+    /**
+     * 分段在音频中的结束时间（毫秒）
+     */
+    private long endMillis;
+    
+    /**
+     * 分段文本
+     */
+    private String text;
+}
@@ -19,10 +19,18 @@ import java.util.List;
 @AllArgsConstructor
 public class VideoInfo {
     
+    /**
+     * 平台视频ID（抖音aweme_id / 小红书noteId）
+     */
+    private String videoId;
     private String videoUrl;
     private String coverUrl;
     private String title;
     private String musicUrl;
+    /**
+     * 纯音频流地址（页面数据提供时），提取文本时优先使用
+     */
+    private String audioUrl;
     private List<ImgInfo> images;
     private VideoAuthor author;
     private String description;
@@ -2,11 +2,16 @@ package com.yby6.mcp.server.model;
 
 import lombok.Getter;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 视频来源枚举
- * 定义支持的视频平台及其域名信息
+ * 定义支持的视频平台及其域名信息，并在类加载时按域名建立索引，由链接的主机名直接查到平台
  *
  * @author Yangbuyi
  * @date 2025/07/16
@@ -34,6 +39,26 @@ public enum VideoSource {
     XINPIANCHANG("xinpianchang", List.of("xinpianchang.com")),
     HAOKAN("haokan", List.of("haokan.baidu.com", "haokan.hao123.com"));
     
+    // 平台域名 -> 平台
+    private static final Map<String, VideoSource> HOST_INDEX = new HashMap<>();
+    
+    // 主域名（末两级）-> 平台，多个平台共用的主域名（如 baidu.com、qq.com）不收录
+    private static final Map<String, VideoSource> SITE_INDEX = new HashMap<>();
+    
+    static {
+        Set<String> shared = new HashSet<>();
+        for (VideoSource source : values()) {
+            for (String domain : source.domains) {
+                HOST_INDEX.put(domain, source);
+                VideoSource previous = SITE_INDEX.putIfAbsent(siteOf(domain), source);
+                if (previous != null && previous != source) {
+                    shared.add(siteOf(domain));
+                }
+            }
+        }
+        shared.forEach(SITE_INDEX::remove);
+    }
+    
     private final String code;
     private final List<String> domains;
     
@@ -42,4 +67,38 @@ public enum VideoSource {
         this.domains = domains;
     }
     
+    
+    /**
+     * 根据主机名查找平台
+     * 依次去掉最左侧一级匹配平台域名（如 m.weibo.com 匹配 weibo.com），
+     * 都未命中时按主域名匹配（如 douyin.com 匹配 www.douyin.com 所属平台）
+     *
+     * @param host 主机名
+     * @return 平台，未知主机返回null
+     */
+    public static VideoSource ofHost(String host) {
+        if (host == null || host.isEmpty()) {
+            return null;
+        }
+        String name = host.toLowerCase(Locale.ROOT);
+        int from = 0;
+        while (true) {
+            VideoSource source = HOST_INDEX.get(from == 0 ? name : name.substring(from));
+            if (source != null) {
+                return source;
+            }
+            int dot = name.indexOf('.', from);
+            if (dot < 0) {
+                break;
+            }
+            from = dot + 1;
+        }
+        return SITE_INDEX.get(siteOf(name));
+    }
+    
+    private static String siteOf(String host) {
+        int last = host.lastIndexOf('.');
+        int previous = last > 0 ? host.lastIndexOf('.', last - 1) : -1;
+        return previous >= 0 ? host.substring(previous + 1) : host;
+    }
 }
@@ -1,29 +1,56 @@
 package com.yby6.mcp.server.parser;
 
+import com.yby6.mcp.server.http.HedgedFetcher;
+import com.yby6.mcp.server.http.HttpTransport;
+import com.yby6.mcp.server.http.RedirectResolver;
 import com.yby6.mcp.server.model.VideoInfo;
+import com.yby6.mcp.server.model.VideoSource;
+import com.yby6.mcp.server.utils.AsyncUtil;
 import org.apache.commons.lang3.StringUtils;
+import org.noear.solon.annotation.Inject;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 抽象顶层解析器
+ * 实现类作为容器单例被所有请求共享，不能持有请求级的可变状态
  *
  * @author Yangbuyi
  * @date 2025/07/16
  */
 public abstract class BaseParser {
     
-    // URL正则表达式模式 - 改进版本，支持更复杂的URL格式
-    protected static final Pattern URL_REGEX_PATTERN = Pattern.compile("https?://[\\w.-]+(?:\\.[\\w.-]+)*(?:/[^\\s]*)?");
-    
     // 默认请求头
     protected static final Map<String, String> DEFAULT_HEADERS = new HashMap<String, String>() {{
         put("User-Agent", "Mozilla/5.0 (iPhone; CPU iPhone OS 17_2 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) EdgiOS/121.0.2277.107 Version/17.0 Mobile/15E148 Safari/604.1");
     }};
     
+    // 平台限流时返回的状态码（461/471为小红书风控）
+    private static final Set<Integer> BLOCKED_STATUS = Set.of(403, 429, 461, 471);
+    
+    // 共享HTTP传输层
+    @Inject
+    protected HttpTransport httpTransport;
+    
+    // 对冲页面请求，用于耗时波动大的页面抓取
+    @Inject
+    protected HedgedFetcher hedgedFetcher;
+    
+    // 短链接跳转解析
+    @Inject
+    protected RedirectResolver redirectResolver;
+    
+    /**
+     * 获取解析器对应的平台
+     *
+     * @return {@link VideoSource }
+     */
+    public abstract VideoSource getSource();
+    
     /**
      * 解析分享链接
      *
@@ -33,6 +60,18 @@ public abstract class BaseParser {
      */
     public abstract VideoInfo parseShareUrl(String shareUrl) throws Exception;
     
+    /**
+     * 异步解析分享链接
+     * 默认在阻塞任务线程池上执行 {@link #parseShareUrl}，基于异步HTTP请求实现的解析器应覆盖此方法，
+     * 等待上游响应期间不占用阻塞任务线程（请求在HTTP调度线程上执行，见 {@link HttpTransport#getAsync}）
+     *
+     * @param shareUrl 分享链接
+     * @return {@link VideoInfo } 异步结果
+     */
+    public CompletableFuture<VideoInfo> parseShareUrlAsync(String shareUrl) {
+        return AsyncUtil.supplyBlocking(() -> parseShareUrl(shareUrl));
+    }
+    
     /**
      * 解析视频id
      *
@@ -42,6 +81,26 @@ public abstract class BaseParser {
      */
     public abstract VideoInfo parseVideoId(String videoId) throws Exception;
     
+    /**
+     * 从链接中直接提取视频ID，不发起网络请求
+     * 用于在抓取页面前命中解析结果缓存，无法确定时返回null
+     *
+     * @param url 分享链接
+     * @return 视频ID
+     */
+    public String extractCanonicalId(String url) {
+        return null;
+    }
+    
+    /**
+     * 获取解析器运行统计，没有统计项时返回空
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        return Collections.emptyMap();
+    }
+    
     /**
      * 从文本中提取URL
      *
@@ -52,9 +111,28 @@ public abstract class BaseParser {
         if (StringUtils.isBlank(text)) {
             return null;
         }
-
-        Matcher matcher = URL_REGEX_PATTERN.matcher(text);
-        return matcher.find() ? matcher.group() : null;
+        
+        return ShareText.parse(text).getUrl();
+    }
+    
+    /**
+     * 检查页面响应是否为平台的限流、验证码页面或服务异常
+     *
+     * @param status   状态码
+     * @param finalUrl 跟随跳转后的最终地址
+     * @throws UpstreamBlockedException     请求被平台拒绝
+     * @throws UpstreamUnavailableException 平台返回5xx状态码
+     */
+    protected static void checkUpstream(int status, String finalUrl) throws UpstreamBlockedException, UpstreamUnavailableException {
+        if (BLOCKED_STATUS.contains(status)) {
+            throw new UpstreamBlockedException("请求被平台限流，状态码: " + status);
+        }
+        if (status >= 500) {
+            throw new UpstreamUnavailableException("平台服务异常，状态码: " + status);
+        }
+        if (RedirectResolver.isVerificationPage(finalUrl)) {
+            throw new UpstreamBlockedException("请求触发平台验证码: " + finalUrl);
+        }
     }
     
     /**
@@ -2,29 +2,47 @@ package com.yby6.mcp.server.parser;
 
 import com.yby6.mcp.server.model.VideoInfo;
 import com.yby6.mcp.server.model.VideoSource;
-import com.yby6.mcp.server.parser.impl.DouyinParser;
-import com.yby6.mcp.server.parser.impl.RedBookParser;
+import lombok.extern.slf4j.Slf4j;
+import org.noear.solon.Solon;
+import org.noear.solon.annotation.Component;
+import org.noear.solon.annotation.Init;
 
-import java.util.HashMap;
-import java.util.List;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * 解析器注册表
+ * 解析器均为容器管理的无状态单例，启动时按平台注册，请求路径上不再创建解析器实例
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Slf4j
+@Component
 public class ParserFactory {
     
-    private static final Map<VideoSource, ParserConfig> PARSER_MAPPING = new HashMap<>();
+    private final Map<VideoSource, BaseParser> parsers = new ConcurrentHashMap<>();
     
-    static {
-        // 抖音
-        PARSER_MAPPING.put(VideoSource.DOUYIN, new ParserConfig(
-                List.of("v.douyin.com", "www.iesdouyin.com", "www.douyin.com"),
-                DouyinParser.class
-        ));
-        // 小红书
-        PARSER_MAPPING.put(VideoSource.REDBOOK, new ParserConfig(
-                List.of("www.xiaohongshu.com", "xhslink.com"),
-                RedBookParser.class
-        ));
+    @Init
+    public void init() {
+        // 订阅容器中所有解析器（包括之后注册的）
+        Solon.context().subWrapsOfType(BaseParser.class, bw -> register(bw.get()));
+    }
+    
+    /**
+     * 注册解析器
+     *
+     * @param parser 解析器
+     */
+    public void register(BaseParser parser) {
+        BaseParser previous = parsers.put(parser.getSource(), parser);
+        if (previous == null) {
+            log.info("注册解析器: {} -> {}", parser.getSource(), parser.getClass().getSimpleName());
+        }
     }
     
     /**
@@ -34,14 +52,44 @@ public class ParserFactory {
      * @return {@link VideoInfo }
      * @throws Exception 例外
      */
-    public static VideoInfo parseShareUrl(String shareUrl) throws Exception {
-        VideoSource source = detectVideoSource(shareUrl);
+    public VideoInfo parseShareUrl(String shareUrl) throws Exception {
+        ShareText share = ShareText.parse(shareUrl);
+        VideoSource source = detectVideoSource(share);
         if (source == null) {
             throw new Exception("不支持的视频平台: " + shareUrl);
         }
         
-        BaseParser parser = createParser(source);
-        return parser.parseShareUrl(shareUrl);
+        return getParser(source).parseShareUrl(share.getUrl());
+    }
+    
+    /**
+     * 异步解析共享url
+     *
+     * @param shareUrl 共享网址
+     * @return {@link VideoInfo } 异步结果
+     */
+    public CompletableFuture<VideoInfo> parseShareUrlAsync(String shareUrl) {
+        return parseShareUrlAsync(ShareText.parse(shareUrl), shareUrl);
+    }
+    
+    /**
+     * 异步解析已扫描的分享文本，只把其中的平台链接交给解析器
+     *
+     * @param share     分享文本扫描结果
+     * @param shareText 原始分享文本，用于错误信息
+     * @return {@link VideoInfo } 异步结果
+     */
+    public CompletableFuture<VideoInfo> parseShareUrlAsync(ShareText share, String shareText) {
+        VideoSource source = detectVideoSource(share);
+        if (source == null) {
+            return CompletableFuture.failedFuture(new Exception("不支持的视频平台: " + shareText));
+        }
+        
+        BaseParser parser = parsers.get(source);
+        if (parser == null) {
+            return CompletableFuture.failedFuture(new Exception("不支持的视频来源: " + source));
+        }
+        return parser.parseShareUrlAsync(share.getUrl());
     }
     
     /**
@@ -52,40 +100,57 @@ public class ParserFactory {
      * @return {@link VideoInfo }
      * @throws Exception 例外
      */
-    public static VideoInfo parseVideoId(VideoSource source, String videoId) throws Exception {
-        BaseParser parser = createParser(source);
-        return parser.parseVideoId(videoId);
+    public VideoInfo parseVideoId(VideoSource source, String videoId) throws Exception {
+        return getParser(source).parseVideoId(videoId);
+    }
+    
+    /**
+     * 从链接中直接提取视频ID，不发起网络请求
+     *
+     * @param source 来源
+     * @param url    分享链接
+     * @return 视频ID，无法确定时返回null
+     * @throws Exception 例外
+     */
+    public String extractCanonicalId(VideoSource source, String url) throws Exception {
+        return getParser(source).extractCanonicalId(url);
     }
     
     /**
      * 检测视频源
+     * 只按分享文本中链接的主机名判断，标题等文字中出现的域名不影响结果
      *
-     * @param shareUrl 共享网址
-     * @return {@link VideoSource }
+     * @param shareUrl 分享链接或包含链接的文本
+     * @return {@link VideoSource }，无法识别或平台未注册解析器时返回null
      */
-    public static VideoSource detectVideoSource(String shareUrl) {
-        for (Map.Entry<VideoSource, ParserConfig> entry : PARSER_MAPPING.entrySet()) {
-            ParserConfig config = entry.getValue();
-            for (String domain : config.domains()) {
-                if (shareUrl.contains(domain)) {
-                    return entry.getKey();
-                }
-            }
-        }
-        return null;
+    public VideoSource detectVideoSource(String shareUrl) {
+        return detectVideoSource(ShareText.parse(shareUrl));
     }
     
-    private static BaseParser createParser(VideoSource source) throws Exception {
-        ParserConfig config = PARSER_MAPPING.get(source);
-        if (config == null) {
+    /**
+     * 检测视频源
+     *
+     * @param share 分享文本扫描结果
+     * @return {@link VideoSource }，无法识别或平台未注册解析器时返回null
+     */
+    public VideoSource detectVideoSource(ShareText share) {
+        VideoSource source = share.getSource();
+        return source != null && parsers.containsKey(source) ? source : null;
+    }
+    
+    /**
+     * 获取平台对应的解析器
+     *
+     * @param source 来源
+     * @return {@link BaseParser }
+     * @throws Exception 平台未注册解析器
+     */
+    public BaseParser getParser(VideoSource source) throws Exception {
+        BaseParser parser = parsers.get(source);
+        if (parser == null) {
             throw new Exception("不支持的视频来源: " + source);
         }
-        
-        try {
-            return config.parserClass().getDeclaredConstructor().newInstance();
-        } catch (Exception e) {
-            throw new Exception("创建解析器失败: " + source, e);
-        }
+        return parser;
     }
     
     /**
@@ -93,16 +158,23 @@ public class ParserFactory {
      *
      * @return {@link Set }<{@link VideoSource }>
      */
-    public static Set<VideoSource> getSupportedSources() {
-        return PARSER_MAPPING.keySet();
+    public Set<VideoSource> getSupportedSources() {
+        return Collections.unmodifiableSet(parsers.keySet());
     }
     
     /**
-     * 解析器配置
+     * 汇总各解析器的运行统计
      *
-     * @author Yangbuyi
-     * @date 2025/07/16
+     * @return 平台代码 -> 统计信息
      */
-    private record ParserConfig(List<String> domains, Class<? extends BaseParser> parserClass) {
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        parsers.forEach((source, parser) -> {
+            Map<String, Object> parserStats = parser.stats();
+            if (!parserStats.isEmpty()) {
+                stats.put(source.getCode(), parserStats);
+            }
+        });
+        return stats;
     }
 }
@@ -0,0 +1,268 @@
+package com.yby6.mcp.server.parser;
+
+import com.yby6.mcp.server.model.VideoSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 分享文本单遍扫描结果
+ * 从左到右扫描一次分享文本，同时提取所有http(s)链接、口令（如小红书分享文本中夹在表情之间的字母数字串）
+ * 以及链接对应的平台，每个字符只看一次，不回溯。解析结果不可变，同一文本的平台识别、去重与解析共用一份
+ * <p>
+ * 链接规则：scheme 后为主机名（字母、数字、_ . -），可带端口，之后以 / ? # 开头的部分一直延伸到空白或非ASCII字符
+ * （中文标点、表情等），末尾的 . , ; : ! ) ' " 不计入链接
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public final class ShareText {
+    
+    private static final ShareText EMPTY = new ShareText(List.of(), List.of(), List.of(), null, -1);
+    
+    // 口令长度范围，且需同时包含字母和数字
+    private static final int MIN_CODE_LENGTH = 8;
+    private static final int MAX_CODE_LENGTH = 64;
+    
+    private final List<String> urls;
+    private final List<String> hosts;
+    private final List<String> shareCodes;
+    private final VideoSource source;
+    // 平台链接在urls中的位置，没有识别出平台时为第一个链接
+    private final int urlIndex;
+    
+    private ShareText(List<String> urls, List<String> hosts, List<String> shareCodes, VideoSource source, int urlIndex) {
+        this.urls = urls;
+        this.hosts = hosts;
+        this.shareCodes = shareCodes;
+        this.source = source;
+        this.urlIndex = urlIndex;
+    }
+    
+    /**
+     * 扫描分享文本
+     *
+     * @param text 分享链接或包含链接的文本
+     * @return 扫描结果，text为空时返回不含链接的结果
+     */
+    public static ShareText parse(String text) {
+        if (text == null || text.isEmpty()) {
+            return EMPTY;
+        }
+        Scanner scanner = new Scanner(text);
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isDelimiter(c)) {
+                // 分享文本大部分是中文和表情，快速跳过
+                i++;
+                continue;
+            }
+            int hostStart = c == 'h' ? schemeEnd(text, i) : -1;
+            if (hostStart > 0) {
+                i = scanner.url(i, hostStart);
+            } else if (isAsciiLetterOrDigit(c) && (i == 0 || isDelimiter(text.charAt(i - 1)))) {
+                i = scanner.word(i);
+            } else {
+                i++;
+            }
+        }
+        return scanner.result();
+    }
+    
+    /**
+     * 文本中的所有链接，按出现顺序
+     */
+    public List<String> getUrls() {
+        return urls;
+    }
+    
+    /**
+     * 文本中链接以外的口令，按出现顺序
+     */
+    public List<String> getShareCodes() {
+        return shareCodes;
+    }
+    
+    /**
+     * 识别出的平台，取第一个属于已知平台的链接
+     *
+     * @return 平台，没有已知平台的链接时返回null
+     */
+    public VideoSource getSource() {
+        return source;
+    }
+    
+    /**
+     * 用于解析的链接：已知平台的链接，没有时为第一个链接
+     *
+     * @return 链接，文本中没有链接时返回null
+     */
+    public String getUrl() {
+        return urlIndex >= 0 ? urls.get(urlIndex) : null;
+    }
+    
+    /**
+     * {@link #getUrl()} 的小写主机名
+     *
+     * @return 主机名，文本中没有链接时返回null
+     */
+    public String getHost() {
+        return urlIndex >= 0 ? hosts.get(urlIndex) : null;
+    }
+    
+    /**
+     * 若 i 处为 http:// 或 https://，返回其后主机名的起始位置，否则返回-1
+     */
+    private static int schemeEnd(String text, int i) {
+        if (!text.startsWith("http", i)) {
+            return -1;
+        }
+        int at = i + 4;
+        if (text.startsWith("s", at)) {
+            at++;
+        }
+        return text.startsWith("://", at) ? at + 3 : -1;
+    }
+    
+    private static boolean isHostChar(char c) {
+        return isAsciiLetterOrDigit(c) || c == '_' || c == '.' || c == '-';
+    }
+    
+    private static boolean isPathStart(char c) {
+        return c == '/' || c == '?' || c == '#';
+    }
+    
+    /**
+     * 链接中可出现的字符：可见ASCII字符，空白与非ASCII字符（中文标点、表情等）结束链接
+     */
+    private static boolean isUrlChar(char c) {
+        return c > ' ' && c < 0x7F;
+    }
+    
+    private static boolean isTrailingPunctuation(char c) {
+        return c == '.' || c == ',' || c == ';' || c == ':' || c == '!' || c == ')' || c == '\'' || c == '"';
+    }
+    
+    /**
+     * 口令两侧的分隔符：空白与非ASCII字符
+     */
+    private static boolean isDelimiter(char c) {
+        return c <= ' ' || c >= 0x7F;
+    }
+    
+    private static boolean isAsciiLetterOrDigit(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c);
+    }
+    
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+    
+    /**
+     * 扫描过程中的结果，列表在第一次用到时创建
+     */
+    private static final class Scanner {
+        
+        private final String text;
+        private List<String> urls;
+        private List<String> hosts;
+        private List<String> shareCodes;
+        private VideoSource source;
+        private int sourceIndex = -1;
+        
+        private Scanner(String text) {
+            this.text = text;
+        }
+        
+        /**
+         * 读取从 start 开始的链接
+         *
+         * @return 链接之后的位置
+         */
+        private int url(int start, int hostStart) {
+            int length = text.length();
+            int hostEnd = hostStart;
+            while (hostEnd < length && isHostChar(text.charAt(hostEnd))) {
+                hostEnd++;
+            }
+            if (hostEnd == hostStart) {
+                return hostStart;
+            }
+            int end = hostEnd;
+            if (end < length && text.charAt(end) == ':') {
+                int port = end + 1;
+                while (port < length && isDigit(text.charAt(port))) {
+                    port++;
+                }
+                if (port > end + 1) {
+                    end = port;
+                }
+            }
+            if (end < length && isPathStart(text.charAt(end))) {
+                while (end < length && isUrlChar(text.charAt(end))) {
+                    end++;
+                }
+                while (end > hostEnd && isTrailingPunctuation(text.charAt(end - 1))) {
+                    end--;
+                }
+            }
+            
+            if (urls == null) {
+                urls = new ArrayList<>(2);
+                hosts = new ArrayList<>(2);
+            }
+            String host = text.substring(hostStart, hostEnd).toLowerCase(Locale.ROOT);
+            if (source == null) {
+                source = VideoSource.ofHost(host);
+                sourceIndex = urls.size();
+            }
+            urls.add(text.substring(start, end));
+            hosts.add(host);
+            return end;
+        }
+        
+        /**
+         * 读取从 start 开始的字母数字串，两侧均为分隔符时才可能是口令，遇到链接开头时停下交给链接处理
+         *
+         * @return 字母数字串之后的位置
+         */
+        private int word(int start) {
+            int length = text.length();
+            int end = start;
+            boolean letter = false;
+            boolean digit = false;
+            while (end < length) {
+                char c = text.charAt(end);
+                if (!isAsciiLetterOrDigit(c) || (c == 'h' && schemeEnd(text, end) > 0)) {
+                    break;
+                }
+                letter |= !isDigit(c);
+                digit |= isDigit(c);
+                end++;
+            }
+            int codeLength = end - start;
+            if (letter && digit && codeLength >= MIN_CODE_LENGTH && codeLength <= MAX_CODE_LENGTH
+                    && (end == length || isDelimiter(text.charAt(end)))) {
+                if (shareCodes == null) {
+                    shareCodes = new ArrayList<>(1);
+                }
+                shareCodes.add(text.substring(start, end));
+            }
+            return end;
+        }
+        
+        private ShareText result() {
+            if (urls == null && shareCodes == null) {
+                return EMPTY;
+            }
+            List<String> urlList = urls != null ? Collections.unmodifiableList(urls) : List.of();
+            List<String> codeList = shareCodes != null ? Collections.unmodifiableList(shareCodes) : List.of();
+            int urlIndex = source != null ? sourceIndex : (urls != null ? 0 : -1);
+            return new ShareText(urlList, hosts != null ? hosts : List.of(), codeList, source, urlIndex);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.yby6.mcp.server.parser;
+
+/**
+ * 上游平台拒绝服务
+ * 返回限流状态码或跳转到验证码页面，说明请求过于频繁，与页面结构变化等解析失败区分开，
+ * 由 {@link com.yby6.mcp.server.service.UpstreamGuard} 据此降低该平台的请求速率
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public class UpstreamBlockedException extends Exception {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public UpstreamBlockedException(String message) {
+        super(message);
+    }
+}
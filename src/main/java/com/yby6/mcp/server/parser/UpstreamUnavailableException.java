@@ -0,0 +1,18 @@
+package com.yby6.mcp.server.parser;
+
+/**
+ * 上游平台服务异常
+ * 页面请求返回5xx状态码，说明平台自身出错或过载，与页面结构变化等解析失败区分开，
+ * 由 {@link com.yby6.mcp.server.service.UpstreamGuard} 计入该平台的连续失败次数
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public class UpstreamUnavailableException extends Exception {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public UpstreamUnavailableException(String message) {
+        super(message);
+    }
+}
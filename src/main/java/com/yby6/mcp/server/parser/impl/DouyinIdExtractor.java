@@ -0,0 +1,140 @@
+package com.yby6.mcp.server.parser.impl;
+
+/**
+ * 抖音视频ID单遍扫描提取器
+ * 以两个游标（字段名后缀 _id" 与 /video/ 路径）按文档顺序一次向前扫描页面内容，
+ * 同时查找 "aweme_id" / "item_id" / "video_id" 字段和路径中的ID，
+ * 结果优先级与原先逐个正则匹配一致：aweme_id > item_id > video_id > 路径ID
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public final class DouyinIdExtractor {
+    
+    // 字段名公共后缀，扫描时先定位后缀再回看前缀
+    private static final String KEY_SUFFIX = "_id\"";
+    // 字段名前缀（按优先级排列）
+    private static final String[] KEY_PREFIXES = {"\"aweme", "\"item", "\"video"};
+    private static final String VIDEO_PATH = "/video/";
+    // 路径ID最小长度
+    private static final int MIN_PATH_ID_LENGTH = 7;
+    // 路径ID的优先级排在所有字段之后
+    private static final int PATH_PRIORITY = KEY_PREFIXES.length;
+    
+    private DouyinIdExtractor() {
+    }
+    
+    /**
+     * 从页面内容中提取视频ID
+     *
+     * @param content 页面内容
+     * @return 视频ID，没有找到时返回null
+     */
+    public static String extract(String content) {
+        if (content == null || content.isEmpty()) {
+            return null;
+        }
+        
+        String best = null;
+        int bestPriority = Integer.MAX_VALUE;
+        
+        // String.indexOf 为JVM内建优化，游标之间按位置先后交替推进，整体只向前扫描一次
+        int keyAt = content.indexOf(KEY_SUFFIX);
+        int pathAt = content.indexOf(VIDEO_PATH);
+        
+        while (keyAt >= 0 || pathAt >= 0) {
+            if (keyAt >= 0 && (pathAt < 0 || keyAt < pathAt)) {
+                int priority = keyPriority(content, keyAt);
+                if (priority < bestPriority) {
+                    String value = readQuotedValue(content, keyAt + KEY_SUFFIX.length());
+                    if (value != null) {
+                        if (priority == 0) {
+                            // 最高优先级，无需继续扫描
+                            return value;
+                        }
+                        best = value;
+                        bestPriority = priority;
+                        // 已找到字段，路径ID不再需要
+                        pathAt = -1;
+                    }
+                }
+                keyAt = content.indexOf(KEY_SUFFIX, keyAt + 1);
+            } else {
+                String pathId = readPathId(content, pathAt + VIDEO_PATH.length());
+                if (pathId != null) {
+                    best = pathId;
+                    bestPriority = PATH_PRIORITY;
+                    // 只取第一个路径ID
+                    pathAt = -1;
+                } else {
+                    pathAt = content.indexOf(VIDEO_PATH, pathAt + 1);
+                }
+            }
+        }
+        
+        return best;
+    }
+    
+    /**
+     * 根据后缀位置回看字段名前缀，返回字段优先级，不是目标字段时返回最大值
+     */
+    private static int keyPriority(String content, int suffixAt) {
+        for (int k = 0; k < KEY_PREFIXES.length; k++) {
+            String prefix = KEY_PREFIXES[k];
+            int start = suffixAt - prefix.length();
+            if (start >= 0 && content.startsWith(prefix, start)) {
+                return k;
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+    
+    /**
+     * 读取路径中至少7位的字母数字ID
+     */
+    private static String readPathId(String content, int start) {
+        int end = start;
+        while (end < content.length() && isAlphanumeric(content.charAt(end))) {
+            end++;
+        }
+        return end - start >= MIN_PATH_ID_LENGTH ? content.substring(start, end) : null;
+    }
+    
+    /**
+     * 读取 \s*:\s*"value" 形式的字段值
+     */
+    private static String readQuotedValue(String content, int pos) {
+        int length = content.length();
+        pos = skipWhitespace(content, pos);
+        if (pos >= length || content.charAt(pos) != ':') {
+            return null;
+        }
+        pos = skipWhitespace(content, pos + 1);
+        if (pos >= length || content.charAt(pos) != '"') {
+            return null;
+        }
+        
+        int start = pos + 1;
+        int end = content.indexOf('"', start);
+        if (end <= start) {
+            return null;
+        }
+        return content.substring(start, end);
+    }
+    
+    private static int skipWhitespace(String content, int pos) {
+        while (pos < content.length() && isWhitespace(content.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+    
+    // 与正则 \s 保持一致
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u000B';
+    }
+    
+    private static boolean isAlphanumeric(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+}
@@ -1,18 +1,24 @@
 package com.yby6.mcp.server.parser.impl;
 
-import cn.hutool.http.HttpRequest;
-import cn.hutool.http.HttpResponse;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.yby6.mcp.server.model.ImgInfo;
 import com.yby6.mcp.server.model.VideoAuthor;
 import com.yby6.mcp.server.model.VideoInfo;
+import com.yby6.mcp.server.model.VideoSource;
 import com.yby6.mcp.server.parser.BaseParser;
+import com.yby6.mcp.server.utils.AsyncUtil;
+import com.yby6.mcp.server.utils.JsonPathFilter;
 import com.yby6.mcp.server.utils.JsonUtil;
+import com.yby6.mcp.server.utils.PageStateReader;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.noear.solon.annotation.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -23,44 +29,91 @@ import java.util.regex.Pattern;
  * @date 2025/07/16
  */
 @Slf4j
+@Component
 public class DouyinParser extends BaseParser {
     
     private static final String USER_AGENT = "Mozilla/5.0 (iPhone; CPU iPhone OS 17_2 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) EdgiOS/121.0.2277.107 Version/17.0 Mobile/15E148 Safari/604.1";
-    // 视频信息提取正则表达式
-    private static final Pattern ROUTER_DATA_PATTERN = Pattern.compile("window\\._ROUTER_DATA\\s*=\\s*(.*?)</script>", Pattern.DOTALL);
+    // 页面内嵌的视频信息
+    private static final String ROUTER_DATA_MARKER = "window._ROUTER_DATA";
+    // ROUTER_DATA中实际用到的字段，其余子树解析时直接跳过
+    public static final JsonPathFilter ROUTER_DATA_FILTER = JsonPathFilter.of(
+            "/loaderData/*/videoInfoRes/item_list/0/desc",
+            "/loaderData/*/videoInfoRes/item_list/0/images/*/url_list/0",
+            "/loaderData/*/videoInfoRes/item_list/0/video/play_addr/url_list/0",
+            "/loaderData/*/videoInfoRes/item_list/0/video/bit_rate_audio/0/audio_meta/url_list/main_url",
+            "/loaderData/*/videoInfoRes/item_list/0/video/origin_cover/url_list/0",
+            "/loaderData/*/videoInfoRes/item_list/0/video/cover/url_list/0",
+            "/loaderData/*/videoInfoRes/item_list/0/author/uid",
+            "/loaderData/*/videoInfoRes/item_list/0/author/nickname",
+            "/loaderData/*/videoInfoRes/item_list/0/author/avatar_larger/url_list/0"
+    );
+    // 标准链接中的视频ID
+    private static final Pattern CANONICAL_ID_PATTERN = Pattern.compile("douyin\\.com/(?:share/)?video/(\\d+)");
+    // 从分享URL中强制提取视频ID
+    private static final Pattern[] URL_ID_PATTERNS = {
+            Pattern.compile("v\\.douyin\\.com/([a-zA-Z0-9]+)"),
+            Pattern.compile("douyin\\.com/video/([a-zA-Z0-9]+)"),
+            Pattern.compile("douyin\\.com/share/video/([a-zA-Z0-9]+)"),
+            Pattern.compile("/([a-zA-Z0-9]{7,})/\\?"),
+            Pattern.compile("/([a-zA-Z0-9]{7,})/?$"),
+    };
+    // 从URL路径中提取视频ID的常见格式
+    private static final Pattern[] PATH_ID_PATTERNS = {
+            Pattern.compile("(?:video|note|share)/([a-zA-Z0-9]{7,})"),
+            Pattern.compile("/([a-zA-Z0-9]{11})"),
+            Pattern.compile("aweme_id=([a-zA-Z0-9]+)"),
+            Pattern.compile("item_id=([a-zA-Z0-9]+)")
+    };
+    private static final Pattern VIDEO_ID_FORMAT_PATTERN = Pattern.compile("[a-zA-Z0-9]{7,}");
     // 非法文件名字符正则表达式
     private static final Pattern ILLEGAL_FILENAME_PATTERN = Pattern.compile("[\\\\/:*?\"<>|]");
+    // 页面请求头（Accept-Encoding由HTTP客户端自动处理）
+    private static final Map<String, String> PAGE_HEADERS = Map.of(
+            "User-Agent", USER_AGENT,
+            "Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8",
+            "Accept-Language", "zh-CN,zh;q=0.8,en;q=0.6",
+            "Upgrade-Insecure-Requests", "1"
+    );
     
     
+    @Override
+    public VideoSource getSource() {
+        return VideoSource.DOUYIN;
+    }
+    
     @Override
     public VideoInfo parseShareUrl(String shareUrl) throws Exception {
-        try {
-            log.info("开始解析抖音分享链接: {}", shareUrl);
-            
-            // 1. 首先尝试从文本中提取URL
-            String extractedUrl = extractUrlFromText(shareUrl);
-            if (StringUtils.isNotBlank(extractedUrl)) {
-                shareUrl = extractedUrl;
-                log.info("从文本中提取到URL: {}", shareUrl);
-            }
-            
-            // 2. 发送请求获取重定向后的URL，提取视频ID
-            String videoId = extractVideoIdFromRedirect(extractedUrl);
-            log.info("提取到视频ID: {}", videoId);
-            
-            // 3. 构建标准分享链接
-            String standardShareUrl = "https://www.iesdouyin.com/share/video/" + videoId;
-            
-            // 4. 获取视频页面内容
-            String pageContent = getPageContent(standardShareUrl);
-            
-            // 5. 解析视频信息
-            return parseVideoInfo(pageContent, videoId);
-            
-        } catch (Exception e) {
-            log.error("解析抖音分享链接失败", e);
-            throw new Exception("解析抖音分享链接失败: " + e.getMessage(), e);
+        return AsyncUtil.join(parseShareUrlAsync(shareUrl));
+    }
+    
+    @Override
+    public CompletableFuture<VideoInfo> parseShareUrlAsync(String shareUrl) {
+        log.info("开始解析抖音分享链接: {}", shareUrl);
+        
+        // 1. 首先尝试从文本中提取URL
+        String extractedUrl = extractUrlFromText(shareUrl);
+        if (StringUtils.isNotBlank(extractedUrl)) {
+            log.info("从文本中提取到URL: {}", extractedUrl);
         }
+        
+        // 2. 发送请求获取重定向后的URL，提取视频ID
+        return extractVideoIdFromRedirect(extractedUrl)
+                .thenCompose(videoId -> {
+                    log.info("提取到视频ID: {}", videoId);
+                    
+                    // 3. 构建标准分享链接
+                    String standardShareUrl = "https://www.iesdouyin.com/share/video/" + videoId;
+                    
+                    // 4. 获取视频页面中的ROUTER_DATA
+                    return fetchRouterData(standardShareUrl)
+                            // 5. 解析视频信息
+                            .thenCompose(AsyncUtil.checked(routerData -> parseVideoInfo(routerData, videoId)));
+                })
+                .exceptionallyCompose(e -> {
+                    Throwable cause = AsyncUtil.unwrap(e);
+                    log.error("解析抖音分享链接失败", cause);
+                    return CompletableFuture.failedFuture(new Exception("解析抖音分享链接失败: " + cause.getMessage(), cause));
+                });
     }
     
     @Override
@@ -70,53 +123,57 @@ public class DouyinParser extends BaseParser {
         return parseShareUrl(shareUrl);
     }
     
+    @Override
+    public String extractCanonicalId(String url) {
+        if (StringUtils.isBlank(url)) {
+            return null;
+        }
+        Matcher matcher = CANONICAL_ID_PATTERN.matcher(url);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+    
     /**
      * 从分享URL中提取视频ID
+     * 只解析短链接的跳转地址，跳转地址中已包含视频ID时不再请求落地页
      */
-    private String extractVideoIdFromRedirect(String shareUrl) {
-        try {
-            log.info("开始从分享URL提取视频ID: {}", shareUrl);
-            
-            // 发送HTTP请求跟踪重定向，然后从最终URL提取
-            try (HttpResponse response = HttpRequest.get(shareUrl)
-                    .header("User-Agent", USER_AGENT)
-                    .timeout(10000)
-                    .setFollowRedirects(true)
-                    .execute()) {
-                
-                if (response.isOk()) {
-                    // 尝试从响应中获取当前URL信息
-                    String responseBody = response.body();
-                    
-                    // 尝试从响应内容中找到视频ID
-                    if (StringUtils.isNotBlank(responseBody)) {
-                        String contentId = extractVideoIdFromContent(responseBody);
-                        if (StringUtils.isNotBlank(contentId)) {
-                            log.info("从响应内容提取到视频ID: {}", contentId);
-                            return contentId;
+    private CompletableFuture<String> extractVideoIdFromRedirect(String shareUrl) {
+        log.info("开始从分享URL提取视频ID: {}", shareUrl);
+        
+        Map<String, String> headers = Map.of("User-Agent", USER_AGENT);
+        return redirectResolver.resolveAsync(shareUrl, headers, url -> extractCanonicalId(url) != null)
+                .thenCompose(targetUrl -> {
+                    String redirectId = extractCanonicalId(targetUrl);
+                    if (redirectId != null) {
+                        log.info("从跳转地址提取到视频ID: {}", redirectId);
+                        return CompletableFuture.completedFuture(redirectId);
+                    }
+                    // 跳转地址中没有视频ID时，读取落地页内容提取
+                    return httpTransport.getAsync(targetUrl, headers, 10000, (status, finalUrl, body) -> {
+                        if (status < 200 || status >= 300) {
+                            return null;
                         }
+                        return extractVideoIdFromContent(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+                    });
+                })
+                .handle((contentId, httpEx) -> {
+                    if (httpEx != null) {
+                        log.warn("HTTP请求失败，使用备用方法: {}", AsyncUtil.unwrap(httpEx).getMessage());
+                    } else if (StringUtils.isNotBlank(contentId)) {
+                        return contentId;
                     }
-                }
-            } catch (Exception httpEx) {
-                log.warn("HTTP请求失败，使用备用方法: {}", httpEx.getMessage());
-            }
-            
-            // 如果以上都失败，使用正则表达式从原始URL中强制提取
-            String regexId = extractIdWithRegex(shareUrl);
-            if (StringUtils.isNotBlank(regexId)) {
-                log.info("使用正则表达式提取到视频ID: {}", regexId);
-                return regexId;
-            }
-            
-            // 最后的降级处理
-            String fallbackId = "unknown_" + System.currentTimeMillis();
-            log.warn("所有方法都失败，使用降级ID: {}", fallbackId);
-            return fallbackId;
-            
-        } catch (Exception e) {
-            log.error("提取视频ID失败: {}", e.getMessage(), e);
-            return "error_" + System.currentTimeMillis();
-        }
+                    
+                    // 如果以上都失败，使用正则表达式从原始URL中强制提取
+                    String regexId = extractIdWithRegex(shareUrl);
+                    if (StringUtils.isNotBlank(regexId)) {
+                        log.info("使用正则表达式提取到视频ID: {}", regexId);
+                        return regexId;
+                    }
+                    
+                    // 最后的降级处理
+                    String fallbackId = "unknown_" + System.currentTimeMillis();
+                    log.warn("所有方法都失败，使用降级ID: {}", fallbackId);
+                    return fallbackId;
+                });
     }
     
     /**
@@ -127,25 +184,12 @@ public class DouyinParser extends BaseParser {
             return null;
         }
         
-        // 尝试从HTML内容中提取视频ID
-        Pattern[] patterns = {
-                Pattern.compile("\"aweme_id\"\\s*:\\s*\"([^\"]+)\""),
-                Pattern.compile("\"item_id\"\\s*:\\s*\"([^\"]+)\""),
-                Pattern.compile("\"video_id\"\\s*:\\s*\"([^\"]+)\""),
-                Pattern.compile("/video/([a-zA-Z0-9]{7,})"),
-                Pattern.compile("/share/video/([a-zA-Z0-9]{7,})"),
-        };
-        
-        for (Pattern pattern : patterns) {
-            Matcher matcher = pattern.matcher(content);
-            if (matcher.find()) {
-                String id = matcher.group(1);
-                log.debug("从内容中提取到ID: {}", id);
-                return id;
-            }
+        // 单遍扫描提取视频ID
+        String id = DouyinIdExtractor.extract(content);
+        if (id != null) {
+            log.debug("从内容中提取到ID: {}", id);
         }
-        
-        return null;
+        return id;
     }
     
     /**
@@ -157,15 +201,7 @@ public class DouyinParser extends BaseParser {
         }
         
         // 强制提取模式
-        Pattern[] patterns = {
-                Pattern.compile("v\\.douyin\\.com/([a-zA-Z0-9]+)"),
-                Pattern.compile("douyin\\.com/video/([a-zA-Z0-9]+)"),
-                Pattern.compile("douyin\\.com/share/video/([a-zA-Z0-9]+)"),
-                Pattern.compile("/([a-zA-Z0-9]{7,})/\\?"),
-                Pattern.compile("/([a-zA-Z0-9]{7,})/?$"),
-        };
-        
-        for (Pattern pattern : patterns) {
+        for (Pattern pattern : URL_ID_PATTERNS) {
             Matcher matcher = pattern.matcher(url);
             if (matcher.find()) {
                 String id = matcher.group(1);
@@ -194,21 +230,14 @@ public class DouyinParser extends BaseParser {
                 String lastPart = parts[parts.length - 1];
                 
                 // 检查是否是有效的视频ID格式
-                if (lastPart.matches("[a-zA-Z0-9]{7,}")) {
+                if (VIDEO_ID_FORMAT_PATTERN.matcher(lastPart).matches()) {
                     log.debug("从URL路径提取到ID: {}", lastPart);
                     return lastPart;
                 }
             }
             
             // 尝试用正则表达式提取常见格式
-            Pattern[] patterns = {
-                    Pattern.compile("(?:video|note|share)/([a-zA-Z0-9]{7,})"),
-                    Pattern.compile("/([a-zA-Z0-9]{11})"),
-                    Pattern.compile("aweme_id=([a-zA-Z0-9]+)"),
-                    Pattern.compile("item_id=([a-zA-Z0-9]+)")
-            };
-            
-            for (Pattern pattern : patterns) {
+            for (Pattern pattern : PATH_ID_PATTERNS) {
                 Matcher matcher = pattern.matcher(url);
                 if (matcher.find()) {
                     String id = matcher.group(1);
@@ -225,54 +254,42 @@ public class DouyinParser extends BaseParser {
     }
     
     /**
-     * 获取视频页面内容
-     * 使用hutool发送HTTP请求
+     * 获取视频页面中的ROUTER_DATA
+     * 在响应流上直接定位数据脚本并按字段路径过滤解析，脚本结束后不再读取页面剩余内容
      */
-    private String getPageContent(String url) throws Exception {
-        try {
-            log.info("正在获取页面内容: {}", url);
-            
-            String content = HttpRequest.get(url)
-                    .header("User-Agent", USER_AGENT)
-                    .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8")
-                    .header("Accept-Language", "zh-CN,zh;q=0.8,en;q=0.6")
-                    .header("Accept-Encoding", "gzip, deflate")
-                    .header("Connection", "keep-alive")
-                    .header("Upgrade-Insecure-Requests", "1")
-                    .timeout(15000)
-                    .execute()
-                    .body();
-            
-            if (StringUtils.isBlank(content)) {
-                throw new Exception("获取到的页面内容为空");
-            }
-            
-            log.info("成功获取页面内容，长度: {}", content.length());
-            return content;
-            
-        } catch (Exception e) {
-            log.error("获取页面内容失败: {}", url, e);
-            throw new Exception("获取页面内容失败: " + e.getMessage(), e);
-        }
+    private CompletableFuture<JsonNode> fetchRouterData(String url) {
+        log.info("正在获取页面内容: {}", url);
+        
+        return hedgedFetcher.getAsync(getSource().getCode(), url, PAGE_HEADERS, 15000, (status, finalUrl, body) -> {
+                    checkUpstream(status, finalUrl);
+                    PageStateReader state = PageStateReader.open(body, ROUTER_DATA_MARKER);
+                    if (state == null) {
+                        throw new Exception("从HTML中解析视频信息失败");
+                    }
+                    
+                    JsonNode rootNode = JsonUtil.readFiltered(JsonUtil.getObjectMapper(), state, ROUTER_DATA_FILTER);
+                    if (rootNode == null || rootNode.isMissingNode()) {
+                        throw new Exception("获取到的页面数据为空");
+                    }
+                    
+                    log.info("成功获取页面数据，读取字节数: {}", state.getBytesRead());
+                    return rootNode;
+                })
+                .exceptionallyCompose(e -> {
+                    Throwable cause = AsyncUtil.unwrap(e);
+                    log.error("获取页面内容失败: {}", url, cause);
+                    return CompletableFuture.failedFuture(new Exception("获取页面内容失败: " + cause.getMessage(), cause));
+                });
     }
     
     /**
      * 解析视频信息
      */
-    private VideoInfo parseVideoInfo(String pageContent, String videoId) throws Exception {
+    private VideoInfo parseVideoInfo(JsonNode rootNode, String videoId) throws Exception {
         try {
             VideoInfo videoInfo = new VideoInfo();
             
-            // 1. 提取ROUTER_DATA
-            Matcher matcher = ROUTER_DATA_PATTERN.matcher(pageContent);
-            if (!matcher.find()) {
-                throw new Exception("从HTML中解析视频信息失败");
-            }
-            
-            String jsonData = matcher.group(1).trim();
-            JsonNode rootNode = JsonUtil.parseJson(jsonData);
-            
-            // 2. 查找视频信息
+            // 1. 查找视频信息
             JsonNode loaderData = rootNode.get("loaderData");
             if (loaderData == null) {
                 throw new Exception("未找到loaderData");
@@ -304,7 +321,7 @@ public class DouyinParser extends BaseParser {
                 throw new Exception("无法从JSON中解析视频或图集信息，尝试的keys: " + String.join(", ", possibleKeys));
             }
             
-            // 3. 提取视频详细信息
+            // 2. 提取视频详细信息
             JsonNode itemList = videoInfoRes.get("item_list");
             if (itemList == null || !itemList.isArray() || itemList.isEmpty()) {
                 throw new Exception("未找到视频项目列表");
@@ -312,7 +329,7 @@ public class DouyinParser extends BaseParser {
             
             JsonNode videoItem = itemList.get(0);
             
-            // 4. 获取图集图片地址
+            // 3. 获取图集图片地址
             List<ImgInfo> images = new ArrayList<>();
             JsonNode imagesNode = videoItem.get("images");
             if (imagesNode != null && imagesNode.isArray()) {
@@ -327,7 +344,7 @@ public class DouyinParser extends BaseParser {
                 }
             }
             
-            // 5. 获取视频播放地址
+            // 4. 获取视频播放地址
             String videoUrl = "";
             JsonNode video = videoItem.get("video");
             if (video != null) {
@@ -355,16 +372,24 @@ public class DouyinParser extends BaseParser {
                 }
             }
             
-            // 6. 获取视频标题
+            // 纯音频流（部分视频以DASH方式单独提供音轨）
+            if (video != null && StringUtils.isNotBlank(videoUrl)) {
+                String audioUrl = video.path("bit_rate_audio").path(0).path("audio_meta").path("url_list").path("main_url").asText("");
+                if (StringUtils.isNotBlank(audioUrl)) {
+                    videoInfo.setAudioUrl(audioUrl);
+                }
+            }
+            
+            // 5. 获取视频标题
             String title = videoItem.has("desc") ? videoItem.get("desc").asText() : "";
             if (StringUtils.isBlank(title)) {
                 title = "douyin_" + videoId;
             }
             
-            // 7. 清理文件名中的非法字符
+            // 6. 清理文件名中的非法字符
             title = ILLEGAL_FILENAME_PATTERN.matcher(title).replaceAll("_");
             
-            // 8. 获取作者信息
+            // 7. 获取作者信息
             JsonNode author = videoItem.get("author");
             VideoAuthor videoAuthor = new VideoAuthor();
             if (author != null) {
@@ -374,7 +399,7 @@ public class DouyinParser extends BaseParser {
                         author.get("avatar_larger").get("url_list").get(0).asText() : "");
             }
             
-            // 9. 获取封面信息
+            // 8. 获取封面信息
             String coverUrl = "";
             if (video != null && video.has("origin_cover") && video.get("origin_cover").has("url_list")) {
                 JsonNode coverUrlList = video.get("origin_cover").get("url_list");
@@ -389,7 +414,8 @@ public class DouyinParser extends BaseParser {
                 }
             }
             
-            // 10. 构建返回对象
+            // 9. 构建返回对象
+            videoInfo.setVideoId(videoId);
             videoInfo.setTitle(title);
             videoInfo.setVideoUrl(videoUrl);
             videoInfo.setCoverUrl(coverUrl);
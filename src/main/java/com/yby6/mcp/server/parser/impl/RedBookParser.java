@@ -1,18 +1,24 @@
 package com.yby6.mcp.server.parser.impl;
 
-import cn.hutool.http.HttpRequest;
-import cn.hutool.http.HttpResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.yby6.mcp.server.model.VideoInfo;
+import com.yby6.mcp.server.model.VideoSource;
 import com.yby6.mcp.server.model.VideoAuthor;
 import com.yby6.mcp.server.model.ImgInfo;
 import com.yby6.mcp.server.parser.BaseParser;
+import com.yby6.mcp.server.utils.AsyncUtil;
+import com.yby6.mcp.server.utils.JsonPathFilter;
+import com.yby6.mcp.server.utils.JsonUtil;
+import com.yby6.mcp.server.utils.PageStateReader;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.noear.solon.annotation.Component;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 
@@ -24,10 +30,32 @@ import java.util.regex.Matcher;
  * @date 2025/07/16
  */
 @Slf4j
+@Component
 public class RedBookParser extends BaseParser {
     
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private final ObjectMapper yamlMapper = new ObjectMapper(new YAMLFactory());
+    // 页面初始化数据
+    private static final String INITIAL_STATE_MARKER = "window.__INITIAL_STATE__";
+    // 页面初始化数据及备用的数据结构，按文档中先出现者匹配
+    private static final String[] STATE_MARKERS = {
+        INITIAL_STATE_MARKER,
+        "window._INITIAL_STATE_",
+        "window.__NUXT__",
+        "window.__APOLLO_STATE__"
+    };
+    // 页面初始化数据中实际用到的字段，其余子树解析时直接跳过
+    public static final JsonPathFilter NOTE_FILTER = JsonPathFilter.of(
+        "/note/currentNoteId",
+        "/note/noteDetailMap/*/note/title",
+        "/note/noteDetailMap/*/note/video/media/stream/h264/0/masterUrl",
+        "/note/noteDetailMap/*/note/imageList/*/urlDefault",
+        "/note/noteDetailMap/*/note/imageList/*/livePhoto",
+        "/note/noteDetailMap/*/note/imageList/*/stream/h264/0/masterUrl",
+        "/note/noteDetailMap/*/note/user/userId",
+        "/note/noteDetailMap/*/note/user/nickname",
+        "/note/noteDetailMap/*/note/user/avatar"
+    );
+    // 完整链接中的笔记ID
+    private static final Pattern NOTE_ID_PATTERN = Pattern.compile("xiaohongshu\\.com/(?:discovery/item|explore)/([0-9a-zA-Z]{24})");
     private static final String[] WINDOWS_USER_AGENTS = {
         "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36",
         "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/119.0.0.0 Safari/537.36",
@@ -38,22 +66,36 @@ public class RedBookParser extends BaseParser {
         "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/119.0.0.0 Safari/537.36 Edg/119.0.0.0"
     };
     
+    // 页面数据解析统计：宽松JSON成功次数、退回YAML次数、全部失败次数
+    private final LongAdder lenientParses = new LongAdder();
+    private final LongAdder yamlFallbacks = new LongAdder();
+    private final LongAdder parseFailures = new LongAdder();
+    
     /**
      * 获取随机Windows User-Agent
      */
     private String getRandomWindowsUserAgent() {
-        Random random = new Random();
-        return WINDOWS_USER_AGENTS[random.nextInt(WINDOWS_USER_AGENTS.length)];
+        return WINDOWS_USER_AGENTS[ThreadLocalRandom.current().nextInt(WINDOWS_USER_AGENTS.length)];
+    }
+    
+    @Override
+    public VideoSource getSource() {
+        return VideoSource.REDBOOK;
     }
     
     @Override
     public VideoInfo parseShareUrl(String shareUrl) throws Exception {
+        return AsyncUtil.join(parseShareUrlAsync(shareUrl));
+    }
+    
+    @Override
+    public CompletableFuture<VideoInfo> parseShareUrlAsync(String shareUrl) {
         log.info("开始解析小红书分享链接: {}", shareUrl);
         
         // 从输入文本中提取真正的URL
         String extractedUrl = extractUrlFromText(shareUrl);
         if (StringUtils.isBlank(extractedUrl)) {
-            throw new Exception("无法从输入文本中提取有效的URL: " + shareUrl);
+            return CompletableFuture.failedFuture(new Exception("无法从输入文本中提取有效的URL: " + shareUrl));
         }
         
         log.info("提取到的URL: {}", extractedUrl);
@@ -64,8 +106,6 @@ public class RedBookParser extends BaseParser {
         headers.put("User-Agent", randomUserAgent);
         headers.put("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8");
         headers.put("Accept-Language", "zh-CN,zh;q=0.9,en;q=0.8");
-        headers.put("Accept-Encoding", "gzip, deflate, br");
-        headers.put("Connection", "keep-alive");
         headers.put("Upgrade-Insecure-Requests", "1");
         headers.put("Sec-Fetch-Dest", "document");
         headers.put("Sec-Fetch-Mode", "navigate");
@@ -73,83 +113,79 @@ public class RedBookParser extends BaseParser {
         
         log.info("使用User-Agent: {}", randomUserAgent);
         
-        // 发送GET请求，跟随重定向
-        HttpResponse response = HttpRequest.get(extractedUrl)
-                .headerMap(headers, true)
-                .timeout(15000)
-                .setFollowRedirects(true)
-                .execute();
-        
-        if (!response.isOk()) {
-            throw new Exception("获取小红书页面失败: " + response.getStatus());
-        }
-        
-        String responseBody = response.body();
-        if (StringUtils.isBlank(responseBody)) {
-            throw new Exception("页面内容为空");
-        }
-        
-        log.debug("页面内容长度: {} 字符", responseBody.length());
-        
-        // 使用正则表达式提取页面中的JSON数据
-        Pattern pattern = Pattern.compile("window\\.__INITIAL_STATE__\\s*=\\s*(.*?)</script>", Pattern.DOTALL);
-        Matcher matcher = pattern.matcher(responseBody);
+        // 短链接（xhslink.com）先只解析跳转地址，结果有缓存，同一短链接再次解析时少一次跳转；解析失败时仍由页面请求跟随重定向
+        CompletableFuture<String> pageUrl = redirectResolver
+                .resolveAsync(extractedUrl, Map.of("User-Agent", randomUserAgent), url -> extractCanonicalId(url) != null)
+                .exceptionally(e -> {
+                    log.warn("解析短链接跳转失败，直接请求原链接: {}", AsyncUtil.unwrap(e).getMessage());
+                    return extractedUrl;
+                });
         
-        if (!matcher.find()) {
-            // 如果找不到 __INITIAL_STATE__，尝试查找其他可能的数据结构
-            log.warn("未找到 window.__INITIAL_STATE__，尝试查找其他数据结构");
-            
-            // 尝试查找其他可能的初始化数据
-            Pattern[] alternativePatterns = {
-                Pattern.compile("window\\._INITIAL_STATE_\\s*=\\s*(.*?)</script>", Pattern.DOTALL),
-                Pattern.compile("window\\.__NUXT__\\s*=\\s*(.*?)</script>", Pattern.DOTALL),
-                Pattern.compile("window\\.__APOLLO_STATE__\\s*=\\s*(.*?)</script>", Pattern.DOTALL)
-            };
-            
-            for (Pattern altPattern : alternativePatterns) {
-                Matcher altMatcher = altPattern.matcher(responseBody);
-                if (altMatcher.find()) {
-                    log.info("找到替代数据结构: {}", altPattern.pattern());
-                    matcher = altMatcher;
-                    break;
+        // 发送GET请求，跟随重定向；直接在响应流上定位页面初始化数据并按宽松JSON解析，读到脚本结束即停止下载。
+        // 含有其他JS字面量时重新请求页面，改用YAML解析（很少发生，由 yamlFallbacks 计数）
+        return pageUrl.thenCompose(url -> fetchNoteState(url, headers, false).thenCompose(jsonData -> {
+            if (jsonData != null) {
+                lenientParses.increment();
+                return CompletableFuture.completedFuture(jsonData);
+            }
+            yamlFallbacks.increment();
+            return fetchNoteState(url, headers, true).whenComplete((yamlData, e) -> {
+                if (e != null) {
+                    parseFailures.increment();
                 }
+            });
+        })).thenCompose(AsyncUtil.checked(this::parseNoteState));
+    }
+    
+    /**
+     * 请求页面并在响应流上解析页面初始化数据，只保留笔记相关字段
+     * 个别节点响应很慢时对冲请求，取先返回的页面
+     *
+     * @param yaml 是否按YAML解析；宽松JSON解析失败时返回null，由调用方改用YAML重新请求
+     */
+    private CompletableFuture<JsonNode> fetchNoteState(String url, Map<String, String> headers, boolean yaml) {
+        return hedgedFetcher.getAsync(getSource().getCode(), url, headers, 15000, (status, finalUrl, body) -> {
+            // 触发风控时跳转到验证码页面，页面中没有初始化数据
+            checkUpstream(status, finalUrl);
+            if (status < 200 || status >= 300) {
+                throw new Exception("获取小红书页面失败: " + status);
             }
             
-            if (!matcher.find()) {
-                // 记录页面内容的关键部分用于调试
-                log.error("解析失败，页面可能已改版。页面开头内容: {}",
-                    responseBody.length() > 500 ? responseBody.substring(0, 500) : responseBody);
+            PageStateReader state = PageStateReader.open(body, STATE_MARKERS);
+            if (state == null) {
+                log.error("解析失败，页面可能已改版: {}", finalUrl);
                 throw new Exception("parse video json info from html fail - 页面结构可能已变更");
             }
-        }
-        
-        String jsonText = matcher.group(1).trim();
-        log.debug("提取到的JSON长度: {} 字符", jsonText.length());
-        
-        // 移除结尾的分号
-        if (jsonText.endsWith(";")) {
-            jsonText = jsonText.substring(0, jsonText.length() - 1);
-        }
-        
-        // 使用YAML解析器解析（因为Python版本使用yaml.safe_load）
-        JsonNode jsonData;
-        try {
-            jsonData = yamlMapper.readTree(jsonText);
-            log.debug("YAML解析成功");
-        } catch (Exception e) {
-            // 如果YAML解析失败，尝试使用JSON解析
-            log.warn("YAML解析失败，尝试JSON解析: {}", e.getMessage());
+            if (!INITIAL_STATE_MARKER.equals(state.getMatchedMarker())) {
+                // 如果找不到 __INITIAL_STATE__，使用其他可能的数据结构
+                log.info("找到替代数据结构: {}", state.getMatchedMarker());
+            }
+            
+            if (yaml) {
+                try {
+                    JsonNode jsonData = JsonUtil.readFiltered(JsonUtil.getYamlMapper(), state, NOTE_FILTER);
+                    log.debug("YAML解析成功，读取字节数: {}", state.getBytesRead());
+                    return jsonData;
+                } catch (JsonProcessingException e) {
+                    log.error("YAML解析也失败: {}, 页面: {}", e.getMessage(), finalUrl);
+                    throw new Exception("JSON/YAML解析均失败: " + e.getMessage());
+                }
+            }
             try {
-                jsonData = objectMapper.readTree(jsonText);
-                log.debug("JSON解析成功");
-            } catch (Exception jsonEx) {
-                log.error("JSON解析也失败: {}", jsonEx.getMessage());
-                log.error("无法解析的JSON片段: {}",
-                    jsonText.length() > 200 ? jsonText.substring(0, 200) + "..." : jsonText);
-                throw new Exception("JSON/YAML解析均失败: " + jsonEx.getMessage());
+                JsonNode jsonData = JsonUtil.readLenient(state, NOTE_FILTER);
+                log.debug("JSON解析成功，读取字节数: {}", state.getBytesRead());
+                return jsonData;
+            } catch (JsonProcessingException e) {
+                log.warn("JSON解析失败，尝试YAML解析: {}", e.getMessage());
+                return null;
             }
-        }
-        
+        });
+    }
+    
+    /**
+     * 解析页面初始化数据中的笔记信息
+     */
+    private VideoInfo parseNoteState(JsonNode jsonData) throws Exception {
         // 获取note信息
         JsonNode noteInfo = jsonData.path("note");
         if (noteInfo.isMissingNode()) {
@@ -188,6 +224,7 @@ public class RedBookParser extends BaseParser {
         
         // 构建视频信息
         VideoInfo videoInfo = VideoInfo.builder().build();
+        videoInfo.setVideoId(noteId);
         
         // 获取视频地址
         String videoUrl = "";
@@ -282,6 +319,15 @@ public class RedBookParser extends BaseParser {
         return videoInfo;
     }
     
+    @Override
+    public String extractCanonicalId(String url) {
+        if (StringUtils.isBlank(url)) {
+            return null;
+        }
+        Matcher matcher = NOTE_ID_PATTERN.matcher(url);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+    
     /**
      * 获取JsonNode中可用的字段名，用于调试
      */
@@ -295,6 +341,15 @@ public class RedBookParser extends BaseParser {
         return String.join(", ", fieldNames);
     }
     
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("lenientJson", lenientParses.sum());
+        stats.put("yamlFallbacks", yamlFallbacks.sum());
+        stats.put("failures", parseFailures.sum());
+        return stats;
+    }
+    
     @Override
     public VideoInfo parseVideoId(String videoId) throws Exception {
         throw new UnsupportedOperationException("小红书暂不支持直接解析视频ID");
@@ -0,0 +1,284 @@
+package com.yby6.mcp.server.service;
+
+import com.yby6.mcp.server.utils.AsyncUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.noear.solon.annotation.Component;
+import org.noear.solon.annotation.Init;
+import ws.schild.jave.process.ffmpeg.DefaultFFMPEGLocator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FFmpeg流式转码
+ * 视频数据写入ffmpeg标准输入（或直接读取本地文件），音频从标准输出读出
+ * 使用JAVE2自带的ffmpeg可执行文件
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Slf4j
+@Component
+public class FfmpegTranscoder {
+    
+    /**
+     * 输出采样率，与语音识别模型一致
+     */
+    public static final int SAMPLE_RATE = 16000;
+    
+    /**
+     * 输出16kHz单声道16位小端PCM，用于按静音分段识别
+     */
+    public static final List<String> PCM_OUTPUT = List.of(
+            "-vn", "-acodec", "pcm_s16le", "-ac", "1", "-ar", String.valueOf(SAMPLE_RATE),
+            "-f", "s16le", "pipe:1");
+    
+    // -xerror：ffmpeg读取管道中moov位于末尾的MP4时只报错不改退出码，需显式以错误退出以便回退
+    private static final List<String> COMMON_ARGS = List.of(
+            "-hide_banner", "-loglevel", "error", "-nostdin", "-xerror");
+    
+    private static final int MAX_ERROR_OUTPUT = 4096;
+    
+    private String executablePath;
+    
+    @Init
+    public void init() {
+        this.executablePath = new DefaultFFMPEGLocator().getExecutablePath();
+        log.info("ffmpeg可执行文件: {}", executablePath);
+    }
+    
+    /**
+     * 启动转码：后台线程把视频流写入ffmpeg，调用方从 {@link Job#getAudio()} 读取音频
+     *
+     * @param video       视频或音频数据流，转码结束后由调用方关闭
+     * @param inputFormat 输入格式（如 aac），为null时由ffmpeg自动探测
+     * @param outputArgs  输出参数，如 {@link #PCM_OUTPUT}
+     * @param listener    进度监听，输入读取完毕时回调 VIDEO_DOWNLOADED
+     * @return 转码任务
+     * @throws IOException ffmpeg启动失败时抛出异常
+     */
+    public Job transcode(InputStream video, String inputFormat, List<String> outputArgs, ProgressListener listener) throws IOException {
+        Process process = start(inputFormat, "pipe:0", outputArgs);
+        
+        CompletableFuture<Long> feeding = AsyncUtil.supplyBlocking(() -> {
+            long total = 0;
+            try (OutputStream stdin = process.getOutputStream()) {
+                byte[] buffer = new byte[64 * 1024];
+                int n;
+                while ((n = video.read(buffer)) != -1) {
+                    stdin.write(buffer, 0, n);
+                    total += n;
+                }
+            } catch (IOException e) {
+                // ffmpeg提前退出时写入会失败，以进程退出码为准
+                if (process.isAlive()) {
+                    throw e;
+                }
+                log.debug("ffmpeg已退出，停止写入: {}", e.getMessage());
+                return total;
+            }
+            listener.onProgress(ProgressListener.VIDEO_DOWNLOADED, total);
+            return total;
+        });
+        return new Job(process, feeding);
+    }
+    
+    /**
+     * 启动转码：ffmpeg直接读取本地视频文件，可处理moov位于末尾等需要随机读取的文件
+     *
+     * @param videoFile  视频文件
+     * @param outputArgs 输出参数，如 {@link UploadFormat#getOutputArgs()}
+     * @return 转码任务
+     * @throws IOException ffmpeg启动失败时抛出异常
+     */
+    public Job transcode(Path videoFile, List<String> outputArgs) throws IOException {
+        Process process = start(null, videoFile.toAbsolutePath().toString(), outputArgs);
+        process.getOutputStream().close();
+        return new Job(process, CompletableFuture.completedFuture(0L));
+    }
+    
+    private Process start(String inputFormat, String input, List<String> outputArgs) throws IOException {
+        List<String> command = new ArrayList<>(COMMON_ARGS.size() + outputArgs.size() + 5);
+        command.add(executablePath);
+        command.addAll(COMMON_ARGS);
+        if (inputFormat != null) {
+            command.add("-f");
+            command.add(inputFormat);
+        }
+        command.add("-i");
+        command.add(input);
+        command.addAll(outputArgs);
+        return new ProcessBuilder(command).start();
+    }
+    
+    private static String readErrorOutput(InputStream stderr) throws IOException {
+        // 持续读取避免ffmpeg因stderr缓冲区写满而阻塞，只保留开头部分
+        byte[] kept = new byte[MAX_ERROR_OUTPUT];
+        int keptLength = 0;
+        byte[] buffer = new byte[1024];
+        int n;
+        while ((n = stderr.read(buffer)) != -1) {
+            int copy = Math.min(n, kept.length - keptLength);
+            System.arraycopy(buffer, 0, kept, keptLength, copy);
+            keptLength += copy;
+        }
+        return new String(kept, 0, keptLength, StandardCharsets.UTF_8).trim();
+    }
+    
+    /**
+     * 整段上传识别时的音频格式，均为16kHz单声道，由转码输出直接流式上传
+     */
+    public enum UploadFormat {
+        
+        /**
+         * mp3，兼容性最好
+         */
+        MP3("audio.mp3", "audio/mpeg", List.of(
+                "-vn", "-acodec", "libmp3lame", "-ac", "1", "-ar", String.valueOf(SAMPLE_RATE), "-b:a", "128k",
+                "-f", "mp3", "pipe:1")),
+        
+        /**
+         * Opus（Ogg封装），体积约为mp3的五分之一，但编码耗时最高，适合上行带宽受限时使用；需识别接口支持ogg
+         */
+        OPUS("audio.ogg", "audio/ogg", List.of(
+                "-vn", "-acodec", "libopus", "-ac", "1", "-ar", String.valueOf(SAMPLE_RATE), "-b:a", "24k",
+                "-f", "ogg", "pipe:1")),
+        
+        /**
+         * PCM（WAV封装），不需要编码，体积最大；管道输出无法回填长度字段，需识别接口按实际数据读取
+         */
+        WAV("audio.wav", "audio/wav", List.of(
+                "-vn", "-acodec", "pcm_s16le", "-ac", "1", "-ar", String.valueOf(SAMPLE_RATE),
+                "-f", "wav", "pipe:1"));
+        
+        private final String filename;
+        private final String mediaType;
+        private final List<String> outputArgs;
+        
+        UploadFormat(String filename, String mediaType, List<String> outputArgs) {
+            this.filename = filename;
+            this.mediaType = mediaType;
+            this.outputArgs = outputArgs;
+        }
+        
+        /**
+         * 按名称获取格式，无法识别时使用mp3
+         *
+         * @param name 格式名（mp3/opus/wav，不区分大小写）
+         * @return 上传格式
+         */
+        public static UploadFormat of(String name) {
+            for (UploadFormat format : values()) {
+                if (format.name().equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            log.warn("不支持的上传音频格式: {}，使用mp3", name);
+            return MP3;
+        }
+        
+        public String getFilename() {
+            return filename;
+        }
+        
+        public String getMediaType() {
+            return mediaType;
+        }
+        
+        public List<String> getOutputArgs() {
+            return outputArgs;
+        }
+    }
+    
+    /**
+     * 转码失败（ffmpeg非正常退出或视频数据读取失败）
+     */
+    public static class TranscodeException extends IOException {
+        
+        private static final long serialVersionUID = 1L;
+        
+        public TranscodeException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+    
+    /**
+     * 转码任务
+     */
+    public static final class Job implements AutoCloseable {
+        
+        private final Process process;
+        private final CompletableFuture<Long> feeding;
+        private final CompletableFuture<String> errorOutput;
+        
+        private Job(Process process, CompletableFuture<Long> feeding) {
+            this.process = process;
+            this.feeding = feeding;
+            this.errorOutput = AsyncUtil.supplyBlocking(() -> readErrorOutput(process.getErrorStream()));
+        }
+        
+        /**
+         * 转码后的音频数据流
+         */
+        public InputStream getAudio() {
+            return process.getInputStream();
+        }
+        
+        /**
+         * 等待转码结束，ffmpeg非正常退出时抛出异常
+         *
+         * @param timeoutMillis 超时时间（毫秒）
+         * @throws TranscodeException 转码失败或超时
+         */
+        public void await(long timeoutMillis) throws TranscodeException {
+            TranscodeException failure = failure(timeoutMillis);
+            if (failure != null) {
+                throw failure;
+            }
+            if (process.isAlive()) {
+                throw new TranscodeException("等待ffmpeg结束超时", null);
+            }
+        }
+        
+        /**
+         * 在超时时间内等待ffmpeg退出并检查是否转码失败
+         *
+         * @param timeoutMillis 超时时间（毫秒）
+         * @return 转码失败的原因，转码成功或仍在运行时返回null
+         */
+        public TranscodeException failure(long timeoutMillis) {
+            try {
+                if (!process.waitFor(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    return null;
+                }
+                if (process.exitValue() != 0) {
+                    return new TranscodeException("ffmpeg退出码" + process.exitValue() + ": "
+                            + errorOutput.get(timeoutMillis, TimeUnit.MILLISECONDS), null);
+                }
+                feeding.get(timeoutMillis, TimeUnit.MILLISECONDS);
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new TranscodeException("等待ffmpeg结束被中断", e);
+            } catch (Exception e) {
+                Throwable cause = AsyncUtil.unwrap(e);
+                return new TranscodeException("转码失败: " + cause.getMessage(), cause);
+            }
+        }
+        
+        @Override
+        public void close() {
+            if (process.isAlive()) {
+                process.destroyForcibly();
+            }
+            feeding.cancel(true);
+        }
+    }
+}
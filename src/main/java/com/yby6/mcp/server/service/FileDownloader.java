@@ -0,0 +1,352 @@
+package com.yby6.mcp.server.service;
+
+import com.yby6.mcp.server.config.DownloadProperties;
+import com.yby6.mcp.server.http.HttpTransport;
+import com.yby6.mcp.server.utils.AsyncUtil;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import org.noear.solon.annotation.Component;
+import org.noear.solon.annotation.Init;
+import org.noear.solon.annotation.Inject;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 大文件下载
+ * 响应数据先攒入直接内存缓冲区再按位置写入FileChannel，写入次数少且没有堆内存到内核的额外拷贝；
+ * 已知长度时预先设定文件长度，文件较大且服务器支持Range时，首段沿用当前响应，其余分段并行请求写入各自位置。
+ * 服务器支持Range时，每个分段中途断开后按指数退避重试，并从该分段已写入的位置续传
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Slf4j
+@Component
+public class FileDownloader {
+    
+    // 写入缓冲区从小到大自适应，连续填满时翻倍
+    private static final int MIN_BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_BUFFER_BYTES = 1024 * 1024;
+    
+    @Inject
+    private HttpTransport httpTransport;
+    
+    @Inject
+    private DownloadProperties properties;
+    
+    private OkHttpClient httpClient;
+    
+    private final LongAdder downloads = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder parallelDownloads = new LongAdder();
+    private final LongAdder rangeRequests = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    // 续传保留下来、无需重新下载的字节数，每个字节只计一次
+    private final LongAdder resumedBytes = new LongAdder();
+    private final LongAdder downloadedBytes = new LongAdder();
+    
+    public FileDownloader() {
+    }
+    
+    FileDownloader(HttpTransport httpTransport, DownloadProperties properties) {
+        this.httpTransport = httpTransport;
+        this.properties = properties;
+    }
+    
+    @Init
+    public void init() {
+        this.httpClient = httpTransport.newBuilder()
+                .readTimeout(properties.getReadTimeoutMillis(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+    
+    /**
+     * 下载文件
+     *
+     * @param url     下载地址
+     * @param headers 请求头
+     * @param target  目标文件，已存在时覆盖
+     * @return 文件大小（字节）
+     * @throws IOException 下载失败、重试次数用尽或数据不完整
+     */
+    public long download(String url, Map<String, String> headers, Path target) throws IOException {
+        long start = System.nanoTime();
+        try (Response response = httpClient.newCall(newRequest(url, headers, null)).execute();
+             FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            if (!response.isSuccessful()) {
+                throw new IOException("下载失败: " + response);
+            }
+            ResponseBody body = response.body();
+            if (body == null) {
+                throw new IOException("响应体为空");
+            }
+            
+            long length = body.contentLength();
+            if (length > 0) {
+                // 预先设定文件长度，并行分段按位置写入时无需反复扩展文件
+                channel.write(ByteBuffer.allocate(1), length - 1);
+            }
+            
+            // 长度未知或服务器不支持Range时无法续传，也不分段
+            boolean resumable = length > 0 && "bytes".equalsIgnoreCase(response.header("Accept-Ranges"));
+            Download download = new Download(url, headers, channel, resumable);
+            List<Segment> segments = planSegments(length, resumable);
+            try {
+                if (segments.size() > 1) {
+                    parallelDownloads.increment();
+                    fetchSegments(download, body.source(), segments);
+                } else {
+                    fetch(download, segments.get(0), body.source());
+                }
+            } catch (IOException e) {
+                failures.increment();
+                throw e;
+            }
+            
+            long total = segments.stream().mapToLong(segment -> segment.written).sum();
+            if (length > 0 && total != length) {
+                failures.increment();
+                throw new EOFException("下载不完整: " + total + "/" + length);
+            }
+            channel.truncate(total);
+            
+            downloads.increment();
+            long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            log.info("下载完成: {}字节，{}个分段，重试{}次，耗时{}ms（{}MB/s）", total, segments.size(),
+                    segments.stream().mapToInt(segment -> segment.attempts - 1).sum(), millis,
+                    String.format("%.1f", total / 1024.0 / 1024.0 / (millis / 1000.0)));
+            return total;
+        }
+    }
+    
+    /**
+     * 获取统计信息
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("downloads", downloads.sum());
+        stats.put("failures", failures.sum());
+        stats.put("parallelDownloads", parallelDownloads.sum());
+        stats.put("rangeRequests", rangeRequests.sum());
+        stats.put("retries", retries.sum());
+        stats.put("resumedBytes", resumedBytes.sum());
+        stats.put("downloadedBytes", downloadedBytes.sum());
+        return stats;
+    }
+    
+    /**
+     * 划分下载区间，文件较小或无法续传时只有一段
+     */
+    private List<Segment> planSegments(long length, boolean resumable) {
+        List<Segment> segments = new ArrayList<>();
+        int count = properties.getParallelSegments();
+        if (!resumable || count <= 1 || length < properties.getParallelThresholdMegabytes() * 1024 * 1024) {
+            segments.add(new Segment(0, length > 0 ? length : Long.MAX_VALUE));
+            return segments;
+        }
+        long size = (length + count - 1) / count;
+        for (long start = 0; start < length; start += size) {
+            segments.add(new Segment(start, Math.min(length, start + size)));
+        }
+        return segments;
+    }
+    
+    /**
+     * 首段从当前响应读取，其余分段并行下载，任一分段最终失败时取消其余分段的请求
+     */
+    private void fetchSegments(Download download, BufferedSource first, List<Segment> segments) throws IOException {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(segments.size() - 1);
+        for (Segment segment : segments.subList(1, segments.size())) {
+            futures.add(AsyncUtil.supplyBlocking(() -> {
+                fetch(download, segment, null);
+                return null;
+            }));
+        }
+        try {
+            fetch(download, segments.get(0), first);
+            for (CompletableFuture<Void> future : futures) {
+                AsyncUtil.join(future);
+            }
+        } catch (Exception e) {
+            download.cancel();
+            throw e instanceof IOException io ? io : new IOException("分段下载失败: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 下载一个分段，中途失败时按指数退避重试，从已写入的位置续传
+     *
+     * @param source 已打开的响应数据，为null时发起Range请求
+     */
+    private void fetch(Download download, Segment segment, BufferedSource source) throws IOException {
+        while (true) {
+            segment.attempts++;
+            Response response = null;
+            try {
+                if (source == null) {
+                    response = openRange(download, segment);
+                    source = response.body().source();
+                }
+                write(source, download.channel, segment);
+                if (segment.end == Long.MAX_VALUE || segment.remaining() == 0) {
+                    return;
+                }
+                throw new EOFException("连接提前关闭: 分段" + segment.start + "-" + segment.end + "，已收到" + segment.written + "字节");
+            } catch (IOException e) {
+                if (!download.resumable || download.cancelled || segment.attempts > properties.getMaxRetries()) {
+                    throw e;
+                }
+                long backoffMillis = properties.getRetryBackoffMillis() << Math.min(segment.attempts - 1, 10);
+                log.warn("分段下载中断，{}ms后从{}字节处续传（第{}次重试）: {}", backoffMillis,
+                        segment.start + segment.written, segment.attempts, e.getMessage());
+                retries.increment();
+                resumedBytes.add(segment.written - segment.resumed);
+                segment.resumed = segment.written;
+                sleep(backoffMillis);
+                source = null;
+            } finally {
+                if (response != null) {
+                    response.close();
+                }
+            }
+        }
+    }
+    
+    /**
+     * 请求分段中尚未写入的部分
+     */
+    private Response openRange(Download download, Segment segment) throws IOException {
+        String range = "bytes=" + (segment.start + segment.written) + "-" + (segment.end - 1);
+        Call call = httpClient.newCall(newRequest(download.url, download.headers, range));
+        download.calls.add(call);
+        if (download.cancelled) {
+            call.cancel();
+        }
+        rangeRequests.increment();
+        Response response = call.execute();
+        if (response.code() != 206 || response.body() == null) {
+            response.close();
+            throw new IOException("服务器未按Range返回数据: " + range + ", 状态码: " + response.code());
+        }
+        return response;
+    }
+    
+    /**
+     * 从响应读取分段剩余的数据写入文件的对应位置，每次写入后更新分段进度，失败时可从该位置续传
+     */
+    private void write(BufferedSource source, FileChannel channel, Segment segment) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(MIN_BUFFER_BYTES);
+        boolean eof = false;
+        while (!eof && segment.remaining() > 0) {
+            buffer.limit((int) Math.min(buffer.capacity(), segment.remaining()));
+            while (buffer.hasRemaining()) {
+                if (source.read(buffer) == -1) {
+                    eof = true;
+                    break;
+                }
+            }
+            boolean filled = !buffer.hasRemaining() && buffer.limit() == buffer.capacity();
+            
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                segment.written += channel.write(buffer, segment.start + segment.written);
+            }
+            downloadedBytes.add(buffer.limit());
+            
+            // 数据持续到达时换用更大的缓冲区，减少写入次数
+            if (filled && buffer.capacity() < MAX_BUFFER_BYTES) {
+                buffer = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+            } else {
+                buffer.clear();
+            }
+        }
+    }
+    
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("下载重试等待被中断");
+        }
+    }
+    
+    private static Request newRequest(String url, Map<String, String> headers, String range) {
+        Request.Builder builder = new Request.Builder().url(url);
+        headers.forEach(builder::header);
+        if (range != null) {
+            builder.header("Range", range);
+        }
+        return builder.build();
+    }
+    
+    /**
+     * 一次下载的共享状态，失败时取消所有分段的请求
+     */
+    private static final class Download {
+        
+        private final String url;
+        private final Map<String, String> headers;
+        private final FileChannel channel;
+        private final boolean resumable;
+        private final Queue<Call> calls = new ConcurrentLinkedQueue<>();
+        private volatile boolean cancelled;
+        
+        private Download(String url, Map<String, String> headers, FileChannel channel, boolean resumable) {
+            this.url = url;
+            this.headers = headers;
+            this.channel = channel;
+            this.resumable = resumable;
+        }
+        
+        private void cancel() {
+            cancelled = true;
+            calls.forEach(Call::cancel);
+        }
+    }
+    
+    /**
+     * 下载区间[start, end)及进度，长度未知时end为Long.MAX_VALUE
+     */
+    private static final class Segment {
+        
+        private final long start;
+        private final long end;
+        private long written;
+        // 已计入续传统计的字节数，多次重试时只累加上次之后新写入的部分
+        private long resumed;
+        private int attempts;
+        
+        private Segment(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+        
+        private long remaining() {
+            return end - start - written;
+        }
+    }
+}
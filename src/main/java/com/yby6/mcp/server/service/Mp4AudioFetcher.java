@@ -0,0 +1,286 @@
+package com.yby6.mcp.server.service;
+
+import com.yby6.mcp.server.http.HttpTransport;
+import com.yby6.mcp.server.utils.AsyncUtil;
+import com.yby6.mcp.server.utils.Mp4AudioTrack;
+import lombok.extern.slf4j.Slf4j;
+import org.noear.solon.annotation.Component;
+import org.noear.solon.annotation.Inject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * MP4音频数据按需下载
+ * 通过HTTP Range先定位并读取moov，再只下载音轨所在的字节区间，视频帧数据不下载
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Slf4j
+@Component
+public class Mp4AudioFetcher {
+    
+    // 首次请求的字节数，faststart的文件moov通常在其中
+    private static final int HEAD_BYTES = 64 * 1024;
+    
+    // 查找moov时最多跳过的顶层box数
+    private static final int MAX_TOP_LEVEL_BOXES = 16;
+    
+    private static final long MAX_MOOV_BYTES = 32L * 1024 * 1024;
+    
+    // 相邻音频chunk间隔不超过该值时合并为一次请求，合并后的单次请求不超过上限
+    private static final long MERGE_GAP_BYTES = 8 * 1024;
+    private static final long MAX_RANGE_BYTES = 1024 * 1024;
+    
+    // 音视频交织过细时合并后的区间会包含大量视频数据，超过媒体数据跨度的该比例时不如直接下载完整视频
+    private static final double MAX_DOWNLOAD_RATIO = 0.5;
+    
+    // 同时进行的Range请求数
+    private static final int PREFETCH_RANGES = 4;
+    
+    private static final long TIMEOUT_MILLIS = 30000;
+    
+    @Inject
+    private HttpTransport httpTransport;
+    
+    private final LongAdder downloadedBytes = new LongAdder();
+    private final LongAdder rangeRequests = new LongAdder();
+    
+    public Mp4AudioFetcher() {
+    }
+    
+    Mp4AudioFetcher(HttpTransport httpTransport) {
+        this.httpTransport = httpTransport;
+    }
+    
+    /**
+     * 只下载MP4中的音频数据，输出ADTS格式的AAC流
+     *
+     * @param url     视频地址
+     * @param headers 请求头
+     * @return 音频流；服务器不支持Range、找不到moov或音轨不是AAC时返回null
+     */
+    public InputStream openAdts(String url, Map<String, String> headers) {
+        Mp4AudioTrack track;
+        try {
+            track = readTrack(url, headers);
+        } catch (Exception e) {
+            log.info("无法按需下载音频，将下载完整视频: {}", AsyncUtil.unwrap(e).getMessage());
+            return null;
+        }
+        if (track == null) {
+            log.info("视频中没有可单独下载的AAC音轨，将下载完整视频");
+            return null;
+        }
+        List<Range> ranges = mergeRanges(track.getChunks());
+        long rangeBytes = 0;
+        for (Range range : ranges) {
+            rangeBytes += range.end - range.start;
+        }
+        long span = ranges.get(ranges.size() - 1).end - ranges.get(0).start;
+        if (rangeBytes > span * MAX_DOWNLOAD_RATIO) {
+            log.info("音视频交织过细（需下载{}/{}字节），将下载完整视频", rangeBytes, span);
+            return null;
+        }
+        log.info("按需下载音频: {}个chunk合并为{}次请求，共{}字节（音频{}字节）",
+                track.getChunks().size(), ranges.size(), rangeBytes, track.getAudioBytes());
+        return new AdtsStream(url, headers, track, ranges);
+    }
+    
+    /**
+     * 获取统计信息
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("rangeRequests", rangeRequests.sum());
+        stats.put("downloadedBytes", downloadedBytes.sum());
+        return stats;
+    }
+    
+    /**
+     * 依次读取顶层box头定位moov（moov在mdat之后时按mdat大小直接跳过），然后解析音轨
+     */
+    private Mp4AudioTrack readTrack(String url, Map<String, String> headers) throws Exception {
+        byte[] window = AsyncUtil.join(fetchRange(url, headers, 0, HEAD_BYTES - 1));
+        long windowStart = 0;
+        long offset = 0;
+        for (int i = 0; i < MAX_TOP_LEVEL_BOXES; i++) {
+            if (offset + 16 > windowStart + window.length) {
+                window = AsyncUtil.join(fetchRange(url, headers, offset, offset + 15));
+                windowStart = offset;
+                if (window.length < 8) {
+                    return null;
+                }
+            }
+            int pos = (int) (offset - windowStart);
+            long size = readUInt32(window, pos);
+            String type = new String(window, pos + 4, 4, StandardCharsets.ISO_8859_1);
+            if (size == 1) {
+                size = readUInt32(window, pos + 8) << 32 | readUInt32(window, pos + 12);
+            } else if (size == 0) {
+                // 延伸到文件末尾的box之后没有moov
+                return null;
+            }
+            if (size < 8) {
+                return null;
+            }
+            
+            if ("moov".equals(type)) {
+                if (size > MAX_MOOV_BYTES) {
+                    return null;
+                }
+                byte[] moov;
+                if (offset + size <= windowStart + window.length) {
+                    moov = new byte[(int) size];
+                    System.arraycopy(window, pos, moov, 0, moov.length);
+                } else {
+                    moov = AsyncUtil.join(fetchRange(url, headers, offset, offset + size - 1));
+                }
+                return Mp4AudioTrack.parse(moov);
+            }
+            offset += size;
+        }
+        return null;
+    }
+    
+    private CompletableFuture<byte[]> fetchRange(String url, Map<String, String> headers, long from, long to) {
+        Map<String, String> rangeHeaders = new HashMap<>(headers);
+        rangeHeaders.put("Range", "bytes=" + from + "-" + to);
+        rangeRequests.increment();
+        return httpTransport.getAsync(url, rangeHeaders, TIMEOUT_MILLIS, (status, finalUrl, body) -> {
+            if (status != 206) {
+                throw new IOException("服务器不支持Range请求，状态码: " + status);
+            }
+            byte[] data = body.readAllBytes();
+            downloadedBytes.add(data.length);
+            return data;
+        });
+    }
+    
+    private static List<Range> mergeRanges(List<Mp4AudioTrack.Chunk> chunks) {
+        List<Range> ranges = new ArrayList<>();
+        Range current = null;
+        for (Mp4AudioTrack.Chunk chunk : chunks) {
+            long end = chunk.getOffset() + chunk.getLength();
+            if (current != null && chunk.getOffset() - current.end <= MERGE_GAP_BYTES && end - current.start <= MAX_RANGE_BYTES) {
+                current.end = end;
+            } else {
+                current = new Range(chunk.getOffset(), end);
+                ranges.add(current);
+            }
+            current.chunks.add(chunk);
+        }
+        return ranges;
+    }
+    
+    private static long readUInt32(byte[] data, int pos) {
+        return ((data[pos] & 0xFFL) << 24) | ((data[pos + 1] & 0xFFL) << 16) | ((data[pos + 2] & 0xFFL) << 8) | (data[pos + 3] & 0xFFL);
+    }
+    
+    /**
+     * 一次Range请求覆盖的文件区间[start, end)及其中的音频chunk
+     */
+    private static final class Range {
+        
+        private final long start;
+        private long end;
+        private final List<Mp4AudioTrack.Chunk> chunks = new ArrayList<>();
+        
+        private Range(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+    
+    /**
+     * 按顺序输出各区间转换后的ADTS数据，同时预取后续区间
+     */
+    private final class AdtsStream extends InputStream {
+        
+        private final String url;
+        private final Map<String, String> headers;
+        private final Mp4AudioTrack track;
+        private final List<Range> ranges;
+        private final Deque<CompletableFuture<byte[]>> inflight = new ArrayDeque<>();
+        private int nextRange;
+        private byte[] current = new byte[0];
+        private int position;
+        
+        private AdtsStream(String url, Map<String, String> headers, Mp4AudioTrack track, List<Range> ranges) {
+            this.url = url;
+            this.headers = headers;
+            this.track = track;
+            this.ranges = ranges;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (position == current.length) {
+                if (!advance()) {
+                    return -1;
+                }
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, n);
+            position += n;
+            return n;
+        }
+        
+        private boolean advance() throws IOException {
+            while (inflight.size() < PREFETCH_RANGES && nextRange < ranges.size()) {
+                Range range = ranges.get(nextRange++);
+                inflight.add(fetchRange(url, headers, range.start, range.end - 1).thenApply(data -> toAdts(range, data)));
+            }
+            CompletableFuture<byte[]> next = inflight.poll();
+            if (next == null) {
+                return false;
+            }
+            try {
+                current = AsyncUtil.join(next);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("下载音频数据失败: " + e.getMessage(), e);
+            }
+            position = 0;
+            return true;
+        }
+        
+        private byte[] toAdts(Range range, byte[] data) {
+            if (data.length != range.end - range.start) {
+                throw new IllegalStateException("Range响应长度不符: " + data.length + "/" + (range.end - range.start));
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length + data.length / 32);
+            for (Mp4AudioTrack.Chunk chunk : range.chunks) {
+                out.writeBytes(track.toAdts(chunk, data, (int) (chunk.getOffset() - range.start)));
+            }
+            return out.toByteArray();
+        }
+        
+        @Override
+        public void close() {
+            inflight.forEach(future -> future.cancel(true));
+            inflight.clear();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.yby6.mcp.server.service;
+
+/**
+ * 处理进度监听
+ * 多阶段处理（解析、下载、提取音频、语音识别）在每个阶段产出结果时回调，用于流式推送部分结果
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@FunctionalInterface
+public interface ProgressListener {
+    
+    /**
+     * 分享链接解析完成，数据为 VideoInfo
+     */
+    String VIDEO_INFO = "video_info";
+    
+    /**
+     * 视频下载完成，数据为文件大小（字节）
+     */
+    String VIDEO_DOWNLOADED = "video_downloaded";
+    
+    /**
+     * 音频提取完成，数据为音频大小（字节）
+     */
+    String AUDIO_EXTRACTED = "audio_extracted";
+    
+    /**
+     * 语音识别产出文本，整段识别时数据为文本，分段识别时每段完成推送一次 TranscriptSegment（可能乱序，按index排序）
+     */
+    String TRANSCRIPT = "transcript";
+    
+    /**
+     * 不关心进度时使用
+     */
+    ProgressListener NONE = (stage, data) -> {
+    };
+    
+    /**
+     * 阶段完成回调，实现方不应抛出异常或长时间阻塞
+     *
+     * @param stage 阶段名
+     * @param data  阶段产出的部分结果，可为null
+     */
+    void onProgress(String stage, Object data);
+}
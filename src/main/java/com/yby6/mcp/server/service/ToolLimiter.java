@@ -0,0 +1,95 @@
+package com.yby6.mcp.server.service;
+
+import com.yby6.mcp.server.config.ToolProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.noear.solon.annotation.Component;
+import org.noear.solon.annotation.Inject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * MCP工具并发限制
+ * 每个工具一个信号量，虚拟线程模式下调用方线程几乎不受限制，由此保护上游平台不被瞬时流量打垮
+ * 信号量不占用监视器锁，排队等待时不会钉住虚拟线程的载体线程
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Slf4j
+@Component
+public class ToolLimiter {
+    
+    @Inject
+    private ToolProperties properties;
+    
+    private final Map<String, Limit> limits = new ConcurrentHashMap<>();
+    
+    /**
+     * 获取工具调用许可，超过并发上限时排队等待
+     *
+     * @param tool 工具名
+     * @return 是否获取成功，等待超时或被中断时返回false
+     */
+    public boolean tryAcquire(String tool) {
+        Limit limit = limit(tool);
+        try {
+            if (limit.semaphore.tryAcquire(properties.getAcquireTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        limit.rejected.increment();
+        log.warn("工具并发已达上限，拒绝调用: tool={}, limit={}", tool, limit.permits);
+        return false;
+    }
+    
+    /**
+     * 释放工具调用许可
+     *
+     * @param tool 工具名
+     */
+    public void release(String tool) {
+        limit(tool).semaphore.release();
+    }
+    
+    /**
+     * 获取各工具的并发统计
+     *
+     * @return 工具名 -> 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        limits.forEach((tool, limit) -> {
+            Map<String, Object> toolStats = new LinkedHashMap<>();
+            toolStats.put("limit", limit.permits);
+            toolStats.put("active", limit.permits - limit.semaphore.availablePermits());
+            toolStats.put("waiting", limit.semaphore.getQueueLength());
+            toolStats.put("rejected", limit.rejected.sum());
+            stats.put(tool, toolStats);
+        });
+        return stats;
+    }
+    
+    private Limit limit(String tool) {
+        return limits.computeIfAbsent(tool, t ->
+                new Limit(properties.getConcurrency().getOrDefault(t, properties.getDefaultConcurrency())));
+    }
+    
+    private static final class Limit {
+        
+        private final int permits;
+        private final Semaphore semaphore;
+        private final LongAdder rejected = new LongAdder();
+        
+        private Limit(int permits) {
+            this.permits = permits;
+            this.semaphore = new Semaphore(permits, true);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.yby6.mcp.server.service;
+
+import com.yby6.mcp.server.config.TranscriptCacheProperties;
+import com.yby6.mcp.server.model.Transcript;
+import com.yby6.mcp.server.utils.DiskLogStore;
+import com.yby6.mcp.server.utils.JsonUtil;
+import com.yby6.mcp.server.utils.LruCache;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.noear.solon.annotation.Component;
+import org.noear.solon.annotation.Init;
+import org.noear.solon.annotation.Inject;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 语音识别结果缓存
+ * 两级键：按"平台:视频ID + 识别服务 + 模型"缓存整个视频的识别结果，命中时无需下载与识别；
+ * 按"音频内容SHA-256 + 识别服务 + 模型"缓存每个分段的文本，不同视频（如转载）中相同的音频分段不再重复付费识别。
+ * 键中包含识别服务的API基础URL，调用方自定义的服务返回的结果不会提供给使用其他服务的调用方。
+ * 内存中保留最近访问的热数据，全部结果写入本地存储，重启后仍然有效
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Slf4j
+@Component
+public class TranscriptCache {
+    
+    private static final String VIDEO_PREFIX = "video|";
+    private static final String AUDIO_PREFIX = "audio|";
+    
+    @Inject
+    private TranscriptCacheProperties properties;
+    
+    private LruCache<String, byte[]> hot;
+    private DiskLogStore store;
+    
+    public TranscriptCache() {
+    }
+    
+    TranscriptCache(TranscriptCacheProperties properties) {
+        this.properties = properties;
+    }
+    
+    @Init
+    public void init() {
+        this.hot = new LruCache<>(properties.getHotMaxSize(), 0);
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Path file = Path.of(properties.getFile());
+        try {
+            this.store = DiskLogStore.open(file, properties.getMaxMegabytes() * 1024 * 1024);
+        } catch (Exception e) {
+            log.warn("打开识别结果本地存储失败，仅使用内存缓存: {}, 错误: {}", file, e.getMessage());
+        }
+    }
+    
+    /**
+     * 计算音频内容的缓存键
+     *
+     * @param audio 音频数据
+     * @return SHA-256十六进制字符串
+     */
+    public static String audioHash(byte[] audio) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(audio));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * 获取视频的识别结果
+     *
+     * @param videoKey   规范视频键（平台:视频ID），为空时不缓存
+     * @param apiBaseUrl 语音识别服务的API基础URL
+     * @param model      语音识别模型
+     * @return 识别结果，未命中时返回null
+     */
+    public Transcript getTranscript(String videoKey, String apiBaseUrl, String model) {
+        if (StringUtils.isBlank(videoKey)) {
+            return null;
+        }
+        byte[] value = get(VIDEO_PREFIX + apiBaseUrl + "|" + model + "|" + videoKey);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return JsonUtil.parseObject(new String(value, StandardCharsets.UTF_8), Transcript.class);
+        } catch (Exception e) {
+            log.warn("缓存的识别结果无法解析，已忽略: {}", videoKey);
+            return null;
+        }
+    }
+    
+    /**
+     * 缓存视频的识别结果
+     *
+     * @param videoKey   规范视频键（平台:视频ID），为空时不缓存
+     * @param apiBaseUrl 语音识别服务的API基础URL
+     * @param model      语音识别模型
+     * @param transcript 识别结果
+     */
+    public void putTranscript(String videoKey, String apiBaseUrl, String model, Transcript transcript) {
+        if (StringUtils.isBlank(videoKey) || transcript == null) {
+            return;
+        }
+        try {
+            put(VIDEO_PREFIX + apiBaseUrl + "|" + model + "|" + videoKey, JsonUtil.toJsonString(transcript).getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            log.warn("缓存识别结果失败: {}, 错误: {}", videoKey, e.getMessage());
+        }
+    }
+    
+    /**
+     * 获取音频分段的识别文本
+     *
+     * @param audioHash  音频内容哈希，见 {@link #audioHash(byte[])}
+     * @param apiBaseUrl 语音识别服务的API基础URL
+     * @param model      语音识别模型
+     * @return 识别文本，未命中时返回null
+     */
+    public String getSegmentText(String audioHash, String apiBaseUrl, String model) {
+        byte[] value = get(AUDIO_PREFIX + apiBaseUrl + "|" + model + "|" + audioHash);
+        return value != null ? new String(value, StandardCharsets.UTF_8) : null;
+    }
+    
+    /**
+     * 缓存音频分段的识别文本
+     *
+     * @param audioHash  音频内容哈希，见 {@link #audioHash(byte[])}
+     * @param apiBaseUrl 语音识别服务的API基础URL
+     * @param model      语音识别模型
+     * @param text       识别文本
+     */
+    public void putSegmentText(String audioHash, String apiBaseUrl, String model, String text) {
+        if (text != null) {
+            put(AUDIO_PREFIX + apiBaseUrl + "|" + model + "|" + audioHash, text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+    
+    /**
+     * 获取缓存统计信息
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("hot", hot.stats());
+        if (store != null) {
+            stats.put("disk", store.stats());
+        }
+        return stats;
+    }
+    
+    /**
+     * 先查内存，再查本地存储，本地命中时回填内存
+     */
+    private byte[] get(String key) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        byte[] value = hot.get(key);
+        if (value != null || store == null) {
+            return value;
+        }
+        try {
+            value = store.get(key);
+        } catch (Exception e) {
+            log.warn("读取识别结果本地存储失败: {}", e.getMessage());
+            return null;
+        }
+        if (value != null) {
+            hot.put(key, value);
+        }
+        return value;
+    }
+    
+    private void put(String key, byte[] value) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        hot.put(key, value);
+        if (store == null) {
+            return;
+        }
+        try {
+            store.put(key, value);
+        } catch (Exception e) {
+            log.warn("写入识别结果本地存储失败: {}", e.getMessage());
+        }
+    }
+}
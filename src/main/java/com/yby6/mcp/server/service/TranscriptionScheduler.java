@@ -0,0 +1,323 @@
+package com.yby6.mcp.server.service;
+
+import cn.hutool.core.util.IdUtil;
+import com.yby6.mcp.server.config.TranscribeProperties;
+import com.yby6.mcp.server.utils.LruCache;
+import lombok.extern.slf4j.Slf4j;
+import org.noear.solon.annotation.Component;
+import org.noear.solon.annotation.Init;
+import org.noear.solon.annotation.Inject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 语音识别任务调度
+ * 固定数量的工作线程从有界队列中取任务执行，同时运行的下载、ffmpeg与识别上传不超过工作线程数；
+ * 队列已满时立即拒绝并给出建议的重试等待时间。任务完成后结果保留一段时间，供异步提交的调用方查询；
+ * 调用方不再需要结果时（如流式接口的客户端断开）可取消任务
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Slf4j
+@Component
+public class TranscriptionScheduler {
+    
+    // 尚无耗时统计时用于估算重试等待时间的单个任务耗时
+    private static final long DEFAULT_RUN_MILLIS = 30000;
+    
+    @Inject
+    private TranscribeProperties properties;
+    
+    private ThreadPoolExecutor executor;
+    private int workers;
+    private final Map<String, Job<?>> activeJobs = new ConcurrentHashMap<>();
+    private LruCache<String, Job<?>> finishedJobs;
+    
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder waitMillisTotal = new LongAdder();
+    private final LongAccumulator waitMillisMax = new LongAccumulator(Math::max, 0);
+    private final LongAdder runMillisTotal = new LongAdder();
+    
+    public TranscriptionScheduler() {
+    }
+    
+    TranscriptionScheduler(TranscribeProperties properties) {
+        this.properties = properties;
+    }
+    
+    @Init
+    public void init() {
+        this.workers = properties.getWorkers() > 0 ? properties.getWorkers() : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())), runnable -> {
+            Thread thread = new Thread(runnable, "transcribe-worker-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.finishedJobs = new LruCache<>(properties.getMaxRetainedJobs(), properties.getJobRetentionSeconds() * 1000);
+        log.info("语音识别任务调度: 工作线程{}个，队列容量{}", workers, properties.getQueueCapacity());
+    }
+    
+    /**
+     * 提交任务
+     *
+     * @param task 任务
+     * @param <T>  结果类型
+     * @return 任务
+     * @throws QueueFullException 队列已满
+     */
+    public <T> Job<T> submit(Callable<T> task) throws QueueFullException {
+        Job<T> job = new Job<>(IdUtil.fastSimpleUUID());
+        activeJobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job, task));
+        } catch (RejectedExecutionException e) {
+            activeJobs.remove(job.id);
+            rejected.increment();
+            long retryAfterSeconds = retryAfterSeconds();
+            log.warn("语音识别队列已满，拒绝任务: queued={}, retryAfter={}s", executor.getQueue().size(), retryAfterSeconds);
+            throw new QueueFullException(retryAfterSeconds);
+        }
+        submitted.increment();
+        return job;
+    }
+    
+    /**
+     * 查询任务
+     *
+     * @param jobId 任务ID
+     * @return 任务，不存在或结果已过保留期时返回null
+     */
+    public Job<?> get(String jobId) {
+        Job<?> job = activeJobs.get(jobId);
+        return job != null ? job : finishedJobs.get(jobId);
+    }
+    
+    /**
+     * 获取统计信息：队列深度、排队与执行耗时
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        long started = succeeded.sum() + failed.sum() + executor.getActiveCount();
+        long finished = succeeded.sum() + failed.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("workers", workers);
+        stats.put("active", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("queueCapacity", properties.getQueueCapacity());
+        stats.put("submitted", submitted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("succeeded", succeeded.sum());
+        stats.put("failed", failed.sum());
+        stats.put("cancelled", cancelled.sum());
+        stats.put("avgWaitMillis", started > 0 ? waitMillisTotal.sum() / started : 0);
+        stats.put("maxWaitMillis", waitMillisMax.get());
+        stats.put("avgRunMillis", finished > 0 ? runMillisTotal.sum() / finished : 0);
+        stats.put("retainedJobs", finishedJobs.size());
+        return stats;
+    }
+    
+    private <T> void run(Job<T> job, Callable<T> task) {
+        // 排队期间已取消的任务不再执行
+        if (job.future.isCancelled()) {
+            finish(job, JobStatus.CANCELLED);
+            cancelled.increment();
+            return;
+        }
+        job.startedAt = System.currentTimeMillis();
+        job.status = JobStatus.RUNNING;
+        long waitMillis = job.startedAt - job.submittedAt;
+        waitMillisTotal.add(waitMillis);
+        waitMillisMax.accumulate(waitMillis);
+        // 先完成结果再更新状态，查询到已完成状态时结果一定可取
+        job.attach(Thread.currentThread());
+        try {
+            if (job.future.isCancelled()) {
+                throw new CancellationException();
+            }
+            job.future.complete(task.call());
+        } catch (Throwable e) {
+            job.future.completeExceptionally(e);
+        } finally {
+            job.detach();
+        }
+        
+        if (job.future.isCancelled()) {
+            finish(job, JobStatus.CANCELLED);
+            cancelled.increment();
+        } else if (job.future.isCompletedExceptionally()) {
+            finish(job, JobStatus.FAILED);
+            failed.increment();
+        } else {
+            finish(job, JobStatus.SUCCEEDED);
+            succeeded.increment();
+        }
+    }
+    
+    /**
+     * 先放入结果保留区再移出执行中列表，查询时任务始终可见
+     */
+    private void finish(Job<?> job, JobStatus status) {
+        job.finishedAt = System.currentTimeMillis();
+        job.status = status;
+        if (job.startedAt > 0) {
+            runMillisTotal.add(job.finishedAt - job.startedAt);
+        }
+        finishedJobs.put(job.id, job);
+        activeJobs.remove(job.id);
+    }
+    
+    /**
+     * 按排队与执行中的任务数和平均执行耗时估算多久后会有空位
+     */
+    private long retryAfterSeconds() {
+        long finished = succeeded.sum() + failed.sum();
+        long avgRunMillis = finished > 0 ? runMillisTotal.sum() / finished : DEFAULT_RUN_MILLIS;
+        long pending = executor.getQueue().size() + executor.getActiveCount();
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(pending * avgRunMillis / workers));
+    }
+    
+    /**
+     * 任务状态
+     */
+    public enum JobStatus {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED
+    }
+    
+    /**
+     * 队列已满
+     */
+    public static class QueueFullException extends Exception {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final long retryAfterSeconds;
+        
+        public QueueFullException(long retryAfterSeconds) {
+            super("语音识别任务繁忙，请" + retryAfterSeconds + "秒后重试");
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+        
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+    
+    /**
+     * 识别任务
+     *
+     * @param <T> 结果类型
+     */
+    public static final class Job<T> {
+        
+        private final String id;
+        private final long submittedAt = System.currentTimeMillis();
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile long startedAt;
+        private volatile long finishedAt;
+        // 执行该任务的工作线程，设置、清除与取消时的中断都在同一把锁内进行
+        private final ReentrantLock workerLock = new ReentrantLock();
+        private Thread worker;
+        
+        private Job(String id) {
+            this.id = id;
+        }
+        
+        /**
+         * 取消任务：排队中的任务不再执行，执行中的任务中断工作线程（下载重试等待、ffmpeg进程等待等会响应中断）
+         *
+         * @return 是否取消成功，已完成的任务返回false
+         */
+        public boolean cancel() {
+            if (!future.cancel(false)) {
+                return false;
+            }
+            // 工作线程已离开该任务时不再中断，避免中断落到它接着执行的其他任务上
+            workerLock.lock();
+            try {
+                if (worker != null) {
+                    worker.interrupt();
+                }
+            } finally {
+                workerLock.unlock();
+            }
+            return true;
+        }
+        
+        private void attach(Thread thread) {
+            workerLock.lock();
+            try {
+                worker = thread;
+            } finally {
+                workerLock.unlock();
+            }
+        }
+        
+        /**
+         * 离开任务时清除取消设置的中断标记，工作线程继续执行后续任务；
+         * 与取消在同一把锁内，清除之后不会再有针对该任务的中断
+         */
+        private void detach() {
+            workerLock.lock();
+            try {
+                worker = null;
+                Thread.interrupted();
+            } finally {
+                workerLock.unlock();
+            }
+        }
+        
+        public String getId() {
+            return id;
+        }
+        
+        public JobStatus getStatus() {
+            return status;
+        }
+        
+        /**
+         * 任务结果，完成前调用方可等待
+         */
+        public CompletableFuture<T> getFuture() {
+            return future;
+        }
+        
+        /**
+         * 排队时间（毫秒），尚未开始时为已排队时间
+         */
+        public long getWaitMillis() {
+            return (startedAt > 0 ? startedAt : System.currentTimeMillis()) - submittedAt;
+        }
+        
+        /**
+         * 执行时间（毫秒），尚未开始时为0
+         */
+        public long getRunMillis() {
+            if (startedAt == 0) {
+                return 0;
+            }
+            return (finishedAt > 0 ? finishedAt : System.currentTimeMillis()) - startedAt;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.yby6.mcp.server.service;
+
+import com.yby6.mcp.server.config.UpstreamProperties;
+import com.yby6.mcp.server.model.VideoSource;
+import com.yby6.mcp.server.parser.UpstreamBlockedException;
+import com.yby6.mcp.server.parser.UpstreamUnavailableException;
+import com.yby6.mcp.server.utils.AsyncUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.noear.solon.annotation.Component;
+import org.noear.solon.annotation.Inject;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 上游平台请求保护
+ * 每个平台一个令牌桶限速，速率按AIMD调整：解析成功时加性增加直到配置值，失败或触发验证码时乘性降低；
+ * 连续失败达到阈值后熔断，熔断期间直接拒绝，到期后放行一个探测请求，成功则恢复、失败则继续熔断。
+ * 只有反映平台健康状况的失败（限流或验证码、网络错误与超时、5xx）才计入失败，参数错误、页面结构变化等解析失败原样返回，
+ * 不影响速率与熔断状态。等待令牌时不占用线程，等待时间过长时直接拒绝。
+ * 令牌按解析计：一次解析内的短链接跳转、页面与接口请求不再各取令牌，页面请求的对冲与重试也不取令牌，
+ * 其数量由 {@link com.yby6.mcp.server.http.HedgedFetcher} 的重试预算限制（默认约为请求数的10%）
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Slf4j
+@Component
+public class UpstreamGuard {
+    
+    @Inject
+    private UpstreamProperties properties;
+    
+    private final Map<VideoSource, Platform> platforms = new ConcurrentHashMap<>();
+    
+    // 纳秒时钟，测试中替换以控制令牌补充与熔断到期
+    LongSupplier nanoClock = System::nanoTime;
+    
+    public UpstreamGuard() {
+    }
+    
+    UpstreamGuard(UpstreamProperties properties) {
+        this.properties = properties;
+    }
+    
+    /**
+     * 按平台限速执行上游请求，并根据结果调整速率与熔断状态
+     *
+     * @param source 平台
+     * @param call   上游请求
+     * @return 请求结果，熔断或限速等待超时时以 {@link RejectedException} 结束
+     */
+    public <T> CompletableFuture<T> execute(VideoSource source, Supplier<CompletableFuture<T>> call) {
+        if (!properties.isEnabled()) {
+            return start(call);
+        }
+        
+        Platform platform = platform(source);
+        Permit permit;
+        try {
+            permit = platform.acquire();
+        } catch (RejectedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        
+        CompletableFuture<T> running = permit.delayMillis() > 0
+                ? delay(permit.delayMillis()).thenCompose(v -> start(call))
+                : start(call);
+        return running.whenComplete((value, e) -> {
+            if (e == null) {
+                platform.onSuccess(permit.probe());
+            } else {
+                platform.onFailure(AsyncUtil.unwrap(e), permit.probe());
+            }
+        });
+    }
+    
+    /**
+     * 获取各平台的限速与熔断统计
+     *
+     * @return 平台代码 -> 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        platforms.forEach((source, platform) -> stats.put(source.getCode(), platform.stats()));
+        return stats;
+    }
+    
+    private Platform platform(VideoSource source) {
+        return platforms.computeIfAbsent(source, s -> new Platform(s,
+                properties.getRates().getOrDefault(s.getCode(), properties.getRatePerSecond()),
+                properties.getBursts().getOrDefault(s.getCode(), properties.getBurst())));
+    }
+    
+    private static <T> CompletableFuture<T> start(Supplier<CompletableFuture<T>> call) {
+        try {
+            return call.get();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * 延迟后完成，等待期间不占用线程
+     */
+    private static CompletableFuture<Void> delay(long millis) {
+        return CompletableFuture.runAsync(() -> {
+        }, CompletableFuture.delayedExecutor(millis, TimeUnit.MILLISECONDS));
+    }
+    
+    private static String format(double rate) {
+        return String.format("%.2f", rate);
+    }
+    
+    private static boolean isBlocked(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UpstreamBlockedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 是否为反映平台健康状况的失败：被限流或触发验证码、网络错误与超时、平台返回5xx
+     */
+    static boolean isUpstreamFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UpstreamBlockedException || cause instanceof UpstreamUnavailableException
+                    || cause instanceof IOException || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 熔断状态
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+    
+    /**
+     * 上游请求被拒绝：平台熔断中，或等待令牌的时间超过上限
+     */
+    public static class RejectedException extends Exception {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final long retryAfterSeconds;
+        
+        public RejectedException(String message, long retryAfterSeconds) {
+            super(message + "，请" + retryAfterSeconds + "秒后重试");
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+        
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+    
+    /**
+     * 放行结果
+     *
+     * @param delayMillis 需要等待的时间（毫秒），0表示立即执行
+     * @param probe       是否为半开状态下的探测请求，只有探测请求的结果决定恢复或继续熔断
+     */
+    private record Permit(long delayMillis, boolean probe) {
+        
+        private static final Permit NOW = new Permit(0, false);
+        private static final Permit PROBE = new Permit(0, true);
+    }
+    
+    /**
+     * 单个平台的令牌桶与熔断状态，所有字段在锁内读写
+     */
+    private final class Platform {
+        
+        private final VideoSource source;
+        private final double maxRate;
+        private final int burst;
+        private final ReentrantLock lock = new ReentrantLock();
+        
+        private double rate;
+        private double tokens;
+        private long refilledAt = nanoClock.getAsLong();
+        private long decreasedAt;
+        
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openUntil;
+        private boolean probing;
+        
+        private final LongAdder allowed = new LongAdder();
+        private final LongAdder delayed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder successes = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder blocked = new LongAdder();
+        private final LongAdder ignored = new LongAdder();
+        private final LongAdder opened = new LongAdder();
+        
+        private Platform(VideoSource source, double maxRate, int burst) {
+            this.source = source;
+            this.maxRate = Math.max(maxRate, properties.getMinRatePerSecond());
+            this.burst = Math.max(1, burst);
+            this.rate = this.maxRate;
+            this.tokens = this.burst;
+            this.decreasedAt = refilledAt - TimeUnit.MILLISECONDS.toNanos(properties.getDecreaseIntervalMillis());
+        }
+        
+        /**
+         * 取一个令牌
+         *
+         * @return 放行结果
+         * @throws RejectedException 熔断中，或需要等待的时间超过上限
+         */
+        private Permit acquire() throws RejectedException {
+            long now = nanoClock.getAsLong();
+            lock.lock();
+            try {
+                if (state == State.OPEN) {
+                    if (now < openUntil) {
+                        rejected.increment();
+                        throw new RejectedException(source.getCode() + "平台请求连续失败，已暂停解析",
+                                Math.max(1, TimeUnit.NANOSECONDS.toSeconds(openUntil - now)));
+                    }
+                    state = State.HALF_OPEN;
+                    probing = false;
+                }
+                if (state == State.HALF_OPEN) {
+                    // 探测期间只放行一个请求，其余继续拒绝
+                    if (probing) {
+                        rejected.increment();
+                        throw new RejectedException(source.getCode() + "平台正在恢复", 1);
+                    }
+                    probing = true;
+                    allowed.increment();
+                    return Permit.PROBE;
+                }
+                
+                tokens = Math.min(burst, tokens + (now - refilledAt) / 1e9 * rate);
+                refilledAt = now;
+                tokens -= 1;
+                if (tokens >= 0) {
+                    allowed.increment();
+                    return Permit.NOW;
+                }
+                long waitMillis = (long) Math.ceil(-tokens / rate * 1000);
+                if (waitMillis > properties.getMaxWaitMillis()) {
+                    tokens += 1;
+                    rejected.increment();
+                    throw new RejectedException(source.getCode() + "平台请求过于频繁",
+                            Math.max(1, TimeUnit.MILLISECONDS.toSeconds(waitMillis)));
+                }
+                allowed.increment();
+                delayed.increment();
+                return new Permit(waitMillis, false);
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        private void onSuccess(boolean probe) {
+            successes.increment();
+            lock.lock();
+            try {
+                if (probe) {
+                    state = State.CLOSED;
+                    probing = false;
+                    log.info("{}平台探测请求成功，恢复解析，当前速率{}/s", source.getCode(), format(rate));
+                } else if (state != State.CLOSED) {
+                    // 熔断前放行的请求在熔断或探测期间才结束，不影响恢复判断
+                    return;
+                }
+                consecutiveFailures = 0;
+                rate = Math.min(maxRate, rate + properties.getIncreaseStep());
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        private void onFailure(Throwable e, boolean probe) {
+            if (!isUpstreamFailure(e)) {
+                // 参数错误、页面结构变化等与平台健康无关，探测请求以此结束时交给下一个请求继续探测
+                ignored.increment();
+                if (probe) {
+                    releaseProbe();
+                }
+                return;
+            }
+            
+            boolean captcha = isBlocked(e);
+            failures.increment();
+            if (captcha) {
+                blocked.increment();
+            }
+            long now = nanoClock.getAsLong();
+            lock.lock();
+            try {
+                if (!probe && state != State.CLOSED) {
+                    return;
+                }
+                consecutiveFailures++;
+                if (now - decreasedAt >= TimeUnit.MILLISECONDS.toNanos(properties.getDecreaseIntervalMillis())) {
+                    rate = Math.max(properties.getMinRatePerSecond(), rate * properties.getDecreaseFactor());
+                    decreasedAt = now;
+                }
+                if (captcha) {
+                    // 平台已开始拦截，不再使用桶内剩余的突发额度
+                    tokens = Math.min(tokens, 0);
+                }
+                
+                if (probe || consecutiveFailures >= properties.getFailureThreshold()) {
+                    state = State.OPEN;
+                    openUntil = now + TimeUnit.MILLISECONDS.toNanos(properties.getOpenMillis());
+                    probing = false;
+                    opened.increment();
+                    log.warn("{}平台连续失败{}次，暂停解析{}ms，当前速率{}/s: {}", source.getCode(), consecutiveFailures,
+                            properties.getOpenMillis(), format(rate), e.getMessage());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        private void releaseProbe() {
+            lock.lock();
+            try {
+                if (state == State.HALF_OPEN) {
+                    probing = false;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        private Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            lock.lock();
+            try {
+                stats.put("state", state);
+                stats.put("rate", format(rate));
+                stats.put("maxRate", format(maxRate));
+                stats.put("burst", burst);
+                stats.put("consecutiveFailures", consecutiveFailures);
+            } finally {
+                lock.unlock();
+            }
+            stats.put("allowed", allowed.sum());
+            stats.put("delayed", delayed.sum());
+            stats.put("rejected", rejected.sum());
+            stats.put("successes", successes.sum());
+            stats.put("failures", failures.sum());
+            stats.put("blocked", blocked.sum());
+            stats.put("ignored", ignored.sum());
+            stats.put("opened", opened.sum());
+            return stats;
+        }
+    }
+}
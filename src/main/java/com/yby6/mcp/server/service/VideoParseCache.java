@@ -0,0 +1,129 @@
+package com.yby6.mcp.server.service;
+
+import com.yby6.mcp.server.config.ParseCacheProperties;
+import com.yby6.mcp.server.model.VideoInfo;
+import com.yby6.mcp.server.model.VideoSource;
+import com.yby6.mcp.server.utils.LruCache;
+import org.apache.commons.lang3.StringUtils;
+import org.noear.solon.annotation.Component;
+import org.noear.solon.annotation.Init;
+import org.noear.solon.annotation.Inject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 视频解析结果缓存
+ * 以"平台:视频ID"作为规范键缓存解析结果，并维护分享链接到规范键的别名映射，
+ * 同一视频的不同短链接共享一份缓存。结果过期后另外保留一段时间，上游平台熔断时作为过期结果返回
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Component
+public class VideoParseCache {
+    
+    @Inject
+    private ParseCacheProperties properties;
+    
+    private LruCache<String, VideoInfo> entries;
+    private LruCache<String, VideoInfo> staleEntries;
+    private LruCache<String, String> aliases;
+    
+    @Init
+    public void init() {
+        this.entries = new LruCache<>(properties.getMaxSize(), properties.getTtlSeconds() * 1000);
+        if (properties.getStaleTtlSeconds() > 0) {
+            this.staleEntries = new LruCache<>(properties.getMaxSize(), properties.getStaleTtlSeconds() * 1000);
+        }
+        this.aliases = new LruCache<>(properties.getAliasMaxSize(), properties.getAliasTtlSeconds() * 1000);
+    }
+    
+    /**
+     * 构建规范缓存键
+     *
+     * @param source  来源
+     * @param videoId 视频ID
+     * @return 缓存键
+     */
+    public static String canonicalKey(VideoSource source, String videoId) {
+        return source.getCode() + ":" + videoId;
+    }
+    
+    /**
+     * 根据分享链接查找规范缓存键
+     *
+     * @param url 分享链接
+     * @return 缓存键，未记录时返回null
+     */
+    public String lookupKey(String url) {
+        if (!properties.isEnabled() || StringUtils.isBlank(url)) {
+            return null;
+        }
+        return aliases.get(url);
+    }
+    
+    /**
+     * 获取缓存的解析结果
+     *
+     * @param key 规范缓存键
+     * @return 解析结果，未命中时返回null
+     */
+    public VideoInfo get(String key) {
+        if (!properties.isEnabled() || key == null) {
+            return null;
+        }
+        return entries.get(key);
+    }
+    
+    /**
+     * 获取已过期但仍在保留期内的解析结果，其中的CDN链接可能已失效
+     *
+     * @param key 规范缓存键
+     * @return 解析结果，未保留时返回null
+     */
+    public VideoInfo getStale(String key) {
+        if (!properties.isEnabled() || staleEntries == null || key == null) {
+            return null;
+        }
+        return staleEntries.get(key);
+    }
+    
+    /**
+     * 缓存解析结果，并记录分享链接别名
+     *
+     * @param source    来源
+     * @param url       分享链接，可为空
+     * @param videoInfo 解析结果
+     */
+    public void put(VideoSource source, String url, VideoInfo videoInfo) {
+        if (!properties.isEnabled() || videoInfo == null || StringUtils.isBlank(videoInfo.getVideoId())) {
+            return;
+        }
+        
+        String key = canonicalKey(source, videoInfo.getVideoId());
+        entries.put(key, videoInfo);
+        if (staleEntries != null) {
+            staleEntries.put(key, videoInfo);
+        }
+        if (StringUtils.isNotBlank(url)) {
+            aliases.put(url, key);
+        }
+    }
+    
+    /**
+     * 获取缓存统计信息
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("entries", entries.stats());
+        if (staleEntries != null) {
+            stats.put("stale", staleEntries.stats());
+        }
+        stats.put("aliases", aliases.stats());
+        return stats;
+    }
+}
@@ -1,26 +1,232 @@
 package com.yby6.mcp.server.service;
 
+import com.yby6.mcp.server.config.ToolProperties;
+import com.yby6.mcp.server.config.UpstreamProperties;
 import com.yby6.mcp.server.model.VideoInfo;
 import com.yby6.mcp.server.model.VideoSource;
 import com.yby6.mcp.server.parser.ParserFactory;
+import com.yby6.mcp.server.parser.ShareText;
+import com.yby6.mcp.server.utils.AsyncLimiter;
+import com.yby6.mcp.server.utils.AsyncUtil;
+import com.yby6.mcp.server.utils.SingleFlight;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.noear.solon.annotation.Component;
+import org.noear.solon.annotation.Inject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 视频解析服务
- * 统一的视频解析服务入口
+ * 统一的视频解析服务入口，对上游平台的请求经 {@link UpstreamGuard} 按平台限速与熔断
  *
  * @author Yangbuyi
  * @date 2025/07/16
  */
+@Slf4j
 @Component
 public class VideoParseService {
     
+    @Inject
+    private ParserFactory parserFactory;
+    
+    @Inject
+    private VideoParseCache parseCache;
+    
+    @Inject
+    private ToolProperties toolProperties;
+    
+    @Inject
+    private UpstreamGuard upstreamGuard;
+    
+    @Inject
+    private UpstreamProperties upstreamProperties;
+    
+    // 并发解析同一视频时只请求一次上游
+    private final SingleFlight<String, VideoInfo> parseFlight = new SingleFlight<>();
+    
+    // 批量解析时按平台限制并发
+    private final Map<VideoSource, AsyncLimiter> batchLimiters = new ConcurrentHashMap<>();
+    
+    private final LongAdder staleServed = new LongAdder();
+    
     public VideoInfo parseShareUrl(String shareUrl) throws Exception {
-        return ParserFactory.parseShareUrl(shareUrl);
+        return AsyncUtil.join(parseShareUrlAsync(shareUrl));
+    }
+    
+    /**
+     * 异步解析分享链接，等待上游响应期间不占用调用线程
+     *
+     * @param shareUrl 分享链接或包含链接的文本
+     * @return {@link VideoInfo } 异步结果
+     */
+    public CompletableFuture<VideoInfo> parseShareUrlAsync(String shareUrl) {
+        return parseShareUrlAsync(ShareText.parse(shareUrl), shareUrl);
+    }
+    
+    private CompletableFuture<VideoInfo> parseShareUrlAsync(ShareText share, String shareUrl) {
+        VideoSource source = parserFactory.detectVideoSource(share);
+        String url = share.getUrl();
+        if (source == null || url == null) {
+            return parserFactory.parseShareUrlAsync(share, shareUrl);
+        }
+        
+        // 优先通过短链接别名查找，其次从完整链接中直接提取视频ID
+        String cacheKey = parseCache.lookupKey(url);
+        if (cacheKey == null) {
+            String videoId;
+            try {
+                videoId = parserFactory.extractCanonicalId(source, url);
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            if (videoId != null) {
+                cacheKey = VideoParseCache.canonicalKey(source, videoId);
+            }
+        }
+        
+        VideoInfo cached = parseCache.get(cacheKey);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        
+        // 规范键未知时（首次出现的短链接）按链接合并
+        String flightKey = cacheKey != null ? cacheKey : url;
+        String knownKey = cacheKey;
+        return parseFlight.executeAsync(flightKey, () -> {
+            // 可能刚有并发请求完成并写入缓存
+            VideoInfo latest = parseCache.get(knownKey);
+            if (latest != null) {
+                return CompletableFuture.completedFuture(latest);
+            }
+            
+            return upstreamGuard.execute(source, () -> parserFactory.parseShareUrlAsync(share, shareUrl))
+                    .thenApply(videoInfo -> {
+                        parseCache.put(source, url, videoInfo);
+                        return videoInfo;
+                    })
+                    .exceptionallyCompose(e -> staleOrFailure(knownKey, e));
+        });
+    }
+    
+    /**
+     * 批量异步解析分享链接
+     * 同一视频（规范ID或链接相同）只解析一次，每个平台同时进行的解析数受限
+     *
+     * @param shareTexts 分享链接或包含链接的文本
+     * @return 与输入顺序一致的异步结果，重复项共享同一个结果
+     */
+    public List<CompletableFuture<VideoInfo>> parseShareUrlsAsync(List<String> shareTexts) {
+        Map<String, CompletableFuture<VideoInfo>> byKey = new HashMap<>();
+        List<CompletableFuture<VideoInfo>> results = new ArrayList<>(shareTexts.size());
+        for (String shareText : shareTexts) {
+            if (StringUtils.isBlank(shareText)) {
+                results.add(CompletableFuture.failedFuture(new Exception("分享链接不能为空")));
+                continue;
+            }
+            
+            ShareText share = ShareText.parse(shareText);
+            VideoSource source = parserFactory.detectVideoSource(share);
+            String url = share.getUrl();
+            if (source == null || url == null) {
+                results.add(parseShareUrlAsync(share, shareText));
+                continue;
+            }
+            
+            results.add(byKey.computeIfAbsent(batchKey(source, url), k -> batchLimiters
+                    .computeIfAbsent(source, s -> new AsyncLimiter(toolProperties.getBatchPlatformConcurrency()))
+                    .submit(() -> parseShareUrlAsync(share, shareText))));
+        }
+        return results;
+    }
+    
+    /**
+     * 批量去重键：已知规范ID时按视频去重，否则按链接去重
+     */
+    private String batchKey(VideoSource source, String url) {
+        String cacheKey = parseCache.lookupKey(url);
+        if (cacheKey != null) {
+            return cacheKey;
+        }
+        try {
+            String videoId = parserFactory.extractCanonicalId(source, url);
+            if (videoId != null) {
+                return VideoParseCache.canonicalKey(source, videoId);
+            }
+        } catch (Exception e) {
+            // 解析器不可用时由后续解析返回错误
+        }
+        return url;
+    }
+    
+    /**
+     * 获取已解析视频的规范键（平台:视频ID），用于缓存视频相关的处理结果
+     *
+     * @param shareText 分享链接或包含链接的文本
+     * @param videoInfo 解析结果
+     * @return 规范键，无法识别平台或缺少视频ID时返回null
+     */
+    public String canonicalKey(String shareText, VideoInfo videoInfo) {
+        if (videoInfo == null || StringUtils.isBlank(videoInfo.getVideoId())) {
+            return null;
+        }
+        VideoSource source = parserFactory.detectVideoSource(shareText);
+        return source != null ? VideoParseCache.canonicalKey(source, videoInfo.getVideoId()) : null;
     }
     
     public VideoInfo parseVideoId(String source, String videoId) throws Exception {
         VideoSource videoSource = VideoSource.valueOf(source.toUpperCase());
-        return ParserFactory.parseVideoId(videoSource, videoId);
+        
+        String cacheKey = VideoParseCache.canonicalKey(videoSource, videoId);
+        VideoInfo cached = parseCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        
+        return parseFlight.execute(cacheKey, () -> AsyncUtil.join(upstreamGuard
+                .execute(videoSource, () -> AsyncUtil.supplyBlocking(() -> parserFactory.parseVideoId(videoSource, videoId)))
+                .thenApply(videoInfo -> {
+                    parseCache.put(videoSource, null, videoInfo);
+                    return videoInfo;
+                })
+                .exceptionallyCompose(e -> staleOrFailure(cacheKey, e))));
+    }
+    
+    /**
+     * 上游平台熔断或限速拒绝时返回保留的过期结果，没有时原样失败
+     */
+    private CompletableFuture<VideoInfo> staleOrFailure(String cacheKey, Throwable e) {
+        Throwable cause = AsyncUtil.unwrap(e);
+        if (cause instanceof UpstreamGuard.RejectedException && upstreamProperties.isServeStale()) {
+            VideoInfo stale = parseCache.getStale(cacheKey);
+            if (stale != null) {
+                staleServed.increment();
+                log.warn("上游平台暂不可用，返回过期的解析结果: {}, {}", cacheKey, cause.getMessage());
+                return CompletableFuture.completedFuture(stale);
+            }
+        }
+        return CompletableFuture.failedFuture(cause);
+    }
+    
+    /**
+     * 获取解析统计信息
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("singleFlight", parseFlight.stats());
+        Map<String, Object> batch = new LinkedHashMap<>();
+        batchLimiters.forEach((source, limiter) -> batch.put(source.getCode(), limiter.stats()));
+        stats.put("batch", batch);
+        stats.put("staleServed", staleServed.sum());
+        return stats;
     }
-} 
\ No newline at end of file
+}
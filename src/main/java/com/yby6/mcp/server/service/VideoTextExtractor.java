@@ -3,25 +3,36 @@ package com.yby6.mcp.server.service;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.IdUtil;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.yby6.mcp.server.config.TranscribeProperties;
+import com.yby6.mcp.server.http.HttpTransport;
+import com.yby6.mcp.server.model.Transcript;
+import com.yby6.mcp.server.model.TranscriptSegment;
 import com.yby6.mcp.server.model.VideoInfo;
+import com.yby6.mcp.server.utils.AsyncUtil;
 import com.yby6.mcp.server.utils.JsonUtil;
+import com.yby6.mcp.server.utils.SilenceSegmenter;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 import org.apache.commons.lang3.StringUtils;
 import org.noear.solon.annotation.Component;
-import ws.schild.jave.Encoder;
-import ws.schild.jave.EncoderException;
-import ws.schild.jave.MultimediaObject;
-import ws.schild.jave.encode.AudioAttributes;
-import ws.schild.jave.encode.EncodingAttributes;
+import org.noear.solon.annotation.Init;
+import org.noear.solon.annotation.Inject;
+import okio.BufferedSink;
+import okio.Okio;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 视频文本提取服务
@@ -41,16 +52,44 @@ public class VideoTextExtractor {
     private static final String DEFAULT_MODEL = "FunAudioLLM/SenseVoiceSmall";
     
     
-    private final OkHttpClient httpClient;
+    // 音频上传完成后等待ffmpeg退出的时间 / 上传失败时检查是否由转码失败引起的等待时间
+    private static final long TRANSCODE_AWAIT_MILLIS = 60000;
+    private static final long TRANSCODE_FAILURE_CHECK_MILLIS = 2000;
+    
+    private static final MediaType AUDIO_WAV = MediaType.parse("audio/wav");
+    
+    // 音频来源统计
+    private static final String SOURCE_AUDIO = "audio";
+    private static final String SOURCE_MP4_AUDIO_TRACK = "mp4AudioTrack";
+    private static final String SOURCE_VIDEO = "video";
+    private static final String SOURCE_FILE = "fileFallback";
+    private static final String SOURCE_CACHE = "cache";
+    
+    @Inject
+    private HttpTransport httpTransport;
+    
+    @Inject
+    private FfmpegTranscoder ffmpegTranscoder;
+    
+    @Inject
+    private TranscribeProperties transcribeProperties;
+    
+    @Inject
+    private Mp4AudioFetcher mp4AudioFetcher;
+    
+    @Inject
+    private TranscriptCache transcriptCache;
+    
+    @Inject
+    private FileDownloader fileDownloader;
+    
+    private final Map<String, LongAdder> sourceCounters = new ConcurrentHashMap<>();
+    
+    private OkHttpClient httpClient;
+    private FfmpegTranscoder.UploadFormat uploadFormat;
     private final Path tempDir;
     
     public VideoTextExtractor() {
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(10, TimeUnit.MINUTES)
-                .readTimeout(10, TimeUnit.MINUTES)
-                .writeTimeout(10, TimeUnit.MINUTES)
-                .build();
-        
         // 创建临时目录
         try {
             this.tempDir = Files.createTempDirectory("video_text_extractor_" + IdUtil.fastSimpleUUID());
@@ -60,6 +99,43 @@ public class VideoTextExtractor {
         }
     }
     
+    VideoTextExtractor(HttpTransport httpTransport, TranscribeProperties transcribeProperties, TranscriptCache transcriptCache) {
+        this();
+        this.httpTransport = httpTransport;
+        this.transcribeProperties = transcribeProperties;
+        this.transcriptCache = transcriptCache;
+    }
+    
+    @Init
+    public void init() {
+        // 复用共享连接池，仅放宽超时以适应大文件下载和语音识别
+        this.httpClient = httpTransport.newBuilder()
+                .connectTimeout(10, TimeUnit.MINUTES)
+                .readTimeout(10, TimeUnit.MINUTES)
+                .writeTimeout(10, TimeUnit.MINUTES)
+                .build();
+        this.uploadFormat = FfmpegTranscoder.UploadFormat.of(transcribeProperties.getUploadFormat());
+    }
+    
+    /**
+     * 获取语音识别API密钥，未传递时使用环境变量 YBY6_API_KEY
+     * 调用方指定了 apiBaseUrl 时必须自带密钥，服务端密钥只发送到默认的语音识别服务
+     *
+     * @param apiKey     调用方传递的API密钥
+     * @param apiBaseUrl 调用方传递的API基础URL
+     * @return API密钥，均未设置或调用方指定了 apiBaseUrl 却未传递密钥时返回null
+     */
+    public String resolveApiKey(String apiKey, String apiBaseUrl) {
+        if (StringUtils.isNotBlank(apiKey)) {
+            return apiKey;
+        }
+        if (StringUtils.isNotBlank(apiBaseUrl)) {
+            return null;
+        }
+        String envApiKey = System.getenv("YBY6_API_KEY");
+        return StringUtils.isNotBlank(envApiKey) ? envApiKey : null;
+    }
+    
     /**
      * 从视频信息中提取文本内容
      *
@@ -71,47 +147,62 @@ public class VideoTextExtractor {
      * @throws Exception 处理失败时抛出异常
      */
     public String extractTextFromVideo(VideoInfo videoInfo, String apiKey, String apiBaseUrl, String model) throws Exception {
+        return transcribeVideo(videoInfo, null, apiKey, apiBaseUrl, model, ProgressListener.NONE).getText();
+    }
+    
+    /**
+     * 从视频信息中提取文本内容，每个阶段完成时回调进度
+     * 配置了分段识别时，音频在静音处切分后并发识别，结果按时间顺序拼接并附带每段时间戳；
+     * 同一视频、同一模型的识别结果命中缓存时直接返回
+     *
+     * @param videoInfo  视频信息
+     * @param videoKey   规范视频键（平台:视频ID），用于缓存识别结果，为空时不使用整体缓存
+     * @param apiKey     语音识别API密钥
+     * @param apiBaseUrl API基础URL（可选，默认使用SiliconFlow）
+     * @param model      语音识别模型（可选，默认使用SenseVoiceSmall）
+     * @param listener   进度监听
+     * @return 提取结果
+     * @throws Exception 处理失败时抛出异常
+     */
+    public Transcript transcribeVideo(VideoInfo videoInfo, String videoKey, String apiKey, String apiBaseUrl, String model,
+                                      ProgressListener listener) throws Exception {
         if (StringUtils.isBlank(apiKey)) {
             throw new IllegalArgumentException("API密钥不能为空");
         }
         
-        if (videoInfo == null || StringUtils.isBlank(videoInfo.getVideoUrl())) {
+        if (videoInfo == null || StringUtils.isBlank(mediaUrl(videoInfo))) {
             throw new IllegalArgumentException("视频信息无效或缺少视频下载链接");
         }
         
         log.info("视频信息: {}", videoInfo);
         
+        String finalApiBaseUrl = StringUtils.isNotBlank(apiBaseUrl) ? apiBaseUrl : DEFAULT_API_BASE_URL;
+        String finalModel = StringUtils.isNotBlank(model) ? model : DEFAULT_MODEL;
+        
+        Transcript cached = transcriptCache.getTranscript(videoKey, finalApiBaseUrl, finalModel);
+        if (cached != null) {
+            log.info("识别结果命中缓存: {}", videoKey);
+            sourceCounter(SOURCE_CACHE).increment();
+            if (cached.getSegments().isEmpty()) {
+                listener.onProgress(ProgressListener.TRANSCRIPT, cached.getText());
+            } else {
+                cached.getSegments().forEach(segment -> listener.onProgress(ProgressListener.TRANSCRIPT, segment));
+            }
+            return cached;
+        }
+        
         try {
             log.info("开始从视频中提取文本内容: {}", videoInfo.getTitle());
-            
-            // 1. 下载视频
-            log.info("正在下载视频...");
-            Path videoPath = downloadVideo(videoInfo);
-            
+            Transcript transcript;
             try {
-                // 2. 提取音频
-                log.info("正在提取音频...");
-                Path audioPath = extractAudio(videoPath);
-                
-                try {
-                    // 3. 提取文本
-                    log.info("正在从音频中提取文本...");
-                    String textContent = extractTextFromAudio(audioPath, apiKey,
-                            StringUtils.isNotBlank(apiBaseUrl) ? apiBaseUrl : DEFAULT_API_BASE_URL,
-                            StringUtils.isNotBlank(model) ? model : DEFAULT_MODEL);
-                    
-                    log.info("文本提取完成!");
-                    return textContent;
-                    
-                } finally {
-                    // 清理音频文件
-                    cleanupFiles(audioPath);
-                }
-                
-            } finally {
-                // 清理视频文件
-                cleanupFiles(videoPath);
+                transcript = transcribeStreaming(videoInfo, apiKey, finalApiBaseUrl, finalModel, listener);
+            } catch (FfmpegTranscoder.TranscodeException e) {
+                // 例如moov位于文件末尾的MP4无法从管道读取，需要完整文件
+                log.warn("流式转码失败，改为下载到临时文件后处理: {}", e.getMessage());
+                transcript = transcribeViaFiles(videoInfo, apiKey, finalApiBaseUrl, finalModel, listener);
             }
+            transcriptCache.putTranscript(videoKey, finalApiBaseUrl, finalModel, transcript);
+            return transcript;
             
         } catch (IllegalArgumentException e) {
             log.error("参数错误: {}", e.getMessage());
@@ -123,55 +214,215 @@ public class VideoTextExtractor {
     }
     
     /**
-     * 下载视频到临时目录
+     * 流式处理：音频数据直接写入ffmpeg，转码输出直接上传到语音识别API，不产生临时文件
+     * 音频来源依次为：页面提供的纯音频流（图集为背景音乐）、MP4中按Range单独下载的AAC音轨、完整视频
      *
-     * @param videoInfo 视频信息
-     * @return 下载的视频文件路径
-     * @throws Exception 下载失败时抛出异常
+     * @throws FfmpegTranscoder.TranscodeException 转码失败，可改用临时文件处理
      */
-    private Path downloadVideo(VideoInfo videoInfo) throws Exception {
-        String filename = "video_" + System.currentTimeMillis() + ".mp4";
-        Path videoPath = tempDir.resolve(filename);
-        
-        log.info("正在下载视频: {} -> {}", videoInfo.getTitle(), videoPath);
+    private Transcript transcribeStreaming(VideoInfo videoInfo, String apiKey, String apiBaseUrl, String model,
+                                           ProgressListener listener) throws Exception {
+        if (StringUtils.isNotBlank(videoInfo.getAudioUrl()) || StringUtils.isBlank(videoInfo.getVideoUrl())) {
+            log.info("正在流式下载并转码音频: {}", videoInfo.getTitle());
+            sourceCounter(SOURCE_AUDIO).increment();
+            return transcribeUrl(mediaUrl(videoInfo), apiKey, apiBaseUrl, model, listener);
+        }
         
-        Request request = new Request.Builder()
-                .url(videoInfo.getVideoUrl())
-                .header("User-Agent", USER_AGENT)
-                .build();
+        InputStream adts = mp4AudioFetcher.openAdts(videoInfo.getVideoUrl(), Map.of("User-Agent", USER_AGENT));
+        if (adts != null) {
+            log.info("正在按需下载并转码视频音轨: {}", videoInfo.getTitle());
+            sourceCounter(SOURCE_MP4_AUDIO_TRACK).increment();
+            try (adts; FfmpegTranscoder.Job job = ffmpegTranscoder.transcode(adts, "aac", audioOutput(), listener)) {
+                return transcribeAudio(job, apiKey, apiBaseUrl, model, listener);
+            }
+        }
         
-        try (Response response = httpClient.newCall(request).execute()) {
+        log.info("正在流式下载并转码视频: {}", videoInfo.getTitle());
+        sourceCounter(SOURCE_VIDEO).increment();
+        return transcribeUrl(videoInfo.getVideoUrl(), apiKey, apiBaseUrl, model, listener);
+    }
+    
+    private Transcript transcribeUrl(String url, String apiKey, String apiBaseUrl, String model,
+                                     ProgressListener listener) throws Exception {
+        try (Response response = httpClient.newCall(newDownloadRequest(url)).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("下载视频失败: " + response);
             }
-            
             ResponseBody body = response.body();
             if (body == null) {
                 throw new IOException("响应体为空");
             }
             
-            long totalSize = body.contentLength();
-            long downloadedSize = 0;
-            
-            try (InputStream inputStream = body.byteStream();
-                 FileOutputStream outputStream = new FileOutputStream(videoPath.toFile())) {
-                
-                byte[] buffer = new byte[8192];
-                int bytesRead;
+            try (FfmpegTranscoder.Job job = ffmpegTranscoder.transcode(body.byteStream(), null, audioOutput(), listener)) {
+                return transcribeAudio(job, apiKey, apiBaseUrl, model, listener);
+            }
+        }
+    }
+    
+    /**
+     * 获取统计信息：各音频来源的使用次数与按需下载的字节数
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<String, Object> sources = new LinkedHashMap<>();
+        sourceCounters.forEach((source, counter) -> sources.put(source, counter.sum()));
+        stats.put("sources", sources);
+        stats.put("mp4AudioTrack", mp4AudioFetcher.stats());
+        stats.put("cache", transcriptCache.stats());
+        stats.put("download", fileDownloader.stats());
+        return stats;
+    }
+    
+    /**
+     * 临时文件处理：下载完整视频后由ffmpeg直接读取文件，转码输出直接上传识别，不再写出音频文件
+     */
+    private Transcript transcribeViaFiles(VideoInfo videoInfo, String apiKey, String apiBaseUrl, String model,
+                                          ProgressListener listener) throws Exception {
+        // 1. 下载视频
+        log.info("正在下载视频...");
+        sourceCounter(SOURCE_FILE).increment();
+        Path videoPath = downloadVideo(videoInfo);
+        listener.onProgress(ProgressListener.VIDEO_DOWNLOADED, Files.size(videoPath));
+        
+        try {
+            // 2~3. 提取音频并识别
+            try (FfmpegTranscoder.Job job = ffmpegTranscoder.transcode(videoPath, audioOutput())) {
+                return transcribeAudio(job, apiKey, apiBaseUrl, model, listener);
+            }
+        } finally {
+            // 清理视频文件
+            cleanupFiles(videoPath);
+        }
+    }
+    
+    /**
+     * 识别转码输出的音频，并确认转码正常结束
+     *
+     * @throws FfmpegTranscoder.TranscodeException 转码失败
+     */
+    private Transcript transcribeAudio(FfmpegTranscoder.Job job, String apiKey, String apiBaseUrl, String model,
+                                       ProgressListener listener) throws Exception {
+        Transcript transcript;
+        try {
+            if (isSegmented()) {
+                transcript = transcribeSegments(job.getAudio(), apiKey, apiBaseUrl, model, listener);
+            } else {
+                String textContent = transcribe(new AudioStreamBody(job.getAudio(), uploadFormat.getMediaType(), listener),
+                        uploadFormat.getFilename(), apiKey, apiBaseUrl, model);
+                listener.onProgress(ProgressListener.TRANSCRIPT, textContent);
+                transcript = new Transcript(textContent, new ArrayList<>());
+            }
+        } catch (Exception e) {
+            // 转码失败导致上传的音频不完整时，以转码错误为准
+            FfmpegTranscoder.TranscodeException failure = job.failure(TRANSCODE_FAILURE_CHECK_MILLIS);
+            throw failure != null ? failure : e;
+        }
+        job.await(TRANSCODE_AWAIT_MILLIS);
+        
+        log.info("文本提取完成!");
+        return transcript;
+    }
+    
+    /**
+     * 分段识别：读取PCM时在静音处切分，每段切出后立即并发识别，最后按时间顺序拼接
+     * 同时识别的分段数受配置限制，达到上限时暂停读取，由管道反压到视频下载
+     */
+    Transcript transcribeSegments(InputStream pcm, String apiKey, String apiBaseUrl, String model,
+                                  ProgressListener listener) throws Exception {
+        SilenceSegmenter segmenter = new SilenceSegmenter(FfmpegTranscoder.SAMPLE_RATE,
+                TimeUnit.SECONDS.toMillis(transcribeProperties.getSegmentSeconds()),
+                TimeUnit.SECONDS.toMillis(transcribeProperties.getMaxExtensionSeconds()),
+                transcribeProperties.getSilenceThresholdDb());
+        Semaphore permits = new Semaphore(Math.max(1, transcribeProperties.getConcurrency()));
+        CompletableFuture<Void> firstFailure = new CompletableFuture<>();
+        List<CompletableFuture<TranscriptSegment>> futures = new ArrayList<>();
+        // 每段结果处理完毕（归还名额、记录失败）的时刻，等待这些而非结果本身，失败一定已记录
+        List<CompletableFuture<?>> handled = new ArrayList<>();
+        
+        try {
+            segmenter.split(pcm, segment -> {
+                // 已有分段失败时不再继续
+                if (firstFailure.isCompletedExceptionally()) {
+                    AsyncUtil.join(firstFailure);
+                }
+                permits.acquire();
                 
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, bytesRead);
-                    downloadedSize += bytesRead;
-                    
-                    if (totalSize > 0) {
-                        double progress = (double) downloadedSize / totalSize * 100;
-                        if (downloadedSize % (1024 * 1024) == 0) { // 每MB打印一次进度
-                            log.debug("下载进度: {}%", String.format("%.1f", progress));
-                        }
+                byte[] wav = segment.toWav();
+                CompletableFuture<TranscriptSegment> future = AsyncUtil.supplyBlocking(() -> new TranscriptSegment(
+                        segment.getIndex(), segment.getStartMillis(), segment.getEndMillis(),
+                        transcribeSegment(wav, segment.getIndex(), apiKey, apiBaseUrl, model)));
+                handled.add(future.whenComplete((result, e) -> {
+                    permits.release();
+                    if (e != null) {
+                        firstFailure.completeExceptionally(new Exception("第" + (segment.getIndex() + 1) + "段语音识别失败: "
+                                + AsyncUtil.unwrap(e).getMessage(), AsyncUtil.unwrap(e)));
+                    } else {
+                        listener.onProgress(ProgressListener.TRANSCRIPT, result);
                     }
+                }));
+                futures.add(future);
+            });
+            listener.onProgress(ProgressListener.AUDIO_EXTRACTED, segmenter.getBytesRead());
+            log.info("音频已切分为{}段，等待识别完成", futures.size());
+            
+            CompletableFuture.allOf(handled.toArray(new CompletableFuture<?>[0])).handle((v, e) -> null).join();
+            if (firstFailure.isCompletedExceptionally()) {
+                AsyncUtil.join(firstFailure);
+            }
+        } catch (Exception e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        }
+        
+        List<TranscriptSegment> segments = new ArrayList<>(futures.size());
+        StringBuilder text = new StringBuilder();
+        for (CompletableFuture<TranscriptSegment> future : futures) {
+            TranscriptSegment segment = future.join();
+            segments.add(segment);
+            if (StringUtils.isNotBlank(segment.getText())) {
+                if (text.length() > 0) {
+                    text.append('\n');
                 }
+                text.append(segment.getText().trim());
             }
-            
+        }
+        return new Transcript(text.toString(), segments);
+    }
+    
+    /**
+     * 识别一个分段，相同音频内容的分段命中缓存时不再调用语音识别API
+     */
+    private String transcribeSegment(byte[] wav, int index, String apiKey, String apiBaseUrl, String model) throws Exception {
+        String audioHash = TranscriptCache.audioHash(wav);
+        String cached = transcriptCache.getSegmentText(audioHash, apiBaseUrl, model);
+        if (cached != null) {
+            return cached;
+        }
+        String text = transcribe(RequestBody.create(wav, AUDIO_WAV), "segment_" + index + ".wav", apiKey, apiBaseUrl, model);
+        transcriptCache.putSegmentText(audioHash, apiBaseUrl, model, text);
+        return text;
+    }
+    
+    private boolean isSegmented() {
+        return transcribeProperties.getSegmentSeconds() > 0;
+    }
+    
+    /**
+     * 下载视频到临时目录
+     *
+     * @param videoInfo 视频信息
+     * @return 下载的视频文件路径
+     * @throws Exception 下载失败时抛出异常
+     */
+    private Path downloadVideo(VideoInfo videoInfo) throws Exception {
+        String filename = "video_" + System.currentTimeMillis() + ".mp4";
+        Path videoPath = tempDir.resolve(filename);
+        
+        log.info("正在下载视频: {} -> {}", videoInfo.getTitle(), videoPath);
+        
+        try {
+            fileDownloader.download(mediaUrl(videoInfo), Map.of("User-Agent", USER_AGENT), videoPath);
             log.info("视频下载完成: {}", videoPath);
             return videoPath;
             
@@ -182,71 +433,52 @@ public class VideoTextExtractor {
     }
     
     /**
-     * 从视频文件中提取音频
-     *
-     * @param videoPath 视频文件路径
-     * @return 音频文件路径
-     * @throws Exception 提取失败时抛出异常
+     * 下载地址：优先纯音频流，其次视频，图集只有背景音乐
      */
-    private Path extractAudio(Path videoPath) throws Exception {
-        Path audioPath = videoPath.resolveSibling(
-                FileUtil.getPrefix(videoPath.getFileName().toString()) + ".mp3");
-        
-        log.info("正在从视频提取音频: {} -> {}", videoPath, audioPath);
-        
-        try {
-            // 使用JAVE2进行音频提取
-            File source = videoPath.toFile();
-            File target = audioPath.toFile();
-            
-            // 设置音频属性
-            AudioAttributes audio = new AudioAttributes();
-            audio.setCodec("libmp3lame");
-            audio.setBitRate(128000);
-            audio.setChannels(1);
-            audio.setSamplingRate(16000);
-            
-            // 设置编码属性
-            EncodingAttributes attrs = new EncodingAttributes();
-            attrs.setOutputFormat("mp3");
-            attrs.setAudioAttributes(audio);
-            
-            // 执行转换
-            Encoder encoder = new Encoder();
-            encoder.encode(new MultimediaObject(source), target, attrs);
-            
-            log.info("音频提取完成: {}", audioPath);
-            return audioPath;
-            
-        } catch (EncoderException e) {
-            log.error("提取音频时发生错误", e);
-            throw new Exception("提取音频失败: " + e.getMessage(), e);
+    private static String mediaUrl(VideoInfo videoInfo) {
+        if (StringUtils.isNotBlank(videoInfo.getAudioUrl())) {
+            return videoInfo.getAudioUrl();
         }
+        if (StringUtils.isNotBlank(videoInfo.getVideoUrl())) {
+            return videoInfo.getVideoUrl();
+        }
+        return videoInfo.getMusicUrl();
+    }
+    
+    private List<String> audioOutput() {
+        return isSegmented() ? FfmpegTranscoder.PCM_OUTPUT : uploadFormat.getOutputArgs();
+    }
+    
+    private LongAdder sourceCounter(String source) {
+        return sourceCounters.computeIfAbsent(source, s -> new LongAdder());
+    }
+    
+    private Request newDownloadRequest(String url) {
+        return new Request.Builder()
+                .url(url)
+                .header("User-Agent", USER_AGENT)
+                .build();
     }
     
     /**
-     * 从音频文件中提取文字
+     * 上传音频到语音识别API提取文字
      *
-     * @param audioPath  音频文件路径
+     * @param fileBody   音频内容，长度未知时以分块方式上传
+     * @param filename   音频文件名
      * @param apiKey     API密钥
      * @param apiBaseUrl API基础URL
      * @param model      语音识别模型
      * @return 提取的文本内容
      * @throws Exception 提取失败时抛出异常
      */
-    private String extractTextFromAudio(Path audioPath, String apiKey, String apiBaseUrl, String model) throws Exception {
+    private String transcribe(RequestBody fileBody, String filename, String apiKey, String apiBaseUrl, String model) throws Exception {
         log.info("正在调用语音识别API提取文本...");
         
         try {
-            File audioFile = audioPath.toFile();
-            
             // 构建multipart请求
-            RequestBody fileBody = RequestBody.create(audioFile, MediaType.parse("audio/mpeg"));
-            RequestBody modelBody = RequestBody.create(model, MediaType.parse("text/plain"));
-            
             MultipartBody requestBody = new MultipartBody.Builder()
                     .setType(MultipartBody.FORM)
-                    .addFormDataPart("file", audioFile.getName(), fileBody)
+                    .addFormDataPart("file", filename, fileBody)
                     .addFormDataPart("model", model)
                     .build();
             
@@ -325,4 +557,41 @@ public class VideoTextExtractor {
             }
         }
     }
+    
+    /**
+     * 以流的方式上传转码输出，长度未知，只能写出一次
+     */
+    private static final class AudioStreamBody extends RequestBody {
+        
+        private final InputStream audio;
+        private final MediaType mediaType;
+        private final ProgressListener listener;
+        
+        private AudioStreamBody(InputStream audio, String mediaType, ProgressListener listener) {
+            this.audio = audio;
+            this.mediaType = MediaType.parse(mediaType);
+            this.listener = listener;
+        }
+        
+        @Override
+        public MediaType contentType() {
+            return mediaType;
+        }
+        
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+        
+        @Override
+        public boolean isOneShot() {
+            return true;
+        }
+        
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            long total = sink.writeAll(Okio.source(audio));
+            listener.onProgress(ProgressListener.AUDIO_EXTRACTED, total);
+        }
+    }
 }
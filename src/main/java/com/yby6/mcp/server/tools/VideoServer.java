@@ -1,8 +1,15 @@
 package com.yby6.mcp.server.tools;
 
+import com.yby6.mcp.server.config.ToolProperties;
+import com.yby6.mcp.server.model.Transcript;
+import com.yby6.mcp.server.model.TranscriptSegment;
 import com.yby6.mcp.server.model.VideoInfo;
+import com.yby6.mcp.server.service.ProgressListener;
+import com.yby6.mcp.server.service.ToolLimiter;
+import com.yby6.mcp.server.service.TranscriptionScheduler;
 import com.yby6.mcp.server.service.VideoParseService;
 import com.yby6.mcp.server.service.VideoTextExtractor;
+import com.yby6.mcp.server.utils.AsyncUtil;
 import com.yby6.mcp.server.utils.JsonUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -11,6 +18,15 @@ import org.noear.solon.ai.mcp.server.annotation.McpServerEndpoint;
 import org.noear.solon.annotation.Inject;
 import org.noear.solon.annotation.Param;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
 /**
  * MCP工具类
  * 提供视频下载链接获取等功能，支持多平台
@@ -22,12 +38,32 @@ import org.noear.solon.annotation.Param;
 @Slf4j
 public class VideoServer {
     
+    public static final String SHARE_URL_PARSE_TOOL = "share_url_parse_tool";
+    public static final String BATCH_SHARE_URL_PARSE_TOOL = "batch_share_url_parse_tool";
+    public static final String VIDEO_ID_PARSE_TOOL = "video_id_parse_tool";
+    public static final String SHARE_TEXT_PARSE_TOOL = "share_text_parse_tool";
+    public static final String SUBMIT_SHARE_TEXT_JOB_TOOL = "submit_share_text_job";
+    public static final String POLL_SHARE_TEXT_JOB_TOOL = "poll_share_text_job";
+    
+    public static final String MISSING_API_KEY_MSG = "未设置环境变量 YBY6_API_KEY，且未提供 apiKey 参数，请在配置中添加语音识别API密钥";
+    
+    public static final String CUSTOM_BASE_URL_API_KEY_MSG = "指定 apiBaseUrl 时必须同时提供 apiKey，服务端配置的密钥只用于默认的语音识别服务";
+    
     @Inject
     private VideoParseService videoParseService;
     
     @Inject
     private VideoTextExtractor videoTextExtractor;
     
+    @Inject
+    private ToolLimiter toolLimiter;
+    
+    @Inject
+    private ToolProperties toolProperties;
+    
+    @Inject
+    private TranscriptionScheduler transcriptionScheduler;
+    
     
     /**
      * 解析视频分享链接，支持多平台
@@ -35,8 +71,12 @@ public class VideoServer {
      * @param shareUrl 分享链接
      * @return 包含视频信息的JSON字符串
      */
-    @ToolMapping(name = "share_url_parse_tool", description = "解析视频分享链接，获取视频信息，支持抖音、快手、小红书等多平台")
+    @ToolMapping(name = SHARE_URL_PARSE_TOOL, description = "解析视频分享链接，获取视频信息，支持抖音、快手、小红书等多平台")
     public String parseShareUrl(@Param(name = "shareUrl", description = "分享链接") String shareUrl) {
+        return limited(SHARE_URL_PARSE_TOOL, () -> doParseShareUrl(shareUrl));
+    }
+    
+    private String doParseShareUrl(String shareUrl) {
         try {
             log.info("开始处理分享链接: {}", shareUrl);
             
@@ -50,6 +90,73 @@ public class VideoServer {
         }
     }
     
+    /**
+     * 批量解析视频分享链接，一次调用返回每条链接的结果
+     *
+     * @param shareTexts 分享链接或包含链接的文本列表
+     * @return 包含每条链接解析结果的JSON字符串
+     */
+    @ToolMapping(name = BATCH_SHARE_URL_PARSE_TOOL, description = "批量解析视频分享链接，并行解析并逐条返回视频信息或错误，相同视频只解析一次")
+    public String batchParseShareUrl(@Param(name = "shareTexts", description = "分享链接或包含链接的文本列表") List<String> shareTexts) {
+        return limited(BATCH_SHARE_URL_PARSE_TOOL, () -> doBatchParseShareUrl(shareTexts));
+    }
+    
+    private String doBatchParseShareUrl(List<String> shareTexts) {
+        try {
+            if (shareTexts == null || shareTexts.isEmpty()) {
+                return createErrorResponse("分享链接列表不能为空");
+            }
+            if (shareTexts.size() > toolProperties.getBatchMaxItems()) {
+                return createErrorResponse("单次最多解析" + toolProperties.getBatchMaxItems() + "条链接，当前: " + shareTexts.size());
+            }
+            
+            log.info("开始批量解析分享链接: {}条", shareTexts.size());
+            
+            List<CompletableFuture<VideoInfo>> futures = videoParseService.parseShareUrlsAsync(shareTexts);
+            try {
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                        .get(toolProperties.getBatchTimeoutMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException | ExecutionException e) {
+                // 单条失败或超时在下面逐条处理
+            }
+            
+            // 逐条汇总结果
+            List<BatchItem> items = new ArrayList<>(futures.size());
+            int success = 0;
+            for (int i = 0; i < futures.size(); i++) {
+                CompletableFuture<VideoInfo> future = futures.get(i);
+                BatchItem item = new BatchItem();
+                item.shareText = shareTexts.get(i);
+                if (!future.isDone()) {
+                    // 超时的条目取消，排队中的不再启动；进行中的请求继续占用平台并发名额，直到真正结束
+                    future.cancel(true);
+                    item.code = 504;
+                    item.msg = "解析超时";
+                } else if (future.isCompletedExceptionally()) {
+                    Throwable cause = AsyncUtil.unwrap(future.handle((v, e) -> e).join());
+                    item.code = 500;
+                    item.msg = "解析失败: " + cause.getMessage();
+                } else {
+                    item.code = 200;
+                    item.msg = "解析成功";
+                    item.data = future.join();
+                    success++;
+                }
+                items.add(item);
+            }
+            
+            log.info("批量解析完成: 共{}条，成功{}条", items.size(), success);
+            return JsonUtil.toJsonString(new Response(200, "批量解析完成",
+                    new BatchResult(items.size(), success, items.size() - success, items)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return createErrorResponse("批量解析被中断");
+        } catch (Exception e) {
+            log.error("批量解析分享链接失败", e);
+            return createErrorResponse("批量解析失败: " + e.getMessage());
+        }
+    }
+    
     /**
      * 根据平台和视频ID解析视频信息
      *
@@ -57,8 +164,12 @@ public class VideoServer {
      * @param videoId 视频ID
      * @return 包含视频信息的JSON字符串
      */
-    @ToolMapping(name = "video_id_parse_tool", description = "根据视频来源和ID解析视频信息")
+    @ToolMapping(name = VIDEO_ID_PARSE_TOOL, description = "根据视频来源和ID解析视频信息")
     public String parseVideoId(String source, String videoId) {
+        return limited(VIDEO_ID_PARSE_TOOL, () -> doParseVideoId(source, videoId));
+    }
+    
+    private String doParseVideoId(String source, String videoId) {
         try {
             log.info("开始解析视频: source={}, videoId={}", source, videoId);
             
@@ -135,12 +246,12 @@ public class VideoServer {
      * 从分享链接提取视频中的文本内容（适用于所有平台）
      *
      * @param shareText  分享链接或包含链接的文本
-     * @param apiKey     语音识别API密钥（可选，如果不提供则从环境变量YBY6_API_KEY获取）
+     * @param apiKey     语音识别API密钥（可选，如果不提供则从环境变量YBY6_API_KEY获取，指定apiBaseUrl时必填）
      * @param apiBaseUrl API基础URL（可选，默认使用SiliconFlow）
      * @param model      语音识别模型（可选，默认使用SenseVoiceSmall）
      * @return 提取的文本内容
      */
-    @ToolMapping(name = "share_text_parse_tool", description = "从分享链接提取视频中的文本内容，需要传递apikey，否则无法使用视频内容提取功能！")
+    @ToolMapping(name = SHARE_TEXT_PARSE_TOOL, description = "从分享链接提取视频中的文本内容，需要传递apikey，否则无法使用视频内容提取功能！")
     public String extractTextFromShareUrl(
             @Param(name = "shareText", description = "分享链接或包含链接的文本") String shareText,
             @Param(name = "apiKey", description = "语音识别API密钥", required = false) String apiKey,
@@ -151,38 +262,113 @@ public class VideoServer {
             log.info("开始提取视频文本内容: {}", shareText);
             
             // 获取API密钥
-            String finalApiKey = apiKey;
-            if (StringUtils.isBlank(finalApiKey)) {
-                finalApiKey = System.getenv("YBY6_API_KEY");
-                if (StringUtils.isBlank(finalApiKey)) {
-                    return createErrorResponse("未设置环境变量 YBY6_API_KEY，且未提供 apiKey 参数，请在配置中添加语音识别API密钥");
-                }
+            String finalApiKey = videoTextExtractor.resolveApiKey(apiKey, apiBaseUrl);
+            if (finalApiKey == null) {
+                return createErrorResponse(missingApiKeyMsg(apiBaseUrl));
             }
             
-            if (null != apiBaseUrl && (!apiBaseUrl.startsWith("http://") && !apiBaseUrl.startsWith("https://"))) {
-                return createErrorResponse("您当前传递的API基础URL格式错误《" + apiBaseUrl + "》" + "请检查并重新设置！");
+            if (!isValidApiBaseUrl(apiBaseUrl)) {
+                return createErrorResponse(invalidApiBaseUrlMsg(apiBaseUrl));
             }
             
-            // 1. 解析视频信息
-            VideoInfo videoInfo = videoParseService.parseShareUrl(shareText);
-            
-            // 2. 提取文本内容
-            String textContent = videoTextExtractor.extractTextFromVideo(videoInfo, finalApiKey, apiBaseUrl, model);
+            // 进入识别任务队列并等待完成，队列已满时直接返回
+            TranscriptionScheduler.Job<TextExtractionResult> job = transcriptionScheduler.submit(
+                    () -> extractText(shareText, finalApiKey, apiBaseUrl, model));
             
-            // 3. 构建成功响应
+            // 构建成功响应
             Response response = new Response();
             response.code = 200;
             response.msg = "文本提取完成";
-            response.data = new TextExtractionResult(textContent, videoInfo.getTitle(), "已成功提取视频中的文本内容");
+            try {
+                response.data = AsyncUtil.join(job.getFuture());
+            } catch (InterruptedException e) {
+                // 调用方不再等待：取消结果只会跳过排队中的任务，执行中的任务需由 Job.cancel 中断工作线程才会停止
+                job.cancel();
+                throw e;
+            }
             
             return JsonUtil.toJsonString(response);
             
+        } catch (TranscriptionScheduler.QueueFullException e) {
+            return createBusyResponse(e);
         } catch (Exception e) {
             log.error("提取视频文本失败", e);
             return createErrorResponse("提取视频文本失败: " + e.getMessage());
         }
     }
     
+    /**
+     * 异步提交视频文本提取任务，立即返回任务ID
+     *
+     * @param shareText  分享链接或包含链接的文本
+     * @param apiKey     语音识别API密钥（可选，如果不提供则从环境变量YBY6_API_KEY获取，指定apiBaseUrl时必填）
+     * @param apiBaseUrl API基础URL（可选，默认使用SiliconFlow）
+     * @param model      语音识别模型（可选，默认使用SenseVoiceSmall）
+     * @return 任务ID与状态
+     */
+    @ToolMapping(name = SUBMIT_SHARE_TEXT_JOB_TOOL, description = "异步提交视频文本提取任务，立即返回任务ID，之后使用 poll_share_text_job 查询结果。需要传递apikey！")
+    public String submitShareTextJob(
+            @Param(name = "shareText", description = "分享链接或包含链接的文本") String shareText,
+            @Param(name = "apiKey", description = "语音识别API密钥", required = false) String apiKey,
+            @Param(name = "apiBaseUrl", description = "API基础URL", required = false) String apiBaseUrl,
+            @Param(name = "model", description = "语音识别模型", required = false) String model
+    ) {
+        try {
+            String finalApiKey = videoTextExtractor.resolveApiKey(apiKey, apiBaseUrl);
+            if (finalApiKey == null) {
+                return createErrorResponse(missingApiKeyMsg(apiBaseUrl));
+            }
+            
+            if (!isValidApiBaseUrl(apiBaseUrl)) {
+                return createErrorResponse(invalidApiBaseUrlMsg(apiBaseUrl));
+            }
+            
+            TranscriptionScheduler.Job<TextExtractionResult> job = transcriptionScheduler.submit(
+                    () -> extractText(shareText, finalApiKey, apiBaseUrl, model));
+            log.info("已提交视频文本提取任务: jobId={}, shareText={}", job.getId(), shareText);
+            return JsonUtil.toJsonString(new Response(200, "任务已提交", new JobResult(job)));
+            
+        } catch (TranscriptionScheduler.QueueFullException e) {
+            return createBusyResponse(e);
+        } catch (Exception e) {
+            log.error("提交视频文本提取任务失败", e);
+            return createErrorResponse("提交任务失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 查询视频文本提取任务
+     *
+     * @param jobId 任务ID
+     * @return 任务状态，已完成时包含提取结果或失败原因
+     */
+    @ToolMapping(name = POLL_SHARE_TEXT_JOB_TOOL, description = "查询 submit_share_text_job 提交的任务状态，完成后返回提取的文本内容")
+    public String pollShareTextJob(@Param(name = "jobId", description = "任务ID") String jobId) {
+        try {
+            TranscriptionScheduler.Job<?> job = transcriptionScheduler.get(jobId);
+            if (job == null) {
+                return createErrorResponse("任务不存在或结果已过期: " + jobId);
+            }
+            return JsonUtil.toJsonString(new Response(200, "查询成功", new JobResult(job)));
+        } catch (Exception e) {
+            log.error("查询视频文本提取任务失败", e);
+            return createErrorResponse("查询任务失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 解析视频并提取文本，在识别任务的工作线程上执行
+     */
+    private TextExtractionResult extractText(String shareText, String apiKey, String apiBaseUrl, String model) throws Exception {
+        // 1. 解析视频信息
+        VideoInfo videoInfo = videoParseService.parseShareUrl(shareText);
+        
+        // 2. 提取文本内容
+        String videoKey = videoParseService.canonicalKey(shareText, videoInfo);
+        Transcript transcript = videoTextExtractor.transcribeVideo(videoInfo, videoKey, apiKey, apiBaseUrl, model, ProgressListener.NONE);
+        return new TextExtractionResult(transcript, videoInfo.getTitle(), "已成功提取视频中的文本内容");
+    }
+    
     /**
      * 获取使用指南
      *
@@ -195,12 +381,44 @@ public class VideoServer {
                   "code": 200,
                   "msg": "获取成功",
                   "data": {
-                    "guide": "# 多平台视频解析使用指南\\n\\n## 功能说明\\n支持解析抖音、快手、小红书、微博、皮皮虾等平台的视频信息。\\n\\n## 工具说明\\n- `share_url_parse_tool`: 解析分享链接，自动识别平台\\n- `video_id_parse_tool`: 根据平台和视频ID解析\\n- `share_text_parse_tool`: 从分享链接提取视频中的文本内容（需要API密钥）\\n- `get_supported_platforms`: 获取支持的平台列表\\n\\n## 使用方法\\n1. 直接使用分享链接解析（推荐）\\n2. 指定平台和视频ID解析\\n3. 提取视频文本内容（需要语音识别API密钥）\\n\\n## 返回信息\\n- 视频标题、封面、下载链接\\n- 作者信息（昵称、头像等）\\n- 图集信息（如果是图片内容）\\n- 音乐信息（如果有背景音乐）\\n- 文本内容（仅限文本提取功能）"
+                    "guide": "# 多平台视频解析使用指南\\n\\n## 功能说明\\n支持解析抖音、快手、小红书、微博、皮皮虾等平台的视频信息。\\n\\n## 工具说明\\n- `share_url_parse_tool`: 解析分享链接，自动识别平台\\n- `batch_share_url_parse_tool`: 批量解析分享链接，逐条返回结果\\n- `video_id_parse_tool`: 根据平台和视频ID解析\\n- `share_text_parse_tool`: 从分享链接提取视频中的文本内容（需要API密钥）\\n- `submit_share_text_job` / `poll_share_text_job`: 异步提交文本提取任务并按任务ID查询结果\\n- `get_supported_platforms`: 获取支持的平台列表\\n\\n## 使用方法\\n1. 直接使用分享链接解析（推荐）\\n2. 指定平台和视频ID解析\\n3. 提取视频文本内容（需要语音识别API密钥）\\n\\n## 返回信息\\n- 视频标题、封面、下载链接\\n- 作者信息（昵称、头像等）\\n- 图集信息（如果是图片内容）\\n- 音乐信息（如果有背景音乐）\\n- 文本内容（仅限文本提取功能）"
                   }
                 }
                 """;
     }
     
+    /**
+     * 校验API基础URL，未传递时视为有效
+     */
+    public static boolean isValidApiBaseUrl(String apiBaseUrl) {
+        return apiBaseUrl == null || apiBaseUrl.startsWith("http://") || apiBaseUrl.startsWith("https://");
+    }
+    
+    public static String invalidApiBaseUrlMsg(String apiBaseUrl) {
+        return "您当前传递的API基础URL格式错误《" + apiBaseUrl + "》" + "请检查并重新设置！";
+    }
+    
+    /**
+     * 未能取得API密钥时的提示
+     */
+    public static String missingApiKeyMsg(String apiBaseUrl) {
+        return StringUtils.isNotBlank(apiBaseUrl) ? CUSTOM_BASE_URL_API_KEY_MSG : MISSING_API_KEY_MSG;
+    }
+    
+    /**
+     * 在工具并发上限内执行，排队超时时返回繁忙提示
+     */
+    private String limited(String tool, Supplier<String> handler) {
+        if (!toolLimiter.tryAcquire(tool)) {
+            return createErrorResponse("服务繁忙，请稍后重试");
+        }
+        try {
+            return handler.get();
+        } finally {
+            toolLimiter.release(tool);
+        }
+    }
+    
     /**
      * 创建错误响应
      */
@@ -223,6 +441,17 @@ public class VideoServer {
         }
     }
     
+    /**
+     * 创建识别队列已满的响应，附带建议的重试等待时间
+     */
+    private String createBusyResponse(TranscriptionScheduler.QueueFullException e) {
+        try {
+            return JsonUtil.toJsonString(new Response(429, e.getMessage(), Map.of("retryAfterSeconds", e.getRetryAfterSeconds())));
+        } catch (Exception ex) {
+            return createErrorResponse(e.getMessage());
+        }
+    }
+    
     /**
      * 转义JSON字符串中的特殊字符
      */
@@ -273,6 +502,57 @@ public class VideoServer {
         }
     }
     
+    /**
+     * 批量解析结果
+     */
+    public static class BatchResult {
+        public int total;
+        public int success;
+        public int failed;
+        public List<BatchItem> items;
+        
+        public BatchResult(int total, int success, int failed, List<BatchItem> items) {
+            this.total = total;
+            this.success = success;
+            this.failed = failed;
+            this.items = items;
+        }
+    }
+    
+    /**
+     * 批量解析中单条链接的结果
+     */
+    public static class BatchItem {
+        public String shareText;
+        public int code;
+        public String msg;
+        public Object data;
+    }
+    
+    /**
+     * 异步文本提取任务状态
+     */
+    public static class JobResult {
+        public String jobId;
+        public String status;
+        public long waitMillis;
+        public long runMillis;
+        public Object result;
+        public String error;
+        
+        public JobResult(TranscriptionScheduler.Job<?> job) {
+            this.jobId = job.getId();
+            this.status = job.getStatus().name();
+            this.waitMillis = job.getWaitMillis();
+            this.runMillis = job.getRunMillis();
+            if (job.getStatus() == TranscriptionScheduler.JobStatus.SUCCEEDED) {
+                this.result = job.getFuture().join();
+            } else if (job.getStatus() == TranscriptionScheduler.JobStatus.FAILED) {
+                this.error = AsyncUtil.unwrap(job.getFuture().handle((v, e) -> e).join()).getMessage();
+            }
+        }
+    }
+    
     /**
      * 文本提取结果
      */
@@ -280,11 +560,17 @@ public class VideoServer {
         public String textContent;
         public String videoTitle;
         public String message;
+        public List<TranscriptSegment> segments;
         
         public TextExtractionResult(String textContent, String videoTitle, String message) {
             this.textContent = textContent;
             this.videoTitle = videoTitle;
             this.message = message;
         }
+        
+        public TextExtractionResult(Transcript transcript, String videoTitle, String message) {
+            this(transcript.getText(), videoTitle, message);
+            this.segments = transcript.getSegments().isEmpty() ? null : transcript.getSegments();
+        }
     }
 }
@@ -0,0 +1,137 @@
+package com.yby6.mcp.server.utils;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 异步并发限制器
+ * 同时进行中的异步任务不超过上限，超出的任务排队，前一个任务完成后再启动，排队期间不占用线程。
+ * 取消返回的结果时，排队中的任务不再启动；进行中的任务不取消，继续占用名额直到其结果完成。
+ * 取消上层的结果并不能中止底层已发出的HTTP请求（单飞共享、对冲请求仍在进行），提前归还名额会让新任务与旧请求叠加，超出并发上限
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public class AsyncLimiter {
+    
+    private final int maxConcurrency;
+    private final Queue<Runnable> pending = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private int active;
+    private boolean draining;
+    
+    /**
+     * @param maxConcurrency 最大并发数
+     */
+    public AsyncLimiter(int maxConcurrency) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+    }
+    
+    /**
+     * 提交异步任务，有空闲名额时立即启动，否则排队
+     *
+     * @param task 异步任务
+     * @return 任务结果
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            if (result.isDone()) {
+                // 排队期间已被取消
+                release();
+                return;
+            }
+            CompletableFuture<T> running;
+            try {
+                running = task.get();
+            } catch (Exception e) {
+                running = CompletableFuture.failedFuture(e);
+            }
+            running.whenComplete((value, e) -> {
+                release();
+                if (e != null) {
+                    result.completeExceptionally(AsyncUtil.unwrap(e));
+                } else {
+                    result.complete(value);
+                }
+            });
+        };
+        
+        lock.lock();
+        try {
+            pending.add(start);
+        } finally {
+            lock.unlock();
+        }
+        drain();
+        return result;
+    }
+    
+    /**
+     * 获取统计信息
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            stats.put("limit", maxConcurrency);
+            stats.put("active", active);
+            stats.put("queued", pending.size());
+        } finally {
+            lock.unlock();
+        }
+        return stats;
+    }
+    
+    /**
+     * 任务完成后归还名额并启动排队任务
+     */
+    private void release() {
+        lock.lock();
+        try {
+            active--;
+        } finally {
+            lock.unlock();
+        }
+        drain();
+    }
+    
+    /**
+     * 在名额允许范围内依次启动排队任务
+     * 同一时刻只有一个线程负责启动，任务同步完成时在外层循环中继续，避免逐层递归导致栈溢出
+     */
+    private void drain() {
+        lock.lock();
+        try {
+            if (draining) {
+                return;
+            }
+            draining = true;
+        } finally {
+            lock.unlock();
+        }
+        
+        while (true) {
+            Runnable next;
+            lock.lock();
+            try {
+                next = active < maxConcurrency ? pending.poll() : null;
+                if (next == null) {
+                    draining = false;
+                    return;
+                }
+                active++;
+            } finally {
+                lock.unlock();
+            }
+            next.run();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.yby6.mcp.server.utils;
+
+import org.noear.solon.Solon;
+import org.noear.solon.core.util.NamedThreadFactory;
+import org.noear.solon.core.util.ThreadsUtil;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * 异步工具类
+ * 在CompletableFuture链路中使用可抛出受检异常的处理逻辑，并在同步调用处还原原始异常
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public final class AsyncUtil {
+    
+    private AsyncUtil() {
+    }
+    
+    /**
+     * 可抛出异常的转换函数
+     *
+     * @param <T> 输入类型
+     * @param <R> 输出类型
+     */
+    @FunctionalInterface
+    public interface CheckedFunction<T, R> {
+        
+        R apply(T t) throws Exception;
+    }
+    
+    /**
+     * 包装为可用于 thenCompose 的函数，异常转为失败的Future
+     *
+     * @param fn 转换函数
+     * @return 包装后的函数
+     */
+    public static <T, R> Function<T, CompletableFuture<R>> checked(CheckedFunction<T, R> fn) {
+        return t -> {
+            try {
+                return CompletableFuture.completedFuture(fn.apply(t));
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        };
+    }
+    
+    /**
+     * 是否启用了虚拟线程模式（solon.threads.virtual.enabled=true，且运行在Java 21及以上）
+     *
+     * @return 是否启用
+     */
+    public static boolean isVirtualThreadsEnabled() {
+        return Solon.app() != null && Solon.cfg().isEnabledVirtualThreads();
+    }
+    
+    /**
+     * 创建执行阻塞任务的线程池：虚拟线程模式下每个任务一个虚拟线程，否则按需创建守护线程
+     *
+     * @param namePrefix 平台线程名前缀
+     * @return 线程池
+     */
+    public static ExecutorService newBlockingExecutor(String namePrefix) {
+        if (isVirtualThreadsEnabled()) {
+            return ThreadsUtil.newVirtualThreadPerTaskExecutor();
+        }
+        return Executors.newCachedThreadPool(new NamedThreadFactory(namePrefix).daemon(true));
+    }
+    
+    /**
+     * 在阻塞任务线程池上执行同步逻辑，用于尚未提供异步实现的调用
+     *
+     * @param task 同步逻辑
+     * @return 异步结果
+     */
+    public static <T> CompletableFuture<T> supplyBlocking(Callable<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, BlockingExecutorHolder.EXECUTOR);
+    }
+    
+    /**
+     * 去掉CompletableFuture包装的异常，返回原始异常
+     *
+     * @param e 异常
+     * @return 原始异常
+     */
+    public static Throwable unwrap(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+    
+    /**
+     * 等待异步结果，失败时抛出原始异常
+     *
+     * @param future 异步结果
+     * @return 结果
+     * @throws Exception 原始异常
+     */
+    public static <T> T join(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof Exception ex) {
+                throw ex;
+            }
+            throw e;
+        }
+    }
+    
+    // 首次使用时创建，此时容器配置已加载完成
+    private static final class BlockingExecutorHolder {
+        
+        private static final ExecutorService EXECUTOR = newBlockingExecutor("blocking-task-");
+    }
+}
@@ -0,0 +1,339 @@
+package com.yby6.mcp.server.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * 追加写日志结构的本地键值存储
+ * 每条记录依次追加到单个文件末尾，内存中只保存键到文件位置的索引，重启时顺序扫描文件重建索引；
+ * 文件超过容量上限时，按最近访问顺序保留部分条目重写文件（同时清除被覆盖的旧记录）
+ * <p>
+ * 记录格式：payload长度(4) CRC32(4) payload[键长度(2) 键(UTF-8) 值]，
+ * 写入中途退出造成的不完整或校验失败的尾部记录在打开时截断
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@Slf4j
+public class DiskLogStore implements Closeable {
+    
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+    
+    // 压缩后保留的数据量占容量上限的比例，避免每次写入都触发重写
+    private static final double COMPACT_RETAIN_RATIO = 0.75;
+    
+    private final Path file;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Location> index = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    
+    private FileChannel channel;
+    private long fileSize;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+    
+    private DiskLogStore(Path file, long maxBytes) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+    }
+    
+    /**
+     * 打开存储文件，不存在时创建
+     *
+     * @param file     数据文件
+     * @param maxBytes 文件大小上限（字节）
+     * @return 存储
+     * @throws IOException 文件读写失败
+     */
+    public static DiskLogStore open(Path file, long maxBytes) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        DiskLogStore store = new DiskLogStore(file, maxBytes);
+        store.load();
+        return store;
+    }
+    
+    /**
+     * 读取值
+     *
+     * @param key 键
+     * @return 值，不存在或记录损坏时返回null
+     * @throws IOException 文件读取失败
+     */
+    public byte[] get(String key) throws IOException {
+        lock.lock();
+        try {
+            Location location = index.get(key);
+            if (location == null) {
+                misses.increment();
+                return null;
+            }
+            ByteBuffer record = ByteBuffer.allocate(location.length());
+            readFully(channel, record, location.offset());
+            byte[] value = decode(record.array(), key);
+            if (value == null) {
+                log.warn("本地存储记录校验失败，已忽略: {}", key);
+                index.remove(key);
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 写入值，键已存在时覆盖
+     *
+     * @param key   键
+     * @param value 值
+     * @throws IOException 文件写入失败
+     */
+    public void put(String key, byte[] value) throws IOException {
+        byte[] record = encode(key, value);
+        lock.lock();
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            long offset = fileSize;
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+            fileSize += record.length;
+            index.put(key, new Location(offset, record.length));
+            writes.increment();
+            if (fileSize > maxBytes) {
+                compact();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int size() {
+        lock.lock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 获取统计信息
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            stats.put("size", index.size());
+            stats.put("fileBytes", fileSize);
+        } finally {
+            lock.unlock();
+        }
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("writes", writes.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("compactions", compactions.sum());
+        return stats;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 顺序扫描文件重建索引，截断损坏的尾部
+     */
+    private void load() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long offset = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length < 2 || length > MAX_RECORD_BYTES) {
+                    break;
+                }
+                byte[] record = new byte[HEADER_BYTES + length];
+                ByteBuffer.wrap(record).putInt(length);
+                try {
+                    in.readFully(record, 4, record.length - 4);
+                } catch (EOFException e) {
+                    break;
+                }
+                String key = keyOf(record);
+                if (key == null || decode(record, key) == null) {
+                    break;
+                }
+                index.put(key, new Location(offset, record.length));
+                offset += record.length;
+            }
+        }
+        if (offset < channel.size()) {
+            log.warn("本地存储文件尾部不完整，从{}字节处截断（原{}字节）: {}", offset, channel.size(), file);
+            channel.truncate(offset);
+        }
+        fileSize = offset;
+        log.info("本地存储已加载: {}，{}条记录，{}字节", file, index.size(), fileSize);
+    }
+    
+    /**
+     * 按最近访问顺序保留条目直到达到保留比例，其余淘汰，写入新文件后原子替换
+     * 新文件中条目按最久未访问到最近访问排列，重启后的淘汰顺序与之一致。
+     * 写入或替换失败时删除临时文件，原文件、通道与索引保持不变，下次写入时重试
+     */
+    private void compact() throws IOException {
+        List<Map.Entry<String, Location>> entries = new ArrayList<>(index.entrySet());
+        long budget = (long) (maxBytes * COMPACT_RETAIN_RATIO);
+        int first = entries.size();
+        long retained = 0;
+        while (first > 0 && retained + entries.get(first - 1).getValue().length() <= budget) {
+            first--;
+            retained += entries.get(first).getValue().length();
+        }
+        
+        Path tmp = file.resolveSibling(file.getFileName() + ".compact");
+        LinkedHashMap<String, Location> compacted = new LinkedHashMap<>(16, 0.75f, true);
+        // 新通道直接打开在临时文件上，替换后继续使用，替换前任何一步失败都不影响当前通道
+        FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long offset = 0;
+            for (int i = first; i < entries.size(); i++) {
+                Location location = entries.get(i).getValue();
+                long copied = 0;
+                while (copied < location.length()) {
+                    copied += channel.transferTo(location.offset() + copied, location.length() - copied, out);
+                }
+                compacted.put(entries.get(i).getKey(), new Location(offset, location.length()));
+                offset += location.length();
+            }
+            out.force(true);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            try {
+                out.close();
+                Files.deleteIfExists(tmp);
+            } catch (IOException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            throw e;
+        }
+        
+        FileChannel previous = channel;
+        channel = out;
+        try {
+            previous.close();
+        } catch (IOException e) {
+            log.warn("关闭压缩前的本地存储文件失败: {}", e.getMessage());
+        }
+        
+        evictions.add(first);
+        compactions.increment();
+        log.info("本地存储压缩完成: {}字节 -> {}字节，淘汰{}条", fileSize, retained, first);
+        index.clear();
+        index.putAll(compacted);
+        fileSize = retained;
+    }
+    
+    private static byte[] encode(String key, byte[] value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("键过长: " + keyBytes.length);
+        }
+        int length = 2 + keyBytes.length + value.length;
+        if (length > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("记录过大: " + length);
+        }
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + length);
+        record.putInt(length);
+        record.putInt(0);
+        record.putShort((short) keyBytes.length);
+        record.put(keyBytes);
+        record.put(value);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_BYTES, length);
+        record.putInt(4, (int) crc.getValue());
+        return record.array();
+    }
+    
+    /**
+     * 校验记录并取出值，键不一致或校验失败时返回null
+     */
+    private static byte[] decode(byte[] record, String key) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        int length = buffer.getInt(0);
+        if (length != record.length - HEADER_BYTES) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record, HEADER_BYTES, length);
+        if ((int) crc.getValue() != buffer.getInt(4) || !key.equals(keyOf(record))) {
+            return null;
+        }
+        int valueOffset = HEADER_BYTES + 2 + buffer.getShort(HEADER_BYTES);
+        byte[] value = new byte[record.length - valueOffset];
+        System.arraycopy(record, valueOffset, value, 0, value.length);
+        return value;
+    }
+    
+    private static String keyOf(byte[] record) {
+        int keyLength = ByteBuffer.wrap(record).getShort(HEADER_BYTES);
+        if (keyLength < 0 || HEADER_BYTES + 2 + keyLength > record.length) {
+            return null;
+        }
+        return new String(record, HEADER_BYTES + 2, keyLength, StandardCharsets.UTF_8);
+    }
+    
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("本地存储文件长度不足");
+            }
+        }
+    }
+    
+    private record Location(long offset, int length) {
+    }
+}
@@ -0,0 +1,76 @@
+package com.yby6.mcp.server.utils;
+
+import com.fasterxml.jackson.core.filter.TokenFilter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按路径过滤的JSON令牌过滤器
+ * 配合 {@link JsonUtil#readFiltered} 使用，解析时直接跳过路径之外的子树，
+ * 只为需要的字段创建节点，结果保留原有的层级结构
+ * <p>
+ * 路径写法与JsonPointer一致，如 /loaderData/&#42;/videoInfoRes/item_list/0/desc，
+ * 其中 &#42; 匹配任意字段名或数组下标
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public final class JsonPathFilter extends TokenFilter {
+    
+    // 通配符，匹配任意字段名或数组下标
+    public static final String ANY = "*";
+    
+    private final Map<String, JsonPathFilter> children = new HashMap<>();
+    private boolean leaf;
+    
+    private JsonPathFilter() {
+    }
+    
+    /**
+     * 根据路径创建过滤器，路径末端的值（包括其下所有内容）会被完整保留
+     *
+     * @param paths 路径
+     * @return {@link JsonPathFilter }
+     */
+    public static JsonPathFilter of(String... paths) {
+        JsonPathFilter root = new JsonPathFilter();
+        for (String path : paths) {
+            JsonPathFilter node = root;
+            for (String segment : path.split("/")) {
+                if (!segment.isEmpty()) {
+                    node = node.children.computeIfAbsent(segment, k -> new JsonPathFilter());
+                }
+            }
+            node.leaf = true;
+        }
+        return root;
+    }
+    
+    @Override
+    public TokenFilter includeProperty(String name) {
+        return child(name);
+    }
+    
+    @Override
+    public TokenFilter includeElement(int index) {
+        return child(String.valueOf(index));
+    }
+    
+    @Override
+    protected boolean _includeScalar() {
+        // 路径中间位置出现的标量值不保留
+        return false;
+    }
+    
+    private TokenFilter child(String segment) {
+        JsonPathFilter child = children.get(segment);
+        if (child == null) {
+            child = children.get(ANY);
+        }
+        if (child == null) {
+            return null;
+        }
+        return child.leaf ? TokenFilter.INCLUDE_ALL : child;
+    }
+}
@@ -1,9 +1,21 @@
 package com.yby6.mcp.server.utils;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.filter.FilteringParserDelegate;
+import com.fasterxml.jackson.core.filter.TokenFilter;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
 /**
  * JSON工具类
  * 统一管理ObjectMapper实例，避免重复创建
@@ -16,6 +28,8 @@ public class JsonUtil {
     
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
     
+    private static final ObjectMapper YAML_MAPPER = new ObjectMapper(new YAMLFactory());
+    
     private JsonUtil() {
         // 私有构造函数，防止实例化
     }
@@ -40,6 +54,69 @@ public class JsonUtil {
         }
     }
     
+    /**
+     * 按路径过滤解析JSON，路径之外的子树在解析时直接跳过，不创建节点
+     *
+     * @param mapper 解析使用的ObjectMapper（JSON或YAML）
+     * @param in     数据流
+     * @param filter 路径过滤器
+     * @return 只包含所需路径的JsonNode，没有匹配内容时返回MissingNode
+     * @throws IOException 解析异常
+     */
+    public static JsonNode readFiltered(ObjectMapper mapper, InputStream in, TokenFilter filter) throws IOException {
+        return readFiltered(mapper, mapper.createParser(in), filter);
+    }
+    
+    /**
+     * 按路径过滤解析JSON文本
+     *
+     * @param mapper 解析使用的ObjectMapper（JSON或YAML）
+     * @param text   文本
+     * @param filter 路径过滤器
+     * @return 只包含所需路径的JsonNode，没有匹配内容时返回MissingNode
+     * @throws IOException 解析异常
+     */
+    public static JsonNode readFiltered(ObjectMapper mapper, String text, TokenFilter filter) throws IOException {
+        return readFiltered(mapper, mapper.createParser(text), filter);
+    }
+    
+    /**
+     * 宽松模式按路径过滤解析页面中的JS对象字面量
+     * 字符串之外的 undefined 视为 null，忽略结尾的分号，其余按标准JSON解析
+     *
+     * @param in     数据流（UTF-8）
+     * @param filter 路径过滤器
+     * @return 只包含所需路径的JsonNode，没有匹配内容时返回MissingNode
+     * @throws IOException 解析异常（含有其他非JSON字面量时）
+     */
+    public static JsonNode readLenient(InputStream in, TokenFilter filter) throws IOException {
+        return readLenient(new InputStreamReader(in, StandardCharsets.UTF_8), filter);
+    }
+    
+    /**
+     * 宽松模式按路径过滤解析JS对象字面量文本
+     *
+     * @param text   页面数据文本
+     * @param filter 路径过滤器
+     * @return 只包含所需路径的JsonNode，没有匹配内容时返回MissingNode
+     * @throws IOException 解析异常（含有其他非JSON字面量时）
+     */
+    public static JsonNode readLenient(String text, TokenFilter filter) throws IOException {
+        return readLenient(new StringReader(text), filter);
+    }
+    
+    private static JsonNode readLenient(Reader reader, TokenFilter filter) throws IOException {
+        return readFiltered(OBJECT_MAPPER, OBJECT_MAPPER.createParser(new LenientJsonReader(reader)), filter);
+    }
+    
+    private static JsonNode readFiltered(ObjectMapper mapper, JsonParser source, TokenFilter filter) throws IOException {
+        try (JsonParser parser = new FilteringParserDelegate(source, filter,
+                TokenFilter.Inclusion.INCLUDE_ALL_AND_PATH, true)) {
+            JsonNode node = mapper.readTree(parser);
+            return node != null ? node : MissingNode.getInstance();
+        }
+    }
+    
     /**
      * 将对象转换为JSON字符串
      *
@@ -90,4 +167,13 @@ public class JsonUtil {
     public static ObjectMapper getObjectMapper() {
         return OBJECT_MAPPER;
     }
+    
+    /**
+     * 获取YAML ObjectMapper实例（页面数据含有宽松JSON模式无法处理的字面量时兜底使用）
+     *
+     * @return ObjectMapper实例
+     */
+    public static ObjectMapper getYamlMapper() {
+        return YAML_MAPPER;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,147 @@
+package com.yby6.mcp.server.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * 宽松JSON字符流
+ * 位于Jackson解析器之前，边读边把字符串之外的 undefined 替换为等长的 "null     "，分号替换为空格，
+ * 替换保持长度不变，解析出错时的位置与原文一致；只缓冲一个读取块，不需要先把整段数据读成字符串
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+final class LenientJsonReader extends Reader {
+    
+    private static final String UNDEFINED = "undefined";
+    private static final String UNDEFINED_REPLACEMENT = "null     ";
+    private static final int BUFFER_SIZE = 8 * 1024;
+    
+    private final Reader in;
+    private final char[] buf = new char[BUFFER_SIZE];
+    // [pos, scanned) 已完成替换可以返回，[scanned, limit) 尚未扫描
+    private int pos;
+    private int scanned;
+    private int limit;
+    private boolean eof;
+    
+    // 扫描状态跨读取块保留
+    private boolean inString;
+    private boolean escaped;
+    private boolean afterIdentifier;
+    
+    LenientJsonReader(Reader in) {
+        this.in = in;
+    }
+    
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (pos == scanned && !scan()) {
+            return -1;
+        }
+        int n = Math.min(len, scanned - pos);
+        System.arraycopy(buf, pos, cbuf, off, n);
+        pos += n;
+        return n;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+    
+    /**
+     * 扫描出至少一个可返回的字符，数据读完时返回false
+     */
+    private boolean scan() throws IOException {
+        while (true) {
+            rewrite();
+            if (scanned > pos) {
+                return true;
+            }
+            if (eof) {
+                return false;
+            }
+            fill();
+        }
+    }
+    
+    /**
+     * 替换已读入的字符，疑似 undefined 但后续字符还没读入时停在该处，等待下次读取
+     */
+    private void rewrite() {
+        int i = scanned;
+        while (i < limit) {
+            char c = buf[i];
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+                afterIdentifier = false;
+            } else if (c == '"') {
+                inString = true;
+                afterIdentifier = false;
+            } else if (c == ';') {
+                buf[i] = ' ';
+                afterIdentifier = false;
+            } else if (c == 'u' && !afterIdentifier) {
+                // 需要看到 undefined 之后的一个字符才能判断是否为完整的标识符
+                if (i + UNDEFINED.length() >= limit && !eof) {
+                    break;
+                }
+                if (isUndefinedAt(i)) {
+                    UNDEFINED_REPLACEMENT.getChars(0, UNDEFINED_REPLACEMENT.length(), buf, i);
+                    i += UNDEFINED_REPLACEMENT.length();
+                    afterIdentifier = false;
+                    continue;
+                }
+                afterIdentifier = true;
+            } else {
+                afterIdentifier = Character.isJavaIdentifierPart(c);
+            }
+            i++;
+        }
+        scanned = i;
+    }
+    
+    private boolean isUndefinedAt(int at) {
+        int after = at + UNDEFINED.length();
+        if (after > limit) {
+            return false;
+        }
+        if (after < limit && Character.isJavaIdentifierPart(buf[after])) {
+            return false;
+        }
+        for (int i = 1; i < UNDEFINED.length(); i++) {
+            if (buf[at + i] != UNDEFINED.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 将未返回的字符移到缓冲区开头并继续读入
+     */
+    private void fill() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            scanned -= pos;
+            limit -= pos;
+            pos = 0;
+        }
+        int n = in.read(buf, limit, buf.length - limit);
+        if (n < 0) {
+            eof = true;
+        } else {
+            limit += n;
+        }
+    }
+}
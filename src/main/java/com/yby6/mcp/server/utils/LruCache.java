@@ -0,0 +1,144 @@
+package com.yby6.mcp.server.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 有界LRU缓存
+ * 同时按容量和存活时间淘汰，并记录命中/未命中/淘汰次数
+ * 使用ReentrantLock而非synchronized，避免在虚拟线程上发生载体线程钉住
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public class LruCache<K, V> {
+    
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final ReentrantLock lock = new ReentrantLock();
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    
+    /**
+     * @param maxSize   最大条目数
+     * @param ttlMillis 存活时间（毫秒），小于等于0表示不过期
+     */
+    public LruCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+    
+    /**
+     * 获取缓存值，过期条目视为未命中
+     *
+     * @param key 键
+     * @return 缓存值，不存在时返回null
+     */
+    public V get(K key) {
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            if (entry.isExpired(System.currentTimeMillis())) {
+                entries.remove(key);
+                expirations.increment();
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 写入缓存，超出容量时淘汰最久未访问的条目
+     *
+     * @param key   键
+     * @param value 值
+     */
+    public void put(K key, V value) {
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            entries.put(key, new Entry<>(value, ttlMillis > 0 ? now + ttlMillis : Long.MAX_VALUE));
+            if (entries.size() > maxSize) {
+                evictOverflow(now);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 移除缓存
+     *
+     * @param key 键
+     */
+    public void remove(K key) {
+        lock.lock();
+        try {
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 获取统计信息
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        return stats;
+    }
+    
+    /**
+     * 按LRU顺序淘汰最久未访问的条目，已过期的条目计入过期次数
+     */
+    private void evictOverflow(long now) {
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (iterator.hasNext() && entries.size() > maxSize) {
+            boolean expired = iterator.next().isExpired(now);
+            iterator.remove();
+            (expired ? expirations : evictions).increment();
+        }
+    }
+    
+    private record Entry<V>(V value, long expiresAt) {
+        
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
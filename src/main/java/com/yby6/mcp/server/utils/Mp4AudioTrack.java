@@ -0,0 +1,324 @@
+package com.yby6.mcp.server.utils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MP4音轨索引
+ * 从moov中找出AAC音轨，得到每个音频chunk在文件中的位置与其中每个采样的大小，
+ * 配合HTTP Range只下载音频数据，并为每个采样补上ADTS头以便ffmpeg直接解码
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public final class Mp4AudioTrack {
+    
+    private static final int ADTS_HEADER_LENGTH = 7;
+    
+    private final int profile;
+    private final int sampleRateIndex;
+    private final int channelConfig;
+    private final List<Chunk> chunks;
+    
+    private Mp4AudioTrack(int profile, int sampleRateIndex, int channelConfig, List<Chunk> chunks) {
+        this.profile = profile;
+        this.sampleRateIndex = sampleRateIndex;
+        this.channelConfig = channelConfig;
+        this.chunks = chunks;
+    }
+    
+    /**
+     * 解析moov
+     *
+     * @param moov 完整的moov box（包含box头）
+     * @return 音轨索引，没有AAC-LC音轨或结构无法识别时返回null
+     */
+    public static Mp4AudioTrack parse(byte[] moov) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(moov);
+            ByteBuffer moovBody = child(buffer, 0, moov.length, "moov");
+            if (moovBody == null) {
+                return null;
+            }
+            for (ByteBuffer trak : children(moovBody, "trak")) {
+                ByteBuffer mdia = child(trak, "mdia");
+                ByteBuffer hdlr = mdia != null ? child(mdia, "hdlr") : null;
+                if (hdlr == null || !"soun".equals(fourCc(hdlr, hdlr.position() + 8))) {
+                    continue;
+                }
+                ByteBuffer minf = child(mdia, "minf");
+                ByteBuffer stbl = minf != null ? child(minf, "stbl") : null;
+                return stbl != null ? parseSampleTable(stbl) : null;
+            }
+            return null;
+        } catch (RuntimeException e) {
+            // 结构损坏或使用了不支持的扩展
+            return null;
+        }
+    }
+    
+    /**
+     * 音频chunk，按解码顺序（同时也是文件偏移顺序）排列
+     */
+    public List<Chunk> getChunks() {
+        return chunks;
+    }
+    
+    /**
+     * 音频数据总字节数
+     */
+    public long getAudioBytes() {
+        long total = 0;
+        for (Chunk chunk : chunks) {
+            total += chunk.getLength();
+        }
+        return total;
+    }
+    
+    /**
+     * 把一个chunk的原始数据转为ADTS帧序列
+     *
+     * @param chunk 音频chunk
+     * @param data  包含该chunk的数据
+     * @param from  chunk在data中的起始位置
+     * @return ADTS帧序列
+     */
+    public byte[] toAdts(Chunk chunk, byte[] data, int from) {
+        int[] sizes = chunk.getSampleSizes();
+        byte[] adts = new byte[(int) chunk.getLength() + sizes.length * ADTS_HEADER_LENGTH];
+        int in = from;
+        int out = 0;
+        for (int size : sizes) {
+            int frameLength = size + ADTS_HEADER_LENGTH;
+            adts[out] = (byte) 0xFF;
+            adts[out + 1] = (byte) 0xF1;
+            adts[out + 2] = (byte) ((profile << 6) | (sampleRateIndex << 2) | (channelConfig >> 2));
+            adts[out + 3] = (byte) (((channelConfig & 3) << 6) | (frameLength >> 11));
+            adts[out + 4] = (byte) (frameLength >> 3);
+            adts[out + 5] = (byte) (((frameLength & 7) << 5) | 0x1F);
+            adts[out + 6] = (byte) 0xFC;
+            System.arraycopy(data, in, adts, out + ADTS_HEADER_LENGTH, size);
+            in += size;
+            out += frameLength;
+        }
+        return adts;
+    }
+    
+    private static Mp4AudioTrack parseSampleTable(ByteBuffer stbl) {
+        ByteBuffer stsd = child(stbl, "stsd");
+        ByteBuffer stsz = child(stbl, "stsz");
+        ByteBuffer stsc = child(stbl, "stsc");
+        ByteBuffer stco = child(stbl, "stco");
+        ByteBuffer co64 = child(stbl, "co64");
+        if (stsd == null || stsz == null || stsc == null || (stco == null && co64 == null)) {
+            return null;
+        }
+        
+        // stsd: version/flags(4) entry_count(4)，第一个条目需为mp4a
+        int entry = stsd.position() + 8;
+        if (!"mp4a".equals(fourCc(stsd, entry + 4))) {
+            return null;
+        }
+        int entryEnd = entry + stsd.getInt(entry);
+        // AudioSampleEntry固定部分28字节之后是子box，QuickTime的v1/v2声音描述分别多出16/36字节
+        int version = stsd.getShort(entry + 16);
+        int extension = version == 1 ? 16 : version == 2 ? 36 : 0;
+        ByteBuffer esds = child(stsd, entry + 8 + 28 + extension, entryEnd, "esds");
+        byte[] config = esds != null ? audioSpecificConfig(esds) : null;
+        if (config == null || config.length < 2) {
+            return null;
+        }
+        int objectType = (config[0] & 0xFF) >> 3;
+        int sampleRateIndex = ((config[0] & 0x07) << 1) | ((config[1] & 0xFF) >> 7);
+        int channelConfig = ((config[1] & 0xFF) >> 3) & 0x0F;
+        // ADTS只能表示AAC Main/LC/SSR/LTP，且需要标准采样率与声道配置
+        if (objectType < 1 || objectType > 4 || sampleRateIndex > 12 || channelConfig == 0) {
+            return null;
+        }
+        
+        // stsz: version/flags(4) sample_size(4) sample_count(4) [entry_size...]
+        int base = stsz.position();
+        int uniformSize = stsz.getInt(base + 4);
+        int sampleCount = stsz.getInt(base + 8);
+        
+        long[] chunkOffsets;
+        ByteBuffer offsets = stco != null ? stco : co64;
+        int offsetBase = offsets.position();
+        int chunkCount = offsets.getInt(offsetBase + 4);
+        chunkOffsets = new long[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            chunkOffsets[i] = stco != null
+                    ? Integer.toUnsignedLong(offsets.getInt(offsetBase + 8 + i * 4))
+                    : offsets.getLong(offsetBase + 8 + i * 8);
+        }
+        
+        // stsc: version/flags(4) entry_count(4) [first_chunk(4) samples_per_chunk(4) sample_description_index(4)...]
+        int stscBase = stsc.position();
+        int stscCount = stsc.getInt(stscBase + 4);
+        List<Chunk> chunks = new ArrayList<>(chunkCount);
+        int sample = 0;
+        for (int e = 0; e < stscCount; e++) {
+            int firstChunk = stsc.getInt(stscBase + 8 + e * 12) - 1;
+            int samplesPerChunk = stsc.getInt(stscBase + 8 + e * 12 + 4);
+            int lastChunk = e + 1 < stscCount ? stsc.getInt(stscBase + 8 + (e + 1) * 12) - 1 : chunkCount;
+            for (int c = firstChunk; c < lastChunk && c < chunkCount; c++) {
+                int[] sizes = new int[Math.min(samplesPerChunk, sampleCount - sample)];
+                long length = 0;
+                for (int s = 0; s < sizes.length; s++) {
+                    sizes[s] = uniformSize != 0 ? uniformSize : stsz.getInt(base + 12 + (sample + s) * 4);
+                    length += sizes[s];
+                }
+                sample += sizes.length;
+                if (sizes.length > 0) {
+                    chunks.add(new Chunk(chunkOffsets[c], length, sizes));
+                }
+            }
+        }
+        if (chunks.isEmpty()) {
+            return null;
+        }
+        // 按解码顺序依次下载，要求chunk在文件中也按顺序存放
+        for (int i = 1; i < chunks.size(); i++) {
+            if (chunks.get(i).getOffset() < chunks.get(i - 1).getOffset() + chunks.get(i - 1).getLength()) {
+                return null;
+            }
+        }
+        return new Mp4AudioTrack(objectType - 1, sampleRateIndex, channelConfig, chunks);
+    }
+    
+    /**
+     * 从esds的描述符中取出DecoderSpecificInfo（AudioSpecificConfig）
+     */
+    private static byte[] audioSpecificConfig(ByteBuffer esds) {
+        // version/flags(4)
+        int pos = esds.position() + 4;
+        int end = esds.limit();
+        while (pos < end) {
+            int tag = esds.get(pos++) & 0xFF;
+            int length = 0;
+            for (int i = 0; i < 4 && pos < end; i++) {
+                int b = esds.get(pos++) & 0xFF;
+                length = (length << 7) | (b & 0x7F);
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+            }
+            if (tag == 0x03) {
+                // ES_Descriptor: ES_ID(2) flags(1) [dependsOn(2)] [URL] [OCR_ES_ID(2)]
+                int flags = esds.get(pos + 2) & 0xFF;
+                pos += 3;
+                if ((flags & 0x80) != 0) {
+                    pos += 2;
+                }
+                if ((flags & 0x40) != 0) {
+                    pos += 1 + (esds.get(pos) & 0xFF);
+                }
+                if ((flags & 0x20) != 0) {
+                    pos += 2;
+                }
+            } else if (tag == 0x04) {
+                // DecoderConfigDescriptor: objectType(1) streamType(1) bufferSize(3) maxBitrate(4) avgBitrate(4)
+                pos += 13;
+            } else if (tag == 0x05) {
+                byte[] config = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    config[i] = esds.get(pos + i);
+                }
+                return config;
+            } else {
+                pos += length;
+            }
+        }
+        return null;
+    }
+    
+    private static ByteBuffer child(ByteBuffer parent, String type) {
+        return child(parent, parent.position(), parent.limit(), type);
+    }
+    
+    private static List<ByteBuffer> children(ByteBuffer parent, String type) {
+        List<ByteBuffer> result = new ArrayList<>();
+        int pos = parent.position();
+        while (pos + 8 <= parent.limit()) {
+            long size = boxSize(parent, pos);
+            if (type.equals(fourCc(parent, pos + 4))) {
+                result.add(body(parent, pos, size));
+            }
+            pos += (int) size;
+        }
+        return result;
+    }
+    
+    /**
+     * 在[from, to)范围内查找子box，返回其内容（position指向box头之后）
+     */
+    private static ByteBuffer child(ByteBuffer parent, int from, int to, String type) {
+        int pos = from;
+        while (pos + 8 <= to) {
+            long size = boxSize(parent, pos);
+            if (type.equals(fourCc(parent, pos + 4))) {
+                return body(parent, pos, size);
+            }
+            pos += (int) size;
+        }
+        return null;
+    }
+    
+    private static long boxSize(ByteBuffer buffer, int pos) {
+        long size = Integer.toUnsignedLong(buffer.getInt(pos));
+        if (size == 1) {
+            size = buffer.getLong(pos + 8);
+        } else if (size == 0) {
+            size = buffer.limit() - pos;
+        }
+        if (size < 8 || pos + size > buffer.limit()) {
+            throw new IllegalStateException("box大小无效: " + size);
+        }
+        return size;
+    }
+    
+    private static ByteBuffer body(ByteBuffer buffer, int pos, long size) {
+        int header = Integer.toUnsignedLong(buffer.getInt(pos)) == 1 ? 16 : 8;
+        ByteBuffer body = buffer.duplicate();
+        body.limit((int) (pos + size));
+        body.position(pos + header);
+        return body;
+    }
+    
+    private static String fourCc(ByteBuffer buffer, int pos) {
+        char[] chars = new char[4];
+        for (int i = 0; i < 4; i++) {
+            chars[i] = (char) (buffer.get(pos + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+    
+    /**
+     * 音频chunk：文件中连续存放的若干音频采样
+     */
+    public static final class Chunk {
+        
+        private final long offset;
+        private final long length;
+        private final int[] sampleSizes;
+        
+        private Chunk(long offset, long length, int[] sampleSizes) {
+            this.offset = offset;
+            this.length = length;
+            this.sampleSizes = sampleSizes;
+        }
+        
+        public long getOffset() {
+            return offset;
+        }
+        
+        public long getLength() {
+            return length;
+        }
+        
+        public int[] getSampleSizes() {
+            return sampleSizes;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.yby6.mcp.server.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 页面内嵌数据流式读取器
+ * 直接在响应字节流上定位 window.xxx = 赋值语句，返回仅包含赋值内容的输入流，
+ * 读到 &lt;/script&gt; 即结束，无需把整个页面读入内存，也不必下载脚本块之后的内容
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public final class PageStateReader extends InputStream {
+    
+    private static final byte[] SCRIPT_END = "</script>".getBytes(StandardCharsets.US_ASCII);
+    private static final int BUFFER_SIZE = 16 * 1024;
+    
+    private final InputStream in;
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private boolean ended;
+    private long bytesRead;
+    private String matchedMarker;
+    
+    private PageStateReader(InputStream in) {
+        this.in = in;
+    }
+    
+    /**
+     * 定位到第一个出现的赋值语句（如 window._ROUTER_DATA = ），返回赋值内容的输入流
+     *
+     * @param in      页面字节流（UTF-8）
+     * @param markers 赋值目标，如 window._ROUTER_DATA，按文档中先出现者匹配
+     * @return 赋值内容输入流，读到 &lt;/script&gt; 时结束；页面中不存在时返回null
+     * @throws IOException 读取失败
+     */
+    public static PageStateReader open(InputStream in, String... markers) throws IOException {
+        PageStateReader reader = new PageStateReader(in);
+        return reader.seek(markers) ? reader : null;
+    }
+    
+    /**
+     * 读取赋值内容文本（不含首尾空白）
+     *
+     * @param in      页面字节流（UTF-8）
+     * @param markers 赋值目标
+     * @return 赋值内容，页面中不存在时返回null
+     * @throws IOException 读取失败
+     */
+    public static String readText(InputStream in, String... markers) throws IOException {
+        PageStateReader reader = open(in, markers);
+        if (reader == null) {
+            return null;
+        }
+        return new String(reader.readAllBytes(), StandardCharsets.UTF_8).trim();
+    }
+    
+    /**
+     * 获取实际匹配到的赋值目标
+     *
+     * @return 赋值目标
+     */
+    public String getMatchedMarker() {
+        return matchedMarker;
+    }
+    
+    /**
+     * 获取已从页面读取的字节数
+     *
+     * @return 字节数
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+    
+    @Override
+    public int read() throws IOException {
+        if (atEnd()) {
+            return -1;
+        }
+        return buf[pos++] & 0xff;
+    }
+    
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (atEnd()) {
+            return -1;
+        }
+        
+        // 复制到下一个 '<' 之前，'<' 处由 atEnd 判断是否为脚本结束标签
+        int n = 0;
+        while (n < len && !atEnd()) {
+            int end = Math.min(limit, pos + (len - n));
+            int start = pos;
+            while (pos < end && buf[pos] != '<') {
+                pos++;
+            }
+            if (pos == start) {
+                // 当前字节为 '<' 且不是结束标签
+                pos++;
+            }
+            System.arraycopy(buf, start, b, off + n, pos - start);
+            n += pos - start;
+        }
+        return n;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+    
+    /**
+     * 查找赋值语句并跳过 "= " 部分
+     */
+    private boolean seek(String[] markers) throws IOException {
+        byte[][] patterns = new byte[markers.length][];
+        int maxLength = 0;
+        for (int i = 0; i < markers.length; i++) {
+            patterns[i] = markers[i].getBytes(StandardCharsets.US_ASCII);
+            maxLength = Math.max(maxLength, patterns[i].length);
+        }
+        
+        while (ensure(1)) {
+            byte b = buf[pos];
+            for (int i = 0; i < patterns.length; i++) {
+                byte[] pattern = patterns[i];
+                if (b != pattern[0]) {
+                    continue;
+                }
+                ensure(maxLength);
+                if (startsWith(pattern)) {
+                    pos += pattern.length;
+                    if (skipAssignment()) {
+                        matchedMarker = markers[i];
+                        return true;
+                    }
+                    // 不是赋值语句（如 window.xxx.yyy），继续查找
+                    pos--;
+                    break;
+                }
+            }
+            pos++;
+        }
+        return false;
+    }
+    
+    /**
+     * 跳过 \s*=\s*
+     */
+    private boolean skipAssignment() throws IOException {
+        skipWhitespace();
+        if (!ensure(1) || buf[pos] != '=') {
+            return false;
+        }
+        pos++;
+        skipWhitespace();
+        return true;
+    }
+    
+    private void skipWhitespace() throws IOException {
+        while (ensure(1) && Character.isWhitespace(buf[pos])) {
+            pos++;
+        }
+    }
+    
+    /**
+     * 判断是否已读到赋值内容末尾（脚本结束标签或页面结束）
+     */
+    private boolean atEnd() throws IOException {
+        if (ended) {
+            return true;
+        }
+        if (!ensure(1)) {
+            ended = true;
+            return true;
+        }
+        if (buf[pos] == '<') {
+            ensure(SCRIPT_END.length);
+            if (startsWith(SCRIPT_END)) {
+                ended = true;
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private boolean startsWith(byte[] pattern) {
+        if (limit - pos < pattern.length) {
+            return false;
+        }
+        for (int i = 0; i < pattern.length; i++) {
+            if (buf[pos + i] != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 确保缓冲区中至少有 n 个可读字节，页面结束时可能不足
+     */
+    private boolean ensure(int n) throws IOException {
+        if (limit - pos >= n) {
+            return true;
+        }
+        if (eof) {
+            return limit > pos;
+        }
+        
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        while (limit < n && !eof) {
+            int read = in.read(buf, limit, buf.length - limit);
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+                bytesRead += read;
+            }
+        }
+        return limit > pos;
+    }
+}
@@ -0,0 +1,243 @@
+package com.yby6.mcp.server.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 按静音切分音频
+ * 读取16位单声道小端PCM流，段长到达目标值后在下一个静音帧处切分；
+ * 超过最大延长时间仍未遇到静音时，在延长区间内最安静的帧处切分。全程静音的分段直接跳过
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public class SilenceSegmenter {
+    
+    private static final int FRAME_MILLIS = 20;
+    private static final int BYTES_PER_SAMPLE = 2;
+    
+    private final int sampleRate;
+    private final int frameBytes;
+    private final long targetFrames;
+    private final long maxFrames;
+    private final double silenceRms;
+    private long bytesRead;
+    
+    /**
+     * 分段回调
+     */
+    @FunctionalInterface
+    public interface SegmentConsumer {
+        
+        void accept(Segment segment) throws Exception;
+    }
+    
+    /**
+     * @param sampleRate         采样率
+     * @param targetMillis       目标段长（毫秒）
+     * @param maxExtensionMillis 到达目标段长后寻找静音的最长时间（毫秒）
+     * @param silenceThresholdDb 静音阈值（dBFS）
+     */
+    public SilenceSegmenter(int sampleRate, long targetMillis, long maxExtensionMillis, double silenceThresholdDb) {
+        this.sampleRate = sampleRate;
+        this.frameBytes = sampleRate * FRAME_MILLIS / 1000 * BYTES_PER_SAMPLE;
+        this.targetFrames = Math.max(1, targetMillis / FRAME_MILLIS);
+        this.maxFrames = targetFrames + Math.max(0, maxExtensionMillis / FRAME_MILLIS);
+        this.silenceRms = Short.MAX_VALUE * Math.pow(10, silenceThresholdDb / 20);
+    }
+    
+    /**
+     * 读取PCM流直到结束，每切出一段回调一次
+     *
+     * @param pcm      PCM数据流
+     * @param consumer 分段回调，在读取线程上执行，阻塞时会反压上游
+     * @return 分段数量
+     * @throws Exception 读取失败或回调抛出的异常
+     */
+    public int split(InputStream pcm, SegmentConsumer consumer) throws Exception {
+        ByteArrayOutputStream current = new ByteArrayOutputStream();
+        byte[] frame = new byte[frameBytes];
+        long startSample = 0;
+        int frames = 0;
+        boolean voiced = false;
+        // 延长区间内最安静帧的结束位置（字节）与音量
+        int quietestEnd = -1;
+        double quietestRms = Double.MAX_VALUE;
+        int count = 0;
+        
+        int n;
+        while ((n = readFrame(pcm, frame)) > 0) {
+            current.write(frame, 0, n);
+            bytesRead += n;
+            frames++;
+            double rms = rms(frame, n);
+            boolean silent = rms < silenceRms;
+            voiced |= !silent;
+            if (frames < targetFrames) {
+                continue;
+            }
+            
+            int cut = -1;
+            if (silent) {
+                cut = current.size();
+            } else {
+                if (rms < quietestRms) {
+                    quietestRms = rms;
+                    quietestEnd = current.size();
+                }
+                if (frames >= maxFrames) {
+                    cut = quietestEnd;
+                }
+            }
+            if (cut < 0) {
+                continue;
+            }
+            
+            byte[] data = current.toByteArray();
+            if (voiced) {
+                consumer.accept(new Segment(count++, toMillis(startSample),
+                        toMillis(startSample + cut / BYTES_PER_SAMPLE), sampleRate, copy(data, 0, cut)));
+            }
+            // 切分点之后的数据留给下一段
+            startSample += cut / BYTES_PER_SAMPLE;
+            current.reset();
+            current.write(data, cut, data.length - cut);
+            frames = (data.length - cut + frameBytes - 1) / frameBytes;
+            voiced = !isSilent(data, cut, data.length);
+            quietestEnd = -1;
+            quietestRms = Double.MAX_VALUE;
+        }
+        
+        if (current.size() > 0 && voiced) {
+            byte[] data = current.toByteArray();
+            consumer.accept(new Segment(count++, toMillis(startSample),
+                    toMillis(startSample + data.length / BYTES_PER_SAMPLE), sampleRate, data));
+        }
+        return count;
+    }
+    
+    /**
+     * 已读取的PCM字节数
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+    
+    private long toMillis(long samples) {
+        return samples * 1000 / sampleRate;
+    }
+    
+    private boolean isSilent(byte[] data, int from, int to) {
+        for (int offset = from; offset < to; offset += frameBytes) {
+            int length = Math.min(frameBytes, to - offset);
+            if (rms(data, offset, length) >= silenceRms) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static double rms(byte[] data, int length) {
+        return rms(data, 0, length);
+    }
+    
+    private static double rms(byte[] data, int offset, int length) {
+        int samples = length / BYTES_PER_SAMPLE;
+        if (samples == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = offset; i + 1 < offset + length; i += BYTES_PER_SAMPLE) {
+            int sample = (short) ((data[i] & 0xff) | (data[i + 1] << 8));
+            sum += (double) sample * sample;
+        }
+        return Math.sqrt(sum / samples);
+    }
+    
+    private static int readFrame(InputStream in, byte[] frame) throws IOException {
+        return in.readNBytes(frame, 0, frame.length);
+    }
+    
+    private static byte[] copy(byte[] data, int from, int to) {
+        byte[] result = new byte[to - from];
+        System.arraycopy(data, from, result, 0, result.length);
+        return result;
+    }
+    
+    /**
+     * 音频分段
+     */
+    public static final class Segment {
+        
+        private final int index;
+        private final long startMillis;
+        private final long endMillis;
+        private final int sampleRate;
+        private final byte[] pcm;
+        
+        private Segment(int index, long startMillis, long endMillis, int sampleRate, byte[] pcm) {
+            this.index = index;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            this.sampleRate = sampleRate;
+            this.pcm = pcm;
+        }
+        
+        public int getIndex() {
+            return index;
+        }
+        
+        public long getStartMillis() {
+            return startMillis;
+        }
+        
+        public long getEndMillis() {
+            return endMillis;
+        }
+        
+        /**
+         * 转为WAV格式，供语音识别接口上传
+         *
+         * @return WAV文件内容
+         */
+        public byte[] toWav() {
+            byte[] wav = new byte[44 + pcm.length];
+            int byteRate = sampleRate * BYTES_PER_SAMPLE;
+            writeAscii(wav, 0, "RIFF");
+            writeIntLe(wav, 4, 36 + pcm.length);
+            writeAscii(wav, 8, "WAVE");
+            writeAscii(wav, 12, "fmt ");
+            writeIntLe(wav, 16, 16);
+            // PCM格式、单声道
+            writeShortLe(wav, 20, 1);
+            writeShortLe(wav, 22, 1);
+            writeIntLe(wav, 24, sampleRate);
+            writeIntLe(wav, 28, byteRate);
+            writeShortLe(wav, 32, BYTES_PER_SAMPLE);
+            writeShortLe(wav, 34, BYTES_PER_SAMPLE * 8);
+            writeAscii(wav, 36, "data");
+            writeIntLe(wav, 40, pcm.length);
+            System.arraycopy(pcm, 0, wav, 44, pcm.length);
+            return wav;
+        }
+        
+        private static void writeAscii(byte[] buffer, int offset, String value) {
+            for (int i = 0; i < value.length(); i++) {
+                buffer[offset + i] = (byte) value.charAt(i);
+            }
+        }
+        
+        private static void writeIntLe(byte[] buffer, int offset, int value) {
+            buffer[offset] = (byte) value;
+            buffer[offset + 1] = (byte) (value >>> 8);
+            buffer[offset + 2] = (byte) (value >>> 16);
+            buffer[offset + 3] = (byte) (value >>> 24);
+        }
+        
+        private static void writeShortLe(byte[] buffer, int offset, int value) {
+            buffer[offset] = (byte) value;
+            buffer[offset + 1] = (byte) (value >>> 8);
+        }
+    }
+}
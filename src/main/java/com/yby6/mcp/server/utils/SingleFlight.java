@@ -0,0 +1,118 @@
+package com.yby6.mcp.server.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 请求合并工具
+ * 同一个键同时只执行一次加载，其余并发调用者等待并共享同一个结果（或异常，包括Error）
+ *
+ * @param <K> 键类型
+ * @param <V> 结果类型
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public class SingleFlight<K, V> {
+    
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    
+    /**
+     * 执行加载，若相同键的加载正在进行则直接等待其结果
+     *
+     * @param key    键
+     * @param loader 加载逻辑
+     * @return 加载结果
+     * @throws Exception 加载失败时抛出原始异常
+     */
+    public V execute(K key, Callable<V> loader) throws Exception {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+        
+        executions.increment();
+        try {
+            V value = loader.call();
+            call.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // 包括Error在内的任何失败都要结束共享结果，否则等待者会一直阻塞
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+    
+    /**
+     * 异步执行加载，若相同键的加载正在进行则直接共享其结果，与 {@link #execute} 共用同一组进行中的加载
+     *
+     * @param key    键
+     * @param loader 异步加载逻辑
+     * @return 加载结果，取消返回值不影响其他等待者
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.copy();
+        }
+        
+        executions.increment();
+        CompletableFuture<V> loading;
+        try {
+            loading = loader.get();
+        } catch (Throwable e) {
+            loading = CompletableFuture.failedFuture(e);
+        }
+        loading.whenComplete((value, e) -> {
+            inFlight.remove(key, call);
+            if (e != null) {
+                call.completeExceptionally(AsyncUtil.unwrap(e));
+            } else {
+                call.complete(value);
+            }
+        });
+        return call.copy();
+    }
+    
+    /**
+     * 获取统计信息
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("inFlight", inFlight.size());
+        stats.put("executions", executions.sum());
+        stats.put("coalesced", coalesced.sum());
+        return stats;
+    }
+    
+    private V await(CompletableFuture<V> call) throws Exception {
+        try {
+            return call.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception ex) {
+                throw ex;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.yby6.mcp.server.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 基准测试用页面样本
+ * 样本位于 src/test/resources/fixtures，可按需填充到线上页面的典型大小
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+final class BenchmarkFixtures {
+    
+    // 模拟页面中与解析无关的脚本和样式内容
+    private static final String FILLER = "<script>!function(e,t){var n=e.document,r=n.createElement(\"div\");r.className=\"xg-player-container\";"
+            + "e.__perf__=e.__perf__||[];e.__perf__.push({name:\"fp\",ts:Date.now()});}(window);</script>\n"
+            + "<style>.video-container{position:relative;width:100%;height:100vh;background:#000}.desc{font-size:14px;color:#fff}</style>\n";
+    
+    // 模拟页面数据中与解析无关的推荐流等子树
+    private static final String STATE_FILLER = "{\"id\":\"6864a1b2000000001203c4d5\",\"modelType\":\"note\",\"displayTitle\":\"推荐内容标题\","
+            + "\"cover\":{\"width\":1080,\"height\":1440,\"urlDefault\":\"http://sns-webpic-qc.xhscdn.com/202507021800/abc/1040g2sg31abcdefghij!nc_n_webp_mw_1\"},"
+            + "\"user\":{\"userId\":\"5f1a2b3c000000000101d2e3\",\"nickname\":\"推荐作者\"},\"interactInfo\":{\"liked\":false,\"likedCount\":\"1024\"},"
+            + "\"tags\":[\"骑行\",\"海边\",\"日落\"],\"score\":0.98}";
+    
+    private BenchmarkFixtures() {
+    }
+    
+    /**
+     * 读取样本文件
+     *
+     * @param name 文件名
+     * @return 文件内容
+     */
+    static String load(String name) {
+        try (InputStream in = BenchmarkFixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("样本文件不存在: " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * 在 body 开头填充无关内容，使页面达到指定大小
+     *
+     * @param page   页面内容
+     * @param sizeKb 目标大小（KB）
+     * @return 填充后的页面
+     */
+    static String inflate(String page, int sizeKb) {
+        int target = sizeKb * 1024;
+        int insertAt = page.indexOf("<body>") + "<body>".length();
+        StringBuilder sb = new StringBuilder(target + page.length());
+        sb.append(page, 0, insertAt).append('\n');
+        while (sb.length() < target) {
+            sb.append(FILLER);
+        }
+        sb.append(page, insertAt, page.length());
+        return sb.toString();
+    }
+    
+    /**
+     * 在页面数据根对象开头填充无关子树，使数据达到指定大小
+     *
+     * @param state  页面数据（JSON对象文本）
+     * @param sizeKb 目标大小（KB）
+     * @return 填充后的页面数据
+     */
+    static String inflateState(String state, int sizeKb) {
+        int target = sizeKb * 1024;
+        int insertAt = state.indexOf('{') + 1;
+        StringBuilder sb = new StringBuilder(target + state.length());
+        sb.append(state, 0, insertAt).append("\"benchFeeds\":[").append(STATE_FILLER);
+        while (sb.length() < target) {
+            sb.append(',').append(STATE_FILLER);
+        }
+        sb.append("],");
+        sb.append(state, insertAt, state.length());
+        return sb.toString();
+    }
+}
@@ -0,0 +1,101 @@
+package com.yby6.mcp.server.benchmark;
+
+import com.yby6.mcp.server.parser.impl.DouyinIdExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 抖音视频ID提取基准测试
+ * 对比原先每次编译5个正则并逐个扫描全文，与单遍扫描提取器的耗时
+ * noAwemeId 场景下页面没有 aweme_id 字段，旧实现需要多次扫描整个页面
+ *
+ * <pre>
+ * mvn test-compile exec:exec -Dbenchmark=DouyinIdExtractorBenchmark
+ * </pre>
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DouyinIdExtractorBenchmark {
+    
+    @Param({"50", "400"})
+    private int pageSizeKb;
+    
+    @Param({"video", "noAwemeId"})
+    private String page;
+    
+    private String content;
+    
+    @Setup
+    public void setup() {
+        String html = BenchmarkFixtures.load("douyin_video.html");
+        if ("noAwemeId".equals(page)) {
+            html = html.replace("\"aweme_id\"", "\"awemeId\"");
+        }
+        content = BenchmarkFixtures.inflate(html, pageSizeKb);
+        
+        String expected = legacyExtract(content);
+        String actual = DouyinIdExtractor.extract(content);
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException("提取结果不一致: " + expected + " != " + actual);
+        }
+    }
+    
+    @Benchmark
+    public String legacyRegex() {
+        return legacyExtract(content);
+    }
+    
+    @Benchmark
+    public String singlePass() {
+        return DouyinIdExtractor.extract(content);
+    }
+    
+    /**
+     * 旧实现：每次调用编译正则，按优先级逐个扫描全文
+     */
+    private static String legacyExtract(String content) {
+        Pattern[] patterns = {
+                Pattern.compile("\"aweme_id\"\\s*:\\s*\"([^\"]+)\""),
+                Pattern.compile("\"item_id\"\\s*:\\s*\"([^\"]+)\""),
+                Pattern.compile("\"video_id\"\\s*:\\s*\"([^\"]+)\""),
+                Pattern.compile("/video/([a-zA-Z0-9]{7,})"),
+                Pattern.compile("/share/video/([a-zA-Z0-9]{7,})"),
+        };
+        
+        for (Pattern pattern : patterns) {
+            Matcher matcher = pattern.matcher(content);
+            if (matcher.find()) {
+                return matcher.group(1);
+            }
+        }
+        return null;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(DouyinIdExtractorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,150 @@
+package com.yby6.mcp.server.benchmark;
+
+import com.yby6.mcp.server.service.FfmpegTranscoder;
+import com.yby6.mcp.server.service.ProgressListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ws.schild.jave.Encoder;
+import ws.schild.jave.MultimediaObject;
+import ws.schild.jave.encode.AudioAttributes;
+import ws.schild.jave.encode.EncodingAttributes;
+import ws.schild.jave.process.ffmpeg.DefaultFFMPEGLocator;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 音频提取开销基准测试
+ * 对比旧版JAVE2 Encoder（每次探测文件并写出mp3文件）与直接启动ffmpeg、输出读入内存的各种格式。
+ * 1秒样本的耗时基本等于进程启动与探测开销，60秒样本体现编码耗时
+ *
+ * <pre>
+ * mvn test-compile exec:exec -Dbenchmark=FfmpegTranscodeBenchmark
+ * </pre>
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class FfmpegTranscodeBenchmark {
+    
+    private static final long AWAIT_MILLIS = 60000;
+    
+    @Param({"1", "60"})
+    private int clipSeconds;
+    
+    private FfmpegTranscoder transcoder;
+    private Path workDir;
+    private Path clip;
+    private byte[] clipBytes;
+    
+    @Setup
+    public void setup() throws Exception {
+        transcoder = new FfmpegTranscoder();
+        transcoder.init();
+        workDir = Files.createTempDirectory("ffmpeg_bench");
+        clip = workDir.resolve("clip.mp4");
+        // 生成440Hz正弦波音轨（AAC）与小尺寸画面（H.264）的样本
+        Process process = new ProcessBuilder(new DefaultFFMPEGLocator().getExecutablePath(),
+                "-hide_banner", "-loglevel", "error", "-y",
+                "-f", "lavfi", "-i", "sine=frequency=440:duration=" + clipSeconds,
+                "-f", "lavfi", "-i", "testsrc=size=320x240:rate=25:duration=" + clipSeconds,
+                "-c:a", "aac", "-b:a", "64k", "-c:v", "libx264", "-pix_fmt", "yuv420p",
+                "-movflags", "+faststart", clip.toString())
+                .redirectErrorStream(true)
+                .start();
+        process.getInputStream().transferTo(OutputStream.nullOutputStream());
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("生成样本失败");
+        }
+        clipBytes = Files.readAllBytes(clip);
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        try (var files = Files.walk(workDir)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+    
+    /**
+     * 旧实现：JAVE2 Encoder探测文件后写出mp3文件，再读回上传
+     */
+    @Benchmark
+    public void javeEncoderToFile(Blackhole bh) throws Exception {
+        AudioAttributes audio = new AudioAttributes();
+        audio.setCodec("libmp3lame");
+        audio.setBitRate(128000);
+        audio.setChannels(1);
+        audio.setSamplingRate(FfmpegTranscoder.SAMPLE_RATE);
+        EncodingAttributes attrs = new EncodingAttributes();
+        attrs.setOutputFormat("mp3");
+        attrs.setAudioAttributes(audio);
+        
+        Path target = workDir.resolve("audio.mp3");
+        new Encoder().encode(new MultimediaObject(clip.toFile()), target.toFile(), attrs);
+        bh.consume(Files.readAllBytes(target));
+        Files.delete(target);
+    }
+    
+    @Benchmark
+    public void fileToMp3(Blackhole bh) throws Exception {
+        bh.consume(drain(transcoder.transcode(clip, FfmpegTranscoder.UploadFormat.MP3.getOutputArgs())));
+    }
+    
+    @Benchmark
+    public void fileToOpus(Blackhole bh) throws Exception {
+        bh.consume(drain(transcoder.transcode(clip, FfmpegTranscoder.UploadFormat.OPUS.getOutputArgs())));
+    }
+    
+    @Benchmark
+    public void fileToPcm(Blackhole bh) throws Exception {
+        bh.consume(drain(transcoder.transcode(clip, FfmpegTranscoder.PCM_OUTPUT)));
+    }
+    
+    /**
+     * 流式处理时视频数据经管道写入ffmpeg
+     */
+    @Benchmark
+    public void pipeToPcm(Blackhole bh) throws Exception {
+        InputStream video = new ByteArrayInputStream(clipBytes);
+        bh.consume(drain(transcoder.transcode(video, null, FfmpegTranscoder.PCM_OUTPUT, ProgressListener.NONE)));
+    }
+    
+    private static long drain(FfmpegTranscoder.Job job) throws Exception {
+        try (job) {
+            long total = job.getAudio().transferTo(OutputStream.nullOutputStream());
+            job.await(AWAIT_MILLIS);
+            return total;
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(FfmpegTranscodeBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
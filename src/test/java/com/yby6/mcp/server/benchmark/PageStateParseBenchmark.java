@@ -0,0 +1,112 @@
+package com.yby6.mcp.server.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yby6.mcp.server.parser.impl.DouyinParser;
+import com.yby6.mcp.server.parser.impl.RedBookParser;
+import com.yby6.mcp.server.utils.JsonPathFilter;
+import com.yby6.mcp.server.utils.JsonUtil;
+import com.yby6.mcp.server.utils.PageStateReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 页面数据解析基准测试
+ * 对比构建完整JsonNode树，与按字段路径过滤、跳过无关子树的解析方式
+ * fullTree/filtered 中抖音使用JSON解析器，小红书使用原先的YAML解析器；
+ * lenient 为宽松JSON模式（兼容 undefined 字面量），对应小红书当前的主路径
+ * 建议配合 -prof gc 查看每次解析的内存分配
+ *
+ * <pre>
+ * mvn test-compile exec:exec -Dbenchmark=PageStateParseBenchmark
+ * </pre>
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageStateParseBenchmark {
+    
+    @Param({"douyin", "redbook"})
+    private String page;
+    
+    @Param({"16", "256"})
+    private int stateSizeKb;
+    
+    private String state;
+    private ObjectMapper mapper;
+    private JsonPathFilter filter;
+    private String checkPath;
+    
+    @Setup
+    public void setup() throws Exception {
+        String html;
+        String marker;
+        if ("douyin".equals(page)) {
+            html = BenchmarkFixtures.load("douyin_video.html");
+            marker = "window._ROUTER_DATA";
+            mapper = JsonUtil.getObjectMapper();
+            filter = DouyinParser.ROUTER_DATA_FILTER;
+            checkPath = "/loaderData/video_(id)~1page/videoInfoRes/item_list/0/video/play_addr/url_list/0";
+        } else {
+            html = BenchmarkFixtures.load("redbook_video.html");
+            marker = "window.__INITIAL_STATE__";
+            mapper = JsonUtil.getYamlMapper();
+            filter = RedBookParser.NOTE_FILTER;
+            checkPath = "/note/noteDetailMap/6864a1b2000000001203c4d5/note/video/media/stream/h264/0/masterUrl";
+        }
+        
+        String text = PageStateReader.readText(new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8)), marker);
+        state = BenchmarkFixtures.inflateState(text, stateSizeKb);
+        
+        String expected = fullTree().at(checkPath).asText();
+        for (JsonNode node : new JsonNode[]{filtered(), lenient()}) {
+            String actual = node.at(checkPath).asText();
+            if (expected.isEmpty() || !expected.equals(actual)) {
+                throw new IllegalStateException("解析结果不一致: " + expected + " != " + actual);
+            }
+        }
+    }
+    
+    @Benchmark
+    public JsonNode fullTree() throws Exception {
+        return mapper.readTree(state);
+    }
+    
+    @Benchmark
+    public JsonNode filtered() throws Exception {
+        return JsonUtil.readFiltered(mapper, state, filter);
+    }
+    
+    @Benchmark
+    public JsonNode lenient() throws Exception {
+        return JsonUtil.readLenient(state, filter);
+    }
+    
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(PageStateParseBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
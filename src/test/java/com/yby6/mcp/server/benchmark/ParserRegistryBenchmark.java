@@ -0,0 +1,84 @@
+package com.yby6.mcp.server.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.yby6.mcp.server.model.VideoSource;
+import com.yby6.mcp.server.parser.BaseParser;
+import com.yby6.mcp.server.parser.ParserFactory;
+import com.yby6.mcp.server.parser.impl.DouyinParser;
+import com.yby6.mcp.server.parser.impl.RedBookParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解析器获取开销基准测试
+ * 对比每次请求反射创建解析器（含旧版小红书解析器自带的两个ObjectMapper）与注册表单例查找，
+ * 通过 gc.alloc.rate.norm 观察每次解析前的内存分配
+ *
+ * <pre>
+ * mvn test-compile exec:exec -Dbenchmark=ParserRegistryBenchmark
+ * </pre>
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserRegistryBenchmark {
+    
+    private ParserFactory parserFactory;
+    
+    @Setup
+    public void setup() {
+        parserFactory = new ParserFactory();
+        parserFactory.register(new DouyinParser());
+        parserFactory.register(new RedBookParser());
+    }
+    
+    /**
+     * 旧实现：每次请求反射创建解析器，小红书解析器实例化时创建JSON和YAML两个ObjectMapper
+     */
+    @Benchmark
+    public void reflectiveConstruction(Blackhole bh) throws Exception {
+        bh.consume(DouyinParser.class.getDeclaredConstructor().newInstance());
+        bh.consume(RedBookParser.class.getDeclaredConstructor().newInstance());
+        bh.consume(new ObjectMapper());
+        bh.consume(new ObjectMapper(new YAMLFactory()));
+    }
+    
+    /**
+     * 新实现：从注册表获取单例解析器
+     */
+    @Benchmark
+    public void registryLookup(Blackhole bh) throws Exception {
+        BaseParser douyin = parserFactory.getParser(VideoSource.DOUYIN);
+        BaseParser redBook = parserFactory.getParser(VideoSource.REDBOOK);
+        bh.consume(douyin);
+        bh.consume(redBook);
+    }
+    
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ParserRegistryBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,113 @@
+package com.yby6.mcp.server.benchmark;
+
+import com.yby6.mcp.server.model.VideoSource;
+import com.yby6.mcp.server.parser.ShareText;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 分享文本处理开销基准测试
+ * 旧实现用正则提取第一个链接，并逐个平台、逐个域名在整段文本中 contains 查找平台；
+ * 新实现单遍扫描文本，同时得到所有链接、口令和平台（主机名查索引）。
+ * 样本为各平台常见的分享文本（share_texts.txt），按全部平台均已启用计算
+ *
+ * <pre>
+ * mvn test-compile exec:exec -Dbenchmark=PlatformDetectionBenchmark
+ * </pre>
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlatformDetectionBenchmark {
+    
+    private static final Pattern URL_REGEX_PATTERN = Pattern.compile("https?://[\\w.-]+(?:\\.[\\w.-]+)*(?:/[^\\s]*)?");
+    
+    private String[] shareTexts;
+    
+    @Setup
+    public void setup() {
+        shareTexts = BenchmarkFixtures.load("share_texts.txt").lines()
+                .filter(line -> !line.isBlank())
+                .toArray(String[]::new);
+    }
+    
+    /**
+     * 旧实现：遍历所有平台的所有域名，在整段文本中查找
+     */
+    @Benchmark
+    public void linearContains(Blackhole bh) {
+        for (String shareText : shareTexts) {
+            bh.consume(legacyDetect(shareText));
+        }
+    }
+    
+    /**
+     * 旧实现：正则提取第一个链接
+     */
+    @Benchmark
+    public void regexFirstUrl(Blackhole bh) {
+        for (String shareText : shareTexts) {
+            Matcher matcher = URL_REGEX_PATTERN.matcher(shareText);
+            bh.consume(matcher.find() ? matcher.group() : null);
+        }
+    }
+    
+    /**
+     * 新实现：单遍扫描得到所有链接、口令和平台
+     */
+    @Benchmark
+    public void shareTextScan(Blackhole bh) {
+        for (String shareText : shareTexts) {
+            bh.consume(ShareText.parse(shareText).getSource());
+        }
+    }
+    
+    /**
+     * 仅索引查找，不含主机名提取
+     */
+    @Benchmark
+    public void hostIndexLookupOnly(Blackhole bh) {
+        bh.consume(VideoSource.ofHost("v.douyin.com"));
+        bh.consume(VideoSource.ofHost("video.weibo.com"));
+        bh.consume(VideoSource.ofHost("haokan.baidu.com"));
+        bh.consume(VideoSource.ofHost("b23.tv"));
+    }
+    
+    private static VideoSource legacyDetect(String shareUrl) {
+        for (VideoSource source : VideoSource.values()) {
+            for (String domain : source.getDomains()) {
+                if (shareUrl.contains(domain)) {
+                    return source;
+                }
+            }
+        }
+        return null;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(PlatformDetectionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,238 @@
+package com.yby6.mcp.server.http;
+
+import com.yby6.mcp.server.config.HedgeProperties;
+import com.yby6.mcp.server.support.TestSupport;
+import com.yby6.mcp.server.support.TestSupport.ManualClock;
+import com.yby6.mcp.server.support.TestSupport.Reply;
+import com.yby6.mcp.server.support.TestSupport.StubTransport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static com.yby6.mcp.server.support.TestSupport.failure;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 对冲请求测试
+ * 传输层返回由测试手动完成的响应，对冲任务与时钟也由测试控制，不依赖真实等待
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public class HedgedFetcherTest {
+    
+    private static final String NAME = "douyin";
+    private static final String URL = "https://www.iesdouyin.com/share/video/1/";
+    private static final long TIMEOUT_MILLIS = 10000;
+    
+    private HedgeProperties properties;
+    private HedgedFetcher fetcher;
+    private final List<CompletableFuture<Reply>> requests = new ArrayList<>();
+    private final List<Long> delays = new ArrayList<>();
+    private final List<Runnable> hedges = new ArrayList<>();
+    private final ManualClock clock = new ManualClock();
+    
+    @BeforeEach
+    public void setUp() {
+        properties = new HedgeProperties();
+        // 每个请求返回一个未完成的响应，由测试决定何时以及如何完成
+        fetcher = new HedgedFetcher(new StubTransport((url, headers) -> {
+            CompletableFuture<Reply> request = new CompletableFuture<>();
+            requests.add(request);
+            return request;
+        }), properties);
+        fetcher.nanoClock = clock;
+        fetcher.scheduler = (delayMillis, task) -> {
+            delays.add(delayMillis);
+            hedges.add(task);
+        };
+    }
+    
+    @Test
+    public void testHedgeFiresAfterDelayAndLoserIsCancelled() {
+        CompletableFuture<String> result = get();
+        assertEquals(1, requests.size());
+        assertEquals(List.of(2000L), delays);
+        
+        hedges.get(0).run();
+        assertEquals(2, requests.size());
+        requests.get(1).complete(Reply.ok("hedge"));
+        
+        assertEquals("hedge", result.join());
+        assertTrue(requests.get(0).isCancelled());
+        assertEquals(1L, stat("hedged"));
+        assertEquals(1L, stat("hedgeWins"));
+    }
+    
+    @Test
+    public void testPrimaryWinsBeforeDelay() {
+        CompletableFuture<String> result = get();
+        requests.get(0).complete(Reply.ok("primary"));
+        hedges.get(0).run();
+        
+        assertEquals("primary", result.join());
+        assertEquals(1, requests.size());
+        assertEquals(0L, stat("hedged"));
+    }
+    
+    @Test
+    public void testOnlyOneHedge() {
+        CompletableFuture<String> result = get();
+        hedges.get(0).run();
+        hedges.get(0).run();
+        
+        assertEquals(2, requests.size());
+        requests.get(0).complete(Reply.ok("primary"));
+        assertEquals("primary", result.join());
+        assertTrue(requests.get(1).isCancelled());
+        assertEquals(0L, stat("hedgeWins"));
+    }
+    
+    @Test
+    public void testFastIOExceptionIsRetriedOnce() {
+        CompletableFuture<String> result = get();
+        requests.get(0).completeExceptionally(new IOException("连接被重置"));
+        assertEquals(2, requests.size());
+        
+        requests.get(1).completeExceptionally(new IOException("连接再次被重置"));
+        
+        // 重试也失败时不再重试，返回第一次的错误
+        assertEquals(2, requests.size());
+        assertEquals("连接被重置", failure(result).getMessage());
+        assertEquals(1L, stat("retries"));
+        assertEquals(0L, stat("retrySuccesses"));
+    }
+    
+    @Test
+    public void testRetrySucceeds() {
+        CompletableFuture<String> result = get();
+        requests.get(0).completeExceptionally(new IOException("连接被重置"));
+        requests.get(1).complete(Reply.ok("retry"));
+        
+        assertEquals("retry", result.join());
+        assertEquals(1L, stat("retrySuccesses"));
+        // 重试后不再对冲
+        hedges.get(0).run();
+        assertEquals(2, requests.size());
+    }
+    
+    @Test
+    public void testSlowIOExceptionIsNotRetried() {
+        CompletableFuture<String> result = get();
+        clock.advanceMillis(2000);
+        requests.get(0).completeExceptionally(new IOException("读取超时"));
+        
+        assertEquals(1, requests.size());
+        assertTrue(failure(result) instanceof IOException);
+        assertEquals(0L, stat("retries"));
+    }
+    
+    @Test
+    public void testHandlerFailureIsNotRetried() {
+        CompletableFuture<String> result = get();
+        requests.get(0).completeExceptionally(new IllegalStateException("页面结构不符"));
+        
+        assertEquals(1, requests.size());
+        assertTrue(failure(result) instanceof IllegalStateException);
+    }
+    
+    @Test
+    public void testFailureWaitsForOtherAttempt() {
+        CompletableFuture<String> result = get();
+        hedges.get(0).run();
+        requests.get(0).completeExceptionally(new IOException("连接被重置"));
+        
+        // 对冲请求仍在进行，不结束也不重试
+        assertFalse(result.isDone());
+        assertEquals(2, requests.size());
+        requests.get(1).complete(Reply.ok("hedge"));
+        assertEquals("hedge", result.join());
+    }
+    
+    @Test
+    public void testBudgetExhaustionStopsHedgesAndRetries() {
+        properties.setBudgetMax(1);
+        properties.setBudgetRatio(0);
+        
+        CompletableFuture<String> first = get();
+        hedges.get(0).run();
+        assertEquals(2, requests.size());
+        requests.get(1).complete(Reply.ok("hedge"));
+        assertEquals("hedge", first.join());
+        
+        CompletableFuture<String> second = get();
+        hedges.get(1).run();
+        assertEquals(3, requests.size());
+        requests.get(2).completeExceptionally(new IOException("连接被重置"));
+        
+        assertEquals(3, requests.size());
+        assertTrue(failure(second) instanceof IOException);
+        assertEquals(2L, stat("budgetExhausted"));
+        assertEquals("0.0", stat("budget"));
+    }
+    
+    @Test
+    public void testCancelCancelsAllAttempts() {
+        CompletableFuture<String> result = get();
+        hedges.get(0).run();
+        
+        result.cancel(true);
+        
+        assertTrue(requests.get(0).isCancelled());
+        assertTrue(requests.get(1).isCancelled());
+    }
+    
+    @Test
+    public void testDelayFollowsPercentile() {
+        for (int i = 0; i < 20; i++) {
+            CompletableFuture<String> result = get();
+            clock.advanceMillis(500);
+            requests.get(i).complete(Reply.ok("ok"));
+            result.join();
+        }
+        
+        get();
+        assertEquals(500L, delays.get(20));
+        assertEquals(500L, stat("hedgeDelayMillis"));
+    }
+    
+    @Test
+    public void testDelayHasLowerBound() {
+        for (int i = 0; i < 20; i++) {
+            get();
+            requests.get(i).complete(Reply.ok("ok"));
+        }
+        
+        get();
+        assertEquals(200L, delays.get(20));
+    }
+    
+    @Test
+    public void testDisabledPassesThrough() {
+        properties.setEnabled(false);
+        CompletableFuture<String> result = get();
+        requests.get(0).completeExceptionally(new IOException("连接被重置"));
+        
+        assertEquals(1, requests.size());
+        assertTrue(hedges.isEmpty());
+        assertTrue(failure(result) instanceof IOException);
+        assertTrue(fetcher.stats().isEmpty());
+    }
+    
+    private CompletableFuture<String> get() {
+        return fetcher.getAsync(NAME, URL, Map.of(), TIMEOUT_MILLIS,
+                (status, finalUrl, body) -> new String(body.readAllBytes(), StandardCharsets.UTF_8));
+    }
+    
+    private Object stat(String name) {
+        return TestSupport.stat(fetcher.stats(), NAME, name);
+    }
+}
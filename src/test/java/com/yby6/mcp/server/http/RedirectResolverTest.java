@@ -0,0 +1,36 @@
+package com.yby6.mcp.server.http;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 验证码页面识别测试
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public class RedirectResolverTest {
+    
+    @Test
+    public void testVerificationPages() {
+        assertTrue(RedirectResolver.isVerificationPage("https://www.xiaohongshu.com/website-login/captcha?redirectPath=https%3A%2F%2Fwww.xiaohongshu.com%2Fexplore%2F1"));
+        assertTrue(RedirectResolver.isVerificationPage("https://www.xiaohongshu.com/website-login/error?error_code=300012"));
+        assertTrue(RedirectResolver.isVerificationPage("https://verify.snssdk.com/view?aid=1128"));
+        assertTrue(RedirectResolver.isVerificationPage("https://rmc.verify.zijieapi.com/view?aid=1128"));
+        assertTrue(RedirectResolver.isVerificationPage("https://captcha.zt.kuaishou.com/iframe/index.html"));
+        assertTrue(RedirectResolver.isVerificationPage("https://www.iesdouyin.com/Captcha/?from=share"));
+    }
+    
+    @Test
+    public void testWordsInTitlesAndParametersAreIgnored() {
+        // 标题、签名等查询参数或文件名中出现的单词不是验证码页面
+        assertFalse(RedirectResolver.isVerificationPage("https://www.iesdouyin.com/share/video/7/?title=how%20to%20verify%20captcha"));
+        assertFalse(RedirectResolver.isVerificationPage("https://www.xiaohongshu.com/explore/66a1?xsec_token=verifyABC"));
+        assertFalse(RedirectResolver.isVerificationPage("https://sns-video.xhscdn.com/verify_captcha_tutorial.mp4"));
+        assertFalse(RedirectResolver.isVerificationPage("https://verify.snssdk.com.example.com/share/video/7/"));
+        assertFalse(RedirectResolver.isVerificationPage("not a url"));
+        assertFalse(RedirectResolver.isVerificationPage(null));
+    }
+}
@@ -0,0 +1,173 @@
+package com.yby6.mcp.server.parser;
+
+import com.yby6.mcp.server.model.VideoSource;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分享文本扫描测试
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public class ShareTextTest {
+    
+    // 改用ShareText之前BaseParser提取链接的正则，用于对照
+    private static final Pattern LEGACY_URL_PATTERN = Pattern.compile("https?://[\\w.-]+(?:\\.[\\w.-]+)*(?:/[^\\s]*)?");
+    
+    @Test
+    public void testUrlGluedToChinese() {
+        ShareText share = ShareText.parse("链接https://v.douyin.com/iRNBho6u/复制打开抖音");
+        
+        assertEquals(List.of("https://v.douyin.com/iRNBho6u/"), share.getUrls());
+        assertEquals(VideoSource.DOUYIN, share.getSource());
+        assertEquals("v.douyin.com", share.getHost());
+    }
+    
+    @Test
+    public void testUrlGluedToEmoji() {
+        ShareText share = ShareText.parse("😆http://xhslink.com/a/AbCdEfGhIjK1😆");
+        
+        assertEquals("http://xhslink.com/a/AbCdEfGhIjK1", share.getUrl());
+        assertEquals(VideoSource.REDBOOK, share.getSource());
+    }
+    
+    @Test
+    public void testTrailingPunctuation() {
+        assertEquals("https://b23.tv/AbCdEfG", ShareText.parse("看看 https://b23.tv/AbCdEfG.").getUrl());
+        assertEquals("https://b23.tv/AbCdEfG", ShareText.parse("(https://b23.tv/AbCdEfG)").getUrl());
+        assertEquals("https://b23.tv/AbCdEfG", ShareText.parse("\"https://b23.tv/AbCdEfG\",").getUrl());
+        assertEquals("https://b23.tv/AbCdEfG", ShareText.parse("https://b23.tv/AbCdEfG，复制").getUrl());
+        // 查询参数中的标点保留
+        assertEquals("https://m.weibo.cn/status/1?a=1:2", ShareText.parse("https://m.weibo.cn/status/1?a=1:2!").getUrl());
+    }
+    
+    @Test
+    public void testHostOnlyAndPort() {
+        assertEquals("https://weibo.com", ShareText.parse("转发自 https://weibo.com。").getUrl());
+        assertEquals("http://127.0.0.1:8080/v/1", ShareText.parse("http://127.0.0.1:8080/v/1 测试").getUrl());
+        // 冒号后不是端口时不计入链接
+        assertEquals("http://weibo.com", ShareText.parse("http://weibo.com: 来看").getUrl());
+    }
+    
+    @Test
+    public void testPlatformUrlNotFirst() {
+        ShareText share = ShareText.parse("复制这段话 https://b23.tv/AbCdEfG 或者 https://v.kuaishou.com/Kx2AbC 打开");
+        
+        assertEquals(List.of("https://b23.tv/AbCdEfG", "https://v.kuaishou.com/Kx2AbC"), share.getUrls());
+        assertEquals(VideoSource.KUAISHOU, share.getSource());
+        assertEquals("https://v.kuaishou.com/Kx2AbC", share.getUrl());
+        assertEquals("v.kuaishou.com", share.getHost());
+    }
+    
+    @Test
+    public void testFirstPlatformWins() {
+        ShareText share = ShareText.parse("https://v.douyin.com/iRNBho6u/ https://xhslink.com/a/AbCdEfGhIjK1");
+        
+        assertEquals(VideoSource.DOUYIN, share.getSource());
+        assertEquals("https://v.douyin.com/iRNBho6u/", share.getUrl());
+    }
+    
+    @Test
+    public void testUnknownPlatformFallsBackToFirstUrl() {
+        ShareText share = ShareText.parse("https://b23.tv/AbCdEfG https://example.com/x");
+        
+        assertNull(share.getSource());
+        assertEquals("https://b23.tv/AbCdEfG", share.getUrl());
+        assertEquals("b23.tv", share.getHost());
+    }
+    
+    @Test
+    public void testHostIsLowerCase() {
+        ShareText share = ShareText.parse("HTTPS 不是scheme，http://V.DOUYIN.COM/iRNBho6u/ 才是");
+        
+        assertEquals("http://V.DOUYIN.COM/iRNBho6u/", share.getUrl());
+        assertEquals("v.douyin.com", share.getHost());
+        assertEquals(VideoSource.DOUYIN, share.getSource());
+    }
+    
+    @Test
+    public void testShareCodeNextToUrl() {
+        ShareText share = ShareText.parse("【小红书】标题 😆 L2cVt4aBcdeFgh 😆 http://xhslink.com/a/AbCdEfGhIjK1，复制本条信息");
+        
+        assertEquals(List.of("L2cVt4aBcdeFgh"), share.getShareCodes());
+        assertEquals(List.of("http://xhslink.com/a/AbCdEfGhIjK1"), share.getUrls());
+    }
+    
+    @Test
+    public void testShareCodeGluedToUrl() {
+        // 口令后直接接链接时，口令在链接开头处结束
+        ShareText share = ShareText.parse("😆 L2cVt4aBcdeFghhttp://xhslink.com/a/AbCdEfGhIjK1");
+        
+        assertEquals(List.of("http://xhslink.com/a/AbCdEfGhIjK1"), share.getUrls());
+        assertTrue(share.getShareCodes().isEmpty());
+    }
+    
+    @Test
+    public void testWordsThatAreNotShareCodes() {
+        // 纯字母、纯数字、过短或与其他ASCII字符相连的都不是口令
+        ShareText share = ShareText.parse("vlog 7521634592846531876 abc123 a@A.Gv 10/23 Aab:/ RKj0123456789:/");
+        
+        assertTrue(share.getShareCodes().isEmpty());
+        assertTrue(share.getUrls().isEmpty());
+        assertNull(share.getUrl());
+    }
+    
+    @Test
+    public void testEmptyText() {
+        assertNull(ShareText.parse(null).getUrl());
+        assertNull(ShareText.parse("").getHost());
+        assertTrue(ShareText.parse("只有中文没有链接").getUrls().isEmpty());
+    }
+    
+    @Test
+    public void testLegacyParity() throws IOException {
+        List<String> lines = shareTexts();
+        assertFalse(lines.isEmpty());
+        for (String line : lines) {
+            Matcher matcher = LEGACY_URL_PATTERN.matcher(line);
+            assertTrue(matcher.find(), line);
+            String legacy = matcher.group();
+            String url = ShareText.parse(line).getUrl();
+            assertNotNull(url, line);
+            if (legacy.chars().allMatch(c -> c < 0x7F)) {
+                // 旧正则提取的链接干净时两者一致
+                assertEquals(legacy, url, line);
+            } else {
+                // 旧正则会把紧跟的中文一起吞进链接，新的扫描在第一个非ASCII字符处结束
+                assertTrue(legacy.startsWith(url), line);
+                assertTrue(legacy.charAt(url.length()) >= 0x7F, line);
+            }
+        }
+    }
+    
+    private static List<String> shareTexts() throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (InputStream in = ShareTextTest.class.getResourceAsStream("/fixtures/share_texts.txt")) {
+            assertNotNull(in, "样本文件不存在: share_texts.txt");
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    lines.add(line);
+                }
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,218 @@
+package com.yby6.mcp.server.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.yby6.mcp.server.config.DownloadProperties;
+import com.yby6.mcp.server.support.TestSupport.StubTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+
+import static com.yby6.mcp.server.support.TestSupport.RANGE;
+import static com.yby6.mcp.server.support.TestSupport.deleteRecursively;
+import static com.yby6.mcp.server.support.TestSupport.randomBytes;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 大文件下载测试
+ * 用本地HTTP服务模拟中途断开的连接和不按Range返回数据的服务器
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public class FileDownloaderTest {
+    
+    private HttpServer server;
+    private ExecutorService executor;
+    private Path dir;
+    private DownloadProperties properties;
+    private FileDownloader downloader;
+    
+    private byte[] data;
+    private boolean acceptRanges = true;
+    private boolean honorRange = true;
+    // 前若干个响应在发送指定字节数后断开
+    private final AtomicInteger drops = new AtomicInteger();
+    private int dropAfter;
+    private final ConcurrentLinkedQueue<String> ranges = new ConcurrentLinkedQueue<>();
+    
+    @BeforeEach
+    public void setUp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/video.mp4", this::serve);
+        server.setExecutor(executor);
+        server.start();
+        dir = Files.createTempDirectory("file-downloader");
+        
+        properties = new DownloadProperties();
+        properties.setReadTimeoutMillis(5000);
+        properties.setRetryBackoffMillis(1);
+        downloader = new FileDownloader(StubTransport.direct(), properties);
+        downloader.init();
+    }
+    
+    @AfterEach
+    public void tearDown() throws IOException {
+        server.stop(0);
+        executor.shutdownNow();
+        deleteRecursively(dir);
+    }
+    
+    @Test
+    public void testDownload() throws IOException {
+        data = randomBytes(300 * 1024);
+        Path target = dir.resolve("video.mp4");
+        
+        assertEquals(data.length, downloader.download(url(), Map.of(), target));
+        
+        assertArrayEquals(data, Files.readAllBytes(target));
+        assertEquals(List.of(""), new ArrayList<>(ranges));
+    }
+    
+    @Test
+    public void testResumeFromWrittenAfterDisconnect() throws IOException {
+        data = randomBytes(256 * 1024);
+        drops.set(1);
+        dropAfter = 100000;
+        Path target = dir.resolve("video.mp4");
+        
+        assertEquals(data.length, downloader.download(url(), Map.of(), target));
+        
+        assertArrayEquals(data, Files.readAllBytes(target));
+        // 首个64KB缓冲区已写入文件，断开时第二个缓冲区中未写入的数据丢弃，从已写入的位置续传
+        assertEquals(List.of("", "bytes=65536-262143"), new ArrayList<>(ranges));
+        assertEquals(1L, downloader.stats().get("retries"));
+        assertEquals(65536L, downloader.stats().get("resumedBytes"));
+    }
+    
+    @Test
+    public void testRepeatedResumeCountsEachByteOnce() throws IOException {
+        data = randomBytes(256 * 1024);
+        drops.set(2);
+        dropAfter = 100000;
+        Path target = dir.resolve("video.mp4");
+        
+        assertEquals(data.length, downloader.download(url(), Map.of(), target));
+        
+        assertArrayEquals(data, Files.readAllBytes(target));
+        // 每次断开前都多写入一个64KB缓冲区，第二次续传时前64KB不再重复计入
+        assertEquals(List.of("", "bytes=65536-262143", "bytes=131072-262143"), new ArrayList<>(ranges));
+        assertEquals(2L, downloader.stats().get("retries"));
+        assertEquals(131072L, downloader.stats().get("resumedBytes"));
+    }
+    
+    @Test
+    public void testParallelSegmentsResume() throws IOException {
+        data = randomBytes(2560 * 1024);
+        properties.setParallelThresholdMegabytes(1);
+        properties.setParallelSegments(2);
+        drops.set(1);
+        dropAfter = 300000;
+        Path target = dir.resolve("video.mp4");
+        
+        assertEquals(data.length, downloader.download(url(), Map.of(), target));
+        
+        assertArrayEquals(data, Files.readAllBytes(target));
+        assertEquals(1L, downloader.stats().get("parallelDownloads"));
+        assertEquals(1L, downloader.stats().get("retries"));
+        assertEquals(2L, downloader.stats().get("rangeRequests"));
+        assertTrue(ranges.contains("bytes=1310720-2621439"));
+    }
+    
+    @Test
+    public void testWithoutAcceptRangesDoesNotRetry() {
+        data = randomBytes(256 * 1024);
+        acceptRanges = false;
+        drops.set(1);
+        dropAfter = 100000;
+        
+        assertThrows(IOException.class, () -> downloader.download(url(), Map.of(), dir.resolve("video.mp4")));
+        assertEquals(1, ranges.size());
+        assertEquals(0L, downloader.stats().get("retries"));
+        assertEquals(1L, downloader.stats().get("failures"));
+    }
+    
+    @Test
+    public void testServerIgnoringRangeFailsAfterRetries() {
+        data = randomBytes(256 * 1024);
+        honorRange = false;
+        properties.setMaxRetries(2);
+        drops.set(1);
+        dropAfter = 100000;
+        
+        IOException e = assertThrows(IOException.class, () -> downloader.download(url(), Map.of(), dir.resolve("video.mp4")));
+        
+        assertTrue(e.getMessage().contains("服务器未按Range返回数据"), e.getMessage());
+        // 首个请求加两次续传请求，续传请求都收到200
+        assertEquals(3, ranges.size());
+        assertEquals(2L, downloader.stats().get("retries"));
+    }
+    
+    @Test
+    public void testParallelSegmentIgnoringRangeFails() {
+        data = randomBytes(2560 * 1024);
+        honorRange = false;
+        properties.setParallelThresholdMegabytes(1);
+        properties.setParallelSegments(2);
+        properties.setMaxRetries(1);
+        
+        assertThrows(IOException.class, () -> downloader.download(url(), Map.of(), dir.resolve("video.mp4")));
+        assertEquals(2L, downloader.stats().get("rangeRequests"));
+        assertEquals(1L, downloader.stats().get("failures"));
+    }
+    
+    private void serve(HttpExchange exchange) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        ranges.add(range == null ? "" : range);
+        int from = 0;
+        int to = data.length - 1;
+        int status = 200;
+        Matcher matcher = range != null ? RANGE.matcher(range) : null;
+        if (honorRange && matcher != null && matcher.matches()) {
+            from = Integer.parseInt(matcher.group(1));
+            to = Math.min(data.length - 1, Integer.parseInt(matcher.group(2)));
+            status = 206;
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + from + "-" + to + "/" + data.length);
+        }
+        if (acceptRanges) {
+            exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        }
+        int length = to - from + 1;
+        exchange.sendResponseHeaders(status, length);
+        OutputStream out = exchange.getResponseBody();
+        if (drops.getAndDecrement() > 0 && dropAfter < length) {
+            out.write(data, from, dropAfter);
+            out.flush();
+            // 处理器抛出IOException时服务器直接关闭连接，客户端收到的数据少于Content-Length
+            throw new IOException("模拟连接断开");
+        }
+        try (out) {
+            out.write(data, from, length);
+        } catch (IOException e) {
+            // 客户端取消请求或提前关闭响应
+        }
+    }
+    
+    private String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/video.mp4";
+    }
+}
@@ -0,0 +1,96 @@
+package com.yby6.mcp.server.service;
+
+import com.yby6.mcp.server.support.TestSupport.StubTransport;
+import com.yby6.mcp.server.utils.Mp4AudioTrack;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+import static com.yby6.mcp.server.support.TestSupport.fixture;
+import static com.yby6.mcp.server.support.TestSupport.moov;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * MP4音频按需下载测试
+ * 用内存中的样本文件模拟支持（或忽略）Range的视频服务器，样本说明见 Mp4AudioTrackTest
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public class Mp4AudioFetcherTest {
+    
+    private static final String URL = "https://video.example.com/test.mp4";
+    
+    @Test
+    public void testFaststart() throws Exception {
+        byte[] file = fixture("mp4_faststart.mp4");
+        StubTransport transport = StubTransport.file(file, true);
+        
+        byte[] adts = readAll(new Mp4AudioFetcher(transport).openAdts(URL, Map.of()));
+        
+        assertArrayEquals(expectedAdts(file), adts);
+        // moov在首次请求的范围内，之后只请求音频区间
+        assertEquals("bytes=0-65535", transport.getRequests().get(0).get("Range"));
+        assertTrue(transport.getRequests().size() > 1);
+    }
+    
+    @Test
+    public void testMoovAtEnd() throws Exception {
+        byte[] file = fixture("mp4_moov_at_end.mp4");
+        byte[] adts = readAll(new Mp4AudioFetcher(StubTransport.file(file, true)).openAdts(URL, Map.of()));
+        
+        assertArrayEquals(expectedAdts(file), adts);
+        // 与faststart重封装的文件音频数据相同
+        assertArrayEquals(expectedAdts(fixture("mp4_faststart.mp4")), adts);
+    }
+    
+    @Test
+    public void testCo64() throws Exception {
+        byte[] file = fixture("mp4_co64.mp4");
+        byte[] adts = readAll(new Mp4AudioFetcher(StubTransport.file(file, true)).openAdts(URL, Map.of()));
+        
+        assertArrayEquals(expectedAdts(fixture("mp4_moov_at_end.mp4")), adts);
+    }
+    
+    @Test
+    public void testNonAacTrackFallsBack() throws Exception {
+        byte[] file = fixture("mp4_mp3_audio.mp4");
+        assertNull(new Mp4AudioFetcher(StubTransport.file(file, true)).openAdts(URL, Map.of()));
+    }
+    
+    @Test
+    public void testServerIgnoringRangeFallsBack() throws Exception {
+        byte[] file = fixture("mp4_faststart.mp4");
+        StubTransport transport = StubTransport.file(file, false);
+        
+        assertNull(new Mp4AudioFetcher(transport).openAdts(URL, Map.of()));
+        assertEquals(1, transport.getRequests().size());
+    }
+    
+    /**
+     * 直接从完整文件中按音轨索引生成的ADTS流
+     */
+    private static byte[] expectedAdts(byte[] file) {
+        Mp4AudioTrack track = Mp4AudioTrack.parse(moov(file));
+        assertNotNull(track);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Mp4AudioTrack.Chunk chunk : track.getChunks()) {
+            out.writeBytes(track.toAdts(chunk, file, (int) chunk.getOffset()));
+        }
+        return out.toByteArray();
+    }
+    
+    private static byte[] readAll(InputStream in) throws IOException {
+        assertNotNull(in);
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.yby6.mcp.server.service;
+
+import com.yby6.mcp.server.config.TranscribeProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 语音识别任务调度测试
+ * 单个工作线程、队列容量4，验证队列已满时的拒绝与重试等待估算、完成任务的查询，
+ * 以及取消只影响被取消的任务，不会中断工作线程接着执行的任务
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public class TranscriptionSchedulerTest {
+    
+    private TranscribeProperties properties;
+    private TranscriptionScheduler scheduler;
+    
+    @BeforeEach
+    public void setUp() {
+        properties = new TranscribeProperties();
+        properties.setWorkers(1);
+        properties.setQueueCapacity(4);
+        scheduler = new TranscriptionScheduler(properties);
+        scheduler.init();
+    }
+    
+    @Test
+    public void testQueueFullIsRejectedWithRetryAfter() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit(() -> {
+            started.countDown();
+            release.await();
+            return "running";
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 4; i++) {
+            scheduler.submit(() -> "queued");
+        }
+        
+        TranscriptionScheduler.QueueFullException e = assertThrows(TranscriptionScheduler.QueueFullException.class,
+                () -> scheduler.submit(() -> "rejected"));
+        
+        // 尚无耗时统计时按每个任务30秒估算：1个执行中加4个排队，单个工作线程
+        assertEquals(150, e.getRetryAfterSeconds());
+        assertEquals(5L, scheduler.stats().get("submitted"));
+        assertEquals(1L, scheduler.stats().get("rejected"));
+        assertEquals(4, scheduler.stats().get("queued"));
+        release.countDown();
+    }
+    
+    @Test
+    public void testFinishedJobsRemainQueryable() throws Exception {
+        TranscriptionScheduler.Job<String> succeeded = scheduler.submit(() -> "ok");
+        TranscriptionScheduler.Job<String> failed = scheduler.submit(() -> {
+            throw new IllegalStateException("识别失败");
+        });
+        
+        assertEquals("ok", succeeded.getFuture().get(5, TimeUnit.SECONDS));
+        assertEquals(TranscriptionScheduler.JobStatus.SUCCEEDED, awaitFinished(succeeded));
+        assertEquals(TranscriptionScheduler.JobStatus.FAILED, awaitFinished(failed));
+        assertSame(succeeded, scheduler.get(succeeded.getId()));
+        assertSame(failed, scheduler.get(failed.getId()));
+        assertNull(scheduler.get("missing"));
+        assertEquals(1L, scheduler.stats().get("succeeded"));
+        assertEquals(1L, scheduler.stats().get("failed"));
+    }
+    
+    @Test
+    public void testCancelRunningJobInterruptsWorker() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        TranscriptionScheduler.Job<String> job = scheduler.submit(() -> {
+            started.countDown();
+            new CountDownLatch(1).await();
+            return "never";
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        
+        assertTrue(job.cancel());
+        
+        assertThrows(CancellationException.class, () -> job.getFuture().join());
+        assertEquals(TranscriptionScheduler.JobStatus.CANCELLED, awaitFinished(job));
+        assertFalse(next().getFuture().get(5, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void testCancelQueuedJobNeverRuns() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TranscriptionScheduler.Job<String> running = scheduler.submit(() -> {
+            release.await();
+            return "running";
+        });
+        CountDownLatch ran = new CountDownLatch(1);
+        TranscriptionScheduler.Job<String> queued = scheduler.submit(() -> {
+            ran.countDown();
+            return "queued";
+        });
+        
+        assertTrue(queued.cancel());
+        release.countDown();
+        
+        assertEquals("running", running.getFuture().get(5, TimeUnit.SECONDS));
+        assertEquals(TranscriptionScheduler.JobStatus.CANCELLED, awaitFinished(queued));
+        assertEquals(1, ran.getCount());
+    }
+    
+    @Test
+    public void testCancelAsJobCompletesDoesNotInterruptNextJob() throws Exception {
+        CountDownLatch cancelling = new CountDownLatch(1);
+        TranscriptionScheduler.Job<String> job = scheduler.submit(() -> {
+            cancelling.await();
+            return "done";
+        });
+        CountDownLatch nextStarted = new CountDownLatch(1);
+        CountDownLatch cancelReturned = new CountDownLatch(1);
+        TranscriptionScheduler.Job<Boolean> next = scheduler.submit(() -> {
+            nextStarted.countDown();
+            cancelReturned.await(5, TimeUnit.SECONDS);
+            return Thread.currentThread().isInterrupted();
+        });
+        // 取消时结果的回调在取消线程上同步执行：让任务在此刻完成，并等工作线程开始下一个任务后再继续取消
+        job.getFuture().whenComplete((value, e) -> {
+            cancelling.countDown();
+            try {
+                nextStarted.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        
+        assertTrue(job.cancel());
+        cancelReturned.countDown();
+        
+        assertFalse(next.getFuture().get(5, TimeUnit.SECONDS));
+        assertEquals(TranscriptionScheduler.JobStatus.CANCELLED, awaitFinished(job));
+    }
+    
+    @Test
+    public void testCancelRacingCompletionNeverLeaksInterrupt() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            CountDownLatch started = new CountDownLatch(1);
+            TranscriptionScheduler.Job<String> job = scheduler.submit(() -> {
+                started.countDown();
+                return "done";
+            });
+            TranscriptionScheduler.Job<Boolean> next = next();
+            started.await();
+            job.cancel();
+            
+            assertFalse(next.getFuture().get(5, TimeUnit.SECONDS), "第" + i + "次");
+        }
+    }
+    
+    /**
+     * 下一个任务：短暂等待，返回期间是否收到中断
+     */
+    private TranscriptionScheduler.Job<Boolean> next() throws Exception {
+        return scheduler.submit(() -> {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                return true;
+            }
+            return Thread.currentThread().isInterrupted();
+        });
+    }
+    
+    /**
+     * 结果完成后状态随即更新，短暂等待工作线程记录最终状态
+     */
+    private static TranscriptionScheduler.JobStatus awaitFinished(TranscriptionScheduler.Job<?> job) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (job.getStatus() == TranscriptionScheduler.JobStatus.QUEUED
+                || job.getStatus() == TranscriptionScheduler.JobStatus.RUNNING) {
+            if (System.nanoTime() > deadline) {
+                break;
+            }
+            Thread.sleep(1);
+        }
+        return job.getStatus();
+    }
+}
@@ -0,0 +1,195 @@
+package com.yby6.mcp.server.service;
+
+import com.yby6.mcp.server.config.UpstreamProperties;
+import com.yby6.mcp.server.model.VideoSource;
+import com.yby6.mcp.server.parser.UpstreamBlockedException;
+import com.yby6.mcp.server.parser.UpstreamUnavailableException;
+import com.yby6.mcp.server.support.TestSupport;
+import com.yby6.mcp.server.support.TestSupport.ManualClock;
+import com.yby6.mcp.server.utils.AsyncUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static com.yby6.mcp.server.support.TestSupport.failure;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 上游请求保护测试
+ * 用可控的时钟推进令牌补充与熔断到期，不依赖真实等待
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public class UpstreamGuardTest {
+    
+    private static final VideoSource SOURCE = VideoSource.DOUYIN;
+    
+    private UpstreamProperties properties;
+    private UpstreamGuard guard;
+    private final ManualClock clock = new ManualClock();
+    
+    @BeforeEach
+    public void setUp() {
+        properties = new UpstreamProperties();
+        properties.setFailureThreshold(3);
+        properties.setOpenMillis(1000);
+        guard = new UpstreamGuard(properties);
+        guard.nanoClock = clock;
+    }
+    
+    @Test
+    public void testOpensAfterThresholdAndRecoversThroughProbe() {
+        for (int i = 0; i < 3; i++) {
+            assertFails(IOException.class, guard.execute(SOURCE, () -> CompletableFuture.failedFuture(new IOException("连接被重置"))));
+        }
+        assertEquals(UpstreamGuard.State.OPEN, stat("state"));
+        assertRejected(guard.execute(SOURCE, () -> CompletableFuture.completedFuture("ok")));
+        
+        clock.advanceMillis(1000);
+        CompletableFuture<String> probe = new CompletableFuture<>();
+        CompletableFuture<String> probing = guard.execute(SOURCE, () -> probe);
+        assertEquals(UpstreamGuard.State.HALF_OPEN, stat("state"));
+        // 探测期间其余请求继续拒绝
+        assertRejected(guard.execute(SOURCE, () -> CompletableFuture.completedFuture("ok")));
+        
+        probe.complete("ok");
+        assertEquals("ok", probing.join());
+        assertEquals(UpstreamGuard.State.CLOSED, stat("state"));
+        assertEquals(0, stat("consecutiveFailures"));
+        assertEquals("ok", guard.execute(SOURCE, () -> CompletableFuture.completedFuture("ok")).join());
+    }
+    
+    @Test
+    public void testFailedProbeReopens() {
+        open();
+        clock.advanceMillis(1000);
+        assertFails(UpstreamUnavailableException.class,
+                guard.execute(SOURCE, () -> CompletableFuture.failedFuture(new UpstreamUnavailableException("状态码: 503"))));
+        
+        assertEquals(UpstreamGuard.State.OPEN, stat("state"));
+        assertEquals(2L, stat("opened"));
+        assertRejected(guard.execute(SOURCE, () -> CompletableFuture.completedFuture("ok")));
+        // 重新计时，到期前仍然拒绝
+        clock.advanceMillis(999);
+        assertRejected(guard.execute(SOURCE, () -> CompletableFuture.completedFuture("ok")));
+        clock.advanceMillis(1);
+        assertEquals("ok", guard.execute(SOURCE, () -> CompletableFuture.completedFuture("ok")).join());
+    }
+    
+    @Test
+    public void testNonHealthFailuresAreIgnored() {
+        for (int i = 0; i < 5; i++) {
+            assertFails(IllegalArgumentException.class,
+                    guard.execute(SOURCE, () -> CompletableFuture.failedFuture(new IllegalArgumentException("不支持的链接"))));
+        }
+        
+        assertEquals(UpstreamGuard.State.CLOSED, stat("state"));
+        assertEquals(0L, stat("failures"));
+        assertEquals(5L, stat("ignored"));
+        assertEquals("5.00", stat("rate"));
+    }
+    
+    @Test
+    public void testNonHealthProbeFailureReleasesProbe() {
+        open();
+        clock.advanceMillis(1000);
+        assertFails(Exception.class, guard.execute(SOURCE, () -> CompletableFuture.failedFuture(new Exception("页面结构变化"))));
+        
+        // 探测结果不代表平台状态，由下一个请求继续探测
+        assertEquals(UpstreamGuard.State.HALF_OPEN, stat("state"));
+        assertEquals("ok", guard.execute(SOURCE, () -> CompletableFuture.completedFuture("ok")).join());
+        assertEquals(UpstreamGuard.State.CLOSED, stat("state"));
+    }
+    
+    @Test
+    public void testRequestsStartedBeforeOpenDoNotCloseBreaker() {
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        CompletableFuture<String> running = guard.execute(SOURCE, () -> slow);
+        open();
+        
+        slow.complete("ok");
+        assertEquals("ok", running.join());
+        assertEquals(UpstreamGuard.State.OPEN, stat("state"));
+    }
+    
+    @Test
+    public void testBlockedDropsBurst() {
+        properties.setFailureThreshold(100);
+        assertFails(UpstreamBlockedException.class,
+                guard.execute(SOURCE, () -> CompletableFuture.failedFuture(new UpstreamBlockedException("触发验证码"))));
+        
+        assertEquals(1L, stat("blocked"));
+        assertEquals("2.50", stat("rate"));
+        // 桶内剩余额度清零，下一个请求需要等待令牌
+        properties.setMaxWaitMillis(0);
+        assertRejected(guard.execute(SOURCE, () -> CompletableFuture.completedFuture("ok")));
+    }
+    
+    @Test
+    public void testWaitTooLongIsRejected() {
+        properties.getRates().put(SOURCE.getCode(), 1.0);
+        properties.getBursts().put(SOURCE.getCode(), 1);
+        properties.setMaxWaitMillis(500);
+        
+        assertEquals("ok", guard.execute(SOURCE, () -> CompletableFuture.completedFuture("ok")).join());
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> guard.execute(SOURCE, () -> CompletableFuture.completedFuture("ok")).join());
+        UpstreamGuard.RejectedException rejected = (UpstreamGuard.RejectedException) AsyncUtil.unwrap(e);
+        assertEquals(1, rejected.getRetryAfterSeconds());
+        
+        // 被拒绝的请求不占用令牌，补满一个令牌后立即放行
+        clock.advanceMillis(1000);
+        assertEquals("ok", guard.execute(SOURCE, () -> CompletableFuture.completedFuture("ok")).join());
+        assertEquals(0L, stat("delayed"));
+        assertEquals(1L, stat("rejected"));
+    }
+    
+    @Test
+    public void testShortWaitIsDelayed() {
+        properties.getRates().put(SOURCE.getCode(), 10.0);
+        properties.getBursts().put(SOURCE.getCode(), 1);
+        
+        assertEquals("ok", guard.execute(SOURCE, () -> CompletableFuture.completedFuture("ok")).join());
+        CompletableFuture<String> delayed = guard.execute(SOURCE, () -> CompletableFuture.completedFuture("ok"));
+        
+        assertEquals(1L, stat("delayed"));
+        assertEquals("ok", delayed.join());
+    }
+    
+    @Test
+    public void testDisabledPassesThrough() {
+        properties.setEnabled(false);
+        for (int i = 0; i < 5; i++) {
+            assertFails(IOException.class, guard.execute(SOURCE, () -> CompletableFuture.failedFuture(new IOException("超时"))));
+        }
+        
+        assertEquals("ok", guard.execute(SOURCE, () -> CompletableFuture.completedFuture("ok")).join());
+        assertTrue(guard.stats().isEmpty());
+    }
+    
+    private void open() {
+        for (int i = 0; i < properties.getFailureThreshold(); i++) {
+            guard.execute(SOURCE, () -> CompletableFuture.failedFuture(new IOException("连接被重置")));
+        }
+        assertEquals(UpstreamGuard.State.OPEN, stat("state"));
+    }
+    
+    private Object stat(String name) {
+        return TestSupport.stat(guard.stats(), SOURCE.getCode(), name);
+    }
+    
+    private static void assertRejected(CompletableFuture<?> future) {
+        assertFails(UpstreamGuard.RejectedException.class, future);
+    }
+    
+    private static void assertFails(Class<? extends Throwable> type, CompletableFuture<?> future) {
+        Throwable e = failure(future);
+        assertTrue(type.isInstance(e), () -> "实际异常: " + e);
+    }
+}
@@ -0,0 +1,155 @@
+package com.yby6.mcp.server.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.yby6.mcp.server.config.TranscribeProperties;
+import com.yby6.mcp.server.config.TranscriptCacheProperties;
+import com.yby6.mcp.server.model.Transcript;
+import com.yby6.mcp.server.model.TranscriptSegment;
+import com.yby6.mcp.server.support.TestSupport.StubTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分段识别测试
+ * 用本地HTTP服务模拟语音识别接口：越靠前的分段响应越慢，验证结果按时间顺序拼接、同时识别的分段数不超过配置
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public class VideoTextExtractorTest {
+    
+    private static final Pattern FILENAME = Pattern.compile("filename=\"segment_(\\d+)\\.wav\"");
+    private static final int SEGMENTS = 4;
+    
+    private HttpServer server;
+    private ExecutorService executor;
+    private VideoTextExtractor extractor;
+    
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private int failIndex = -1;
+    
+    @BeforeEach
+    public void setUp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/asr", this::serve);
+        server.setExecutor(executor);
+        server.start();
+        
+        TranscribeProperties properties = new TranscribeProperties();
+        properties.setSegmentSeconds(1);
+        properties.setMaxExtensionSeconds(1);
+        properties.setConcurrency(2);
+        TranscriptCacheProperties cacheProperties = new TranscriptCacheProperties();
+        cacheProperties.setEnabled(false);
+        TranscriptCache cache = new TranscriptCache(cacheProperties);
+        cache.init();
+        extractor = new VideoTextExtractor(StubTransport.direct(), properties, cache);
+        extractor.init();
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+        executor.shutdownNow();
+        extractor.cleanup();
+    }
+    
+    @Test
+    public void testSegmentsAreJoinedInOrder() throws Exception {
+        Transcript transcript = extractor.transcribeSegments(speech(), "key", url(), "model", ProgressListener.NONE);
+        
+        assertEquals("第1段\n第2段\n第3段\n第4段", transcript.getText());
+        List<TranscriptSegment> segments = transcript.getSegments();
+        assertEquals(SEGMENTS, segments.size());
+        for (int i = 0; i < SEGMENTS; i++) {
+            assertEquals(i, segments.get(i).getIndex());
+            assertEquals("第" + (i + 1) + "段", segments.get(i).getText());
+        }
+        assertEquals(2, maxInFlight.get());
+    }
+    
+    @Test
+    public void testSegmentFailureFailsTranscript() {
+        failIndex = 2;
+        
+        Exception e = assertThrows(Exception.class,
+                () -> extractor.transcribeSegments(speech(), "key", url(), "model", ProgressListener.NONE));
+        
+        assertTrue(e.getMessage().startsWith("第3段语音识别失败"), e.getMessage());
+        assertTrue(maxInFlight.get() <= 2);
+    }
+    
+    /**
+     * 语音识别接口：按分段编号倒序延迟响应，返回"第N段"
+     */
+    private void serve(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.ISO_8859_1);
+        Matcher matcher = FILENAME.matcher(body);
+        int index = matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep((SEGMENTS - index) * 100L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // 响应发出前减少计数，客户端收到响应后才会开始下一段
+            inFlight.decrementAndGet();
+        }
+        
+        int status = index == failIndex ? 500 : 200;
+        byte[] response = ("{\"text\":\"第" + (index + 1) + "段\"}").getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+    
+    private String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/asr";
+    }
+    
+    /**
+     * 四段1秒的语音，之间隔着100毫秒静音；每段音量不同，音频内容各不相同
+     */
+    private static ByteArrayInputStream speech() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < SEGMENTS; i++) {
+            out.writeBytes(tone(1000, 4000 + i * 1000));
+            out.writeBytes(tone(100, 0));
+        }
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+    
+    private static byte[] tone(int millis, int amplitude) {
+        int samples = millis * FfmpegTranscoder.SAMPLE_RATE / 1000;
+        byte[] pcm = new byte[samples * 2];
+        for (int i = 0; i < samples; i++) {
+            int sample = i % 2 == 0 ? amplitude : -amplitude;
+            pcm[i * 2] = (byte) sample;
+            pcm[i * 2 + 1] = (byte) (sample >> 8);
+        }
+        return pcm;
+    }
+}
@@ -0,0 +1,240 @@
+package com.yby6.mcp.server.support;
+
+import com.yby6.mcp.server.http.HttpTransport;
+import com.yby6.mcp.server.utils.AsyncUtil;
+import okhttp3.OkHttpClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 测试公共工具：样本文件、临时目录清理、异步结果断言、统计项读取，以及可控时钟与模拟传输层
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public final class TestSupport {
+    
+    /**
+     * 请求头 Range: bytes=起始-结束
+     */
+    public static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+    
+    private TestSupport() {
+    }
+    
+    /**
+     * 读取 src/test/resources/fixtures 下的样本文件
+     */
+    public static byte[] fixture(String name) {
+        try (InputStream in = TestSupport.class.getResourceAsStream("/fixtures/" + name)) {
+            assertNotNull(in, "样本文件不存在: " + name);
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * 取出MP4文件顶层的moov box
+     */
+    public static byte[] moov(byte[] file) {
+        int[] box = topLevelBox(file, "moov");
+        return Arrays.copyOfRange(file, box[0], box[0] + box[1]);
+    }
+    
+    /**
+     * 查找MP4文件的顶层box
+     *
+     * @return {起始位置, 大小}
+     */
+    public static int[] topLevelBox(byte[] file, String type) {
+        ByteBuffer buffer = ByteBuffer.wrap(file);
+        int pos = 0;
+        while (pos + 8 <= file.length) {
+            int size = buffer.getInt(pos);
+            if (type.equals(new String(file, pos + 4, 4, StandardCharsets.ISO_8859_1))) {
+                return new int[]{pos, size};
+            }
+            pos += size;
+        }
+        throw new IllegalStateException("没有找到" + type);
+    }
+    
+    /**
+     * 以长度为种子生成的随机字节，同一长度每次内容相同
+     */
+    public static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+    
+    /**
+     * 删除临时目录及其中的文件
+     */
+    public static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+    
+    /**
+     * 断言异步结果已经以异常结束，返回解包后的原始异常
+     */
+    public static Throwable failure(CompletableFuture<?> future) {
+        assertTrue(future.isDone());
+        return AsyncUtil.unwrap(assertThrows(CompletionException.class, future::join));
+    }
+    
+    /**
+     * 读取按名称分组的统计信息中的一项，如 stats().get("douyin").get("hedged")
+     */
+    @SuppressWarnings("unchecked")
+    public static Object stat(Map<String, Object> stats, String group, String name) {
+        Map<String, Object> groupStats = (Map<String, Object>) stats.get(group);
+        assertNotNull(groupStats, "没有统计分组: " + group);
+        return groupStats.get(name);
+    }
+    
+    /**
+     * 可控的纳秒时钟，只在测试推进时变化
+     */
+    public static final class ManualClock implements LongSupplier {
+        
+        private long nanos = TimeUnit.SECONDS.toNanos(100);
+        
+        @Override
+        public long getAsLong() {
+            return nanos;
+        }
+        
+        public void advanceMillis(long millis) {
+            nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+    }
+    
+    /**
+     * 模拟传输层
+     * getAsync 不发出网络请求，由应答函数决定每个请求的响应（可以是测试稍后手动完成的future）；
+     * newBuilder 返回不依赖 HttpProperties 初始化的客户端构建器，供直接使用OkHttp的组件访问本地服务
+     */
+    public static final class StubTransport extends HttpTransport {
+        
+        private final Responder responder;
+        private final List<Map<String, String>> requests = new CopyOnWriteArrayList<>();
+        
+        public StubTransport(Responder responder) {
+            this.responder = responder;
+        }
+        
+        /**
+         * 只用于创建客户端的传输层，调用 getAsync 时失败
+         */
+        public static StubTransport direct() {
+            return new StubTransport((url, headers) -> CompletableFuture.failedFuture(
+                    new UnsupportedOperationException("未设置应答: " + url)));
+        }
+        
+        /**
+         * 从内存返回文件内容：支持Range时返回206与请求的区间，否则返回200与完整文件
+         */
+        public static StubTransport file(byte[] file, boolean rangeSupported) {
+            return new StubTransport((url, headers) -> {
+                Matcher matcher = RANGE.matcher(String.valueOf(headers.get("Range")));
+                if (!rangeSupported || !matcher.matches()) {
+                    return CompletableFuture.completedFuture(new Reply(200, url, file));
+                }
+                int from = Integer.parseInt(matcher.group(1));
+                int to = Math.min(file.length - 1, Integer.parseInt(matcher.group(2)));
+                return CompletableFuture.completedFuture(new Reply(206, url, Arrays.copyOfRange(file, from, to + 1)));
+            });
+        }
+        
+        /**
+         * 已收到的请求头，按请求顺序
+         */
+        public List<Map<String, String>> getRequests() {
+            return requests;
+        }
+        
+        @Override
+        public OkHttpClient.Builder newBuilder() {
+            return new OkHttpClient.Builder();
+        }
+        
+        /**
+         * 与真实传输层一致：连接失败时以原始异常结束，处理器在响应到达的线程上执行，取消结果时同时取消应答
+         */
+        @Override
+        public <T> CompletableFuture<T> getAsync(String url, Map<String, String> headers, long timeoutMillis, BodyHandler<T> handler) {
+            requests.add(headers);
+            CompletableFuture<Reply> reply = responder.respond(url, headers);
+            CompletableFuture<T> future = new CompletableFuture<>();
+            reply.whenComplete((response, e) -> {
+                if (e != null) {
+                    future.completeExceptionally(AsyncUtil.unwrap(e));
+                    return;
+                }
+                try {
+                    future.complete(handler.handle(response.status(), response.url(), new ByteArrayInputStream(response.body())));
+                } catch (Exception ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+            future.whenComplete((result, e) -> {
+                if (future.isCancelled()) {
+                    reply.cancel(true);
+                }
+            });
+            return future;
+        }
+        
+        /**
+         * 按请求返回响应
+         */
+        @FunctionalInterface
+        public interface Responder {
+            
+            CompletableFuture<Reply> respond(String url, Map<String, String> headers);
+        }
+    }
+    
+    /**
+     * 模拟响应
+     *
+     * @param status 状态码
+     * @param url    最终URL
+     * @param body   响应体
+     */
+    public record Reply(int status, String url, byte[] body) {
+        
+        public static Reply ok(String body) {
+            return new Reply(200, "", body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
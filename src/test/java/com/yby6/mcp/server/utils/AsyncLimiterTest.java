@@ -0,0 +1,80 @@
+package com.yby6.mcp.server.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 异步并发限制器测试
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public class AsyncLimiterTest {
+    
+    private final AsyncLimiter limiter = new AsyncLimiter(1);
+    private final List<CompletableFuture<String>> tasks = new ArrayList<>();
+    
+    @Test
+    public void testQueuesBeyondLimit() {
+        CompletableFuture<String> first = submit();
+        CompletableFuture<String> second = submit();
+        assertEquals(1, tasks.size());
+        assertEquals(1, limiter.stats().get("queued"));
+        
+        tasks.get(0).complete("first");
+        assertEquals("first", first.join());
+        assertEquals(2, tasks.size());
+        tasks.get(1).complete("second");
+        assertEquals("second", second.join());
+        assertEquals(0, limiter.stats().get("active"));
+    }
+    
+    @Test
+    public void testCancelledRunningTaskKeepsSlotUntilDone() {
+        CompletableFuture<String> first = submit();
+        CompletableFuture<String> second = submit();
+        
+        first.cancel(true);
+        
+        // 底层请求仍在进行，不取消也不启动排队任务
+        assertFalse(tasks.get(0).isCancelled());
+        assertEquals(1, tasks.size());
+        assertEquals(1, limiter.stats().get("active"));
+        
+        tasks.get(0).complete("late");
+        assertEquals(2, tasks.size());
+        tasks.get(1).complete("second");
+        assertEquals("second", second.join());
+    }
+    
+    @Test
+    public void testCancelledQueuedTaskIsNeverStarted() {
+        submit();
+        CompletableFuture<String> second = submit();
+        CompletableFuture<String> third = submit();
+        
+        second.cancel(true);
+        tasks.get(0).complete("first");
+        
+        // 第二个任务被跳过，直接启动第三个
+        assertEquals(2, tasks.size());
+        tasks.get(1).complete("third");
+        assertEquals("third", third.join());
+        assertTrue(second.isCancelled());
+    }
+    
+    private CompletableFuture<String> submit() {
+        return limiter.submit(() -> {
+            CompletableFuture<String> task = new CompletableFuture<>();
+            tasks.add(task);
+            return task;
+        });
+    }
+}
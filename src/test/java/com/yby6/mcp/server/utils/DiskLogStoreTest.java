@@ -0,0 +1,180 @@
+package com.yby6.mcp.server.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static com.yby6.mcp.server.support.TestSupport.deleteRecursively;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 追加写本地存储测试
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public class DiskLogStoreTest {
+    
+    // 两字节的键加100字节的值：长度(4) CRC(4) 键长度(2) 键(2) 值(100)
+    private static final int VALUE_BYTES = 100;
+    private static final int RECORD_BYTES = 8 + 2 + 2 + VALUE_BYTES;
+    
+    private Path dir;
+    private Path file;
+    
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("disk-log-store");
+        file = dir.resolve("store.log");
+    }
+    
+    @AfterEach
+    public void tearDown() throws IOException {
+        deleteRecursively(dir);
+    }
+    
+    @Test
+    public void testReopenRestoresEntries() throws IOException {
+        try (DiskLogStore store = DiskLogStore.open(file, 1024 * 1024)) {
+            store.put("k1", value(1));
+            store.put("k2", value(2));
+            store.put("k1", value(3));
+        }
+        
+        try (DiskLogStore store = DiskLogStore.open(file, 1024 * 1024)) {
+            assertEquals(2, store.size());
+            assertArrayEquals(value(3), store.get("k1"));
+            assertArrayEquals(value(2), store.get("k2"));
+            assertNull(store.get("k3"));
+        }
+    }
+    
+    @Test
+    public void testTruncatedTailIsDropped() throws IOException {
+        try (DiskLogStore store = DiskLogStore.open(file, 1024 * 1024)) {
+            store.put("k1", value(1));
+            store.put("k2", value(2));
+        }
+        // 模拟写入第二条记录中途退出
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(2L * RECORD_BYTES - 3);
+        }
+        
+        try (DiskLogStore store = DiskLogStore.open(file, 1024 * 1024)) {
+            assertEquals(RECORD_BYTES, Files.size(file));
+            assertArrayEquals(value(1), store.get("k1"));
+            assertNull(store.get("k2"));
+            store.put("k3", value(3));
+        }
+        
+        try (DiskLogStore store = DiskLogStore.open(file, 1024 * 1024)) {
+            assertEquals(2, store.size());
+            assertArrayEquals(value(3), store.get("k3"));
+        }
+    }
+    
+    @Test
+    public void testCorruptTailIsDropped() throws IOException {
+        try (DiskLogStore store = DiskLogStore.open(file, 1024 * 1024)) {
+            store.put("k1", value(1));
+            store.put("k2", value(2));
+        }
+        // 改写第二条记录的最后一个字节，CRC校验失败
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), 2L * RECORD_BYTES - 1);
+        }
+        
+        try (DiskLogStore store = DiskLogStore.open(file, 1024 * 1024)) {
+            assertEquals(1, store.size());
+            assertEquals(RECORD_BYTES, Files.size(file));
+            assertArrayEquals(value(1), store.get("k1"));
+        }
+    }
+    
+    @Test
+    public void testInvalidLengthTailIsDropped() throws IOException {
+        try (DiskLogStore store = DiskLogStore.open(file, 1024 * 1024)) {
+            store.put("k1", value(1));
+        }
+        Files.write(file, ByteBuffer.allocate(8).putInt(Integer.MAX_VALUE).array(), StandardOpenOption.APPEND);
+        
+        try (DiskLogStore store = DiskLogStore.open(file, 1024 * 1024)) {
+            assertEquals(1, store.size());
+            assertEquals(RECORD_BYTES, Files.size(file));
+        }
+    }
+    
+    @Test
+    public void testCompactionKeepsMostRecentlyUsed() throws IOException {
+        // 上限1000字节可放8条，超出后保留不超过750字节即最近访问的6条
+        try (DiskLogStore store = DiskLogStore.open(file, 1000)) {
+            for (int i = 0; i < 8; i++) {
+                store.put("k" + i, value(i));
+            }
+            store.get("k0");
+            store.put("k8", value(8));
+            
+            assertEquals(6, store.size());
+            assertEquals(6L * RECORD_BYTES, Files.size(file));
+            assertEquals(3L, store.stats().get("evictions"));
+            assertEquals(1L, store.stats().get("compactions"));
+            assertFalse(Files.exists(dir.resolve("store.log.compact")));
+            // 压缩后继续写入到新文件
+            store.put("k9", value(9));
+            assertArrayEquals(value(9), store.get("k9"));
+        }
+        
+        try (DiskLogStore store = DiskLogStore.open(file, 1000)) {
+            assertEquals(7, store.size());
+            for (String key : new String[]{"k1", "k2", "k3"}) {
+                assertNull(store.get(key), key);
+            }
+            for (int i : new int[]{0, 4, 5, 6, 7, 8, 9}) {
+                assertArrayEquals(value(i), store.get("k" + i), "k" + i);
+            }
+        }
+    }
+    
+    @Test
+    public void testAccessOrderSurvivesReopen() throws IOException {
+        try (DiskLogStore store = DiskLogStore.open(file, 1000)) {
+            for (int i = 0; i < 8; i++) {
+                store.put("k" + i, value(i));
+            }
+            store.get("k0");
+            store.put("k8", value(8));
+        }
+        
+        // 压缩后的文件按最久未访问到最近访问排列：k4 k5 k6 k7 k0 k8，重启后再次压缩先淘汰k4
+        try (DiskLogStore store = DiskLogStore.open(file, 1000)) {
+            store.put("k9", value(9));
+            store.put("k10", value(10));
+            store.put("k11", value(11));
+            
+            assertNull(store.get("k4"));
+            assertNull(store.get("k5"));
+            assertArrayEquals(value(0), store.get("k0"));
+            assertArrayEquals(value(11), store.get("k11"));
+        }
+    }
+    
+    private static byte[] value(int seed) {
+        byte[] value = new byte[VALUE_BYTES];
+        Arrays.fill(value, (byte) seed);
+        byte[] tag = ("v" + seed).getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(tag, 0, value, 0, tag.length);
+        return value;
+    }
+}
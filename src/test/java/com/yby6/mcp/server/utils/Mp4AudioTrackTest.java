@@ -0,0 +1,155 @@
+package com.yby6.mcp.server.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.yby6.mcp.server.support.TestSupport.fixture;
+import static com.yby6.mcp.server.support.TestSupport.moov;
+import static com.yby6.mcp.server.support.TestSupport.topLevelBox;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * MP4音轨索引测试
+ * 样本为2秒的96x96视频（每帧都是关键帧，音频chunk之间隔着十几KB视频数据），音轨为AAC-LC 44.1kHz双声道：
+ * mp4_moov_at_end.mp4 为 moov 在 mdat 之后的原始文件，mp4_faststart.mp4 为同一文件的 faststart 重封装，
+ * mp4_co64.mp4 为把 stco 改写为 co64 后的原始文件，mp4_mp3_audio.mp4 的音轨为MP3
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public class Mp4AudioTrackTest {
+    
+    // 样本音轨共88个采样，第一个chunk只有一个85字节的采样
+    private static final int SAMPLE_COUNT = 88;
+    private static final int AUDIO_BYTES = 7984;
+    
+    @Test
+    public void testMoovAtEnd() {
+        byte[] file = fixture("mp4_moov_at_end.mp4");
+        Mp4AudioTrack track = Mp4AudioTrack.parse(moov(file));
+        
+        assertNotNull(track);
+        assertEquals(5, track.getChunks().size());
+        assertEquals(48, track.getChunks().get(0).getOffset());
+        assertEquals(SAMPLE_COUNT, sampleCount(track));
+        assertEquals(AUDIO_BYTES, track.getAudioBytes());
+        assertChunksInsideMdat(file, track);
+    }
+    
+    @Test
+    public void testFaststartHasSameAudioAsMoovAtEnd() {
+        byte[] faststart = fixture("mp4_faststart.mp4");
+        byte[] moovAtEnd = fixture("mp4_moov_at_end.mp4");
+        Mp4AudioTrack fast = Mp4AudioTrack.parse(moov(faststart));
+        Mp4AudioTrack end = Mp4AudioTrack.parse(moov(moovAtEnd));
+        
+        assertNotNull(fast);
+        assertNotNull(end);
+        // faststart把moov移到mdat之前，chunk偏移整体后移，但音频数据与采样划分不变
+        assertTrue(fast.getChunks().get(0).getOffset() > end.getChunks().get(0).getOffset());
+        assertEquals(SAMPLE_COUNT, sampleCount(fast));
+        assertChunksInsideMdat(faststart, fast);
+        assertArrayEquals(audioData(moovAtEnd, end), audioData(faststart, fast));
+    }
+    
+    @Test
+    public void testCo64() {
+        byte[] co64 = fixture("mp4_co64.mp4");
+        Mp4AudioTrack track = Mp4AudioTrack.parse(moov(co64));
+        Mp4AudioTrack stco = Mp4AudioTrack.parse(moov(fixture("mp4_moov_at_end.mp4")));
+        
+        assertNotNull(track);
+        assertNotNull(stco);
+        assertEquals(stco.getChunks().size(), track.getChunks().size());
+        for (int i = 0; i < track.getChunks().size(); i++) {
+            Mp4AudioTrack.Chunk expected = stco.getChunks().get(i);
+            Mp4AudioTrack.Chunk actual = track.getChunks().get(i);
+            assertEquals(expected.getOffset(), actual.getOffset());
+            assertEquals(expected.getLength(), actual.getLength());
+            assertArrayEquals(expected.getSampleSizes(), actual.getSampleSizes());
+        }
+    }
+    
+    @Test
+    public void testNonAacTrackReturnsNull() {
+        assertNull(Mp4AudioTrack.parse(moov(fixture("mp4_mp3_audio.mp4"))));
+    }
+    
+    @Test
+    public void testCorruptMoovReturnsNull() {
+        byte[] moov = moov(fixture("mp4_moov_at_end.mp4"));
+        // 把第一个子box的大小改成超出moov范围
+        ByteBuffer.wrap(moov).putInt(8, moov.length);
+        assertNull(Mp4AudioTrack.parse(moov));
+    }
+    
+    @Test
+    public void testAdtsHeader() {
+        byte[] file = fixture("mp4_moov_at_end.mp4");
+        Mp4AudioTrack track = Mp4AudioTrack.parse(moov(file));
+        assertNotNull(track);
+        Mp4AudioTrack.Chunk chunk = track.getChunks().get(0);
+        assertArrayEquals(new int[]{85}, chunk.getSampleSizes());
+        
+        byte[] adts = track.toAdts(chunk, file, (int) chunk.getOffset());
+        
+        // 帧长 = 85 + 7 = 92：profile=LC(1) 采样率索引=4(44100) 声道=2，无CRC，缓冲区满度0x7FF
+        byte[] header = {(byte) 0xFF, (byte) 0xF1, (byte) 0x50, (byte) 0x80, (byte) 0x0B, (byte) 0x9F, (byte) 0xFC};
+        assertEquals(92, adts.length);
+        assertArrayEquals(header, Arrays.copyOf(adts, 7));
+        assertArrayEquals(Arrays.copyOfRange(file, 48, 48 + 85), Arrays.copyOfRange(adts, 7, 92));
+    }
+    
+    @Test
+    public void testAdtsFramesCoverEverySample() {
+        byte[] file = fixture("mp4_faststart.mp4");
+        Mp4AudioTrack track = Mp4AudioTrack.parse(moov(file));
+        assertNotNull(track);
+        
+        for (Mp4AudioTrack.Chunk chunk : track.getChunks()) {
+            byte[] adts = track.toAdts(chunk, file, (int) chunk.getOffset());
+            int pos = 0;
+            for (int size : chunk.getSampleSizes()) {
+                assertEquals(0xFF, adts[pos] & 0xFF);
+                assertEquals(0xF1, adts[pos + 1] & 0xFF);
+                int frameLength = ((adts[pos + 3] & 0x03) << 11) | ((adts[pos + 4] & 0xFF) << 3) | ((adts[pos + 5] & 0xFF) >> 5);
+                assertEquals(size + 7, frameLength);
+                pos += frameLength;
+            }
+            assertEquals(adts.length, pos);
+        }
+    }
+    
+    private static void assertChunksInsideMdat(byte[] file, Mp4AudioTrack track) {
+        int[] mdat = topLevelBox(file, "mdat");
+        for (Mp4AudioTrack.Chunk chunk : track.getChunks()) {
+            assertTrue(chunk.getOffset() >= mdat[0] + 8);
+            assertTrue(chunk.getOffset() + chunk.getLength() <= mdat[0] + mdat[1]);
+        }
+    }
+    
+    private static int sampleCount(Mp4AudioTrack track) {
+        int count = 0;
+        for (Mp4AudioTrack.Chunk chunk : track.getChunks()) {
+            count += chunk.getSampleSizes().length;
+        }
+        return count;
+    }
+    
+    private static byte[] audioData(byte[] file, Mp4AudioTrack track) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<Mp4AudioTrack.Chunk> chunks = track.getChunks();
+        for (Mp4AudioTrack.Chunk chunk : chunks) {
+            out.write(file, (int) chunk.getOffset(), (int) chunk.getLength());
+        }
+        return out.toByteArray();
+    }
+}
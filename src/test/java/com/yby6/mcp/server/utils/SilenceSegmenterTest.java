@@ -0,0 +1,101 @@
+package com.yby6.mcp.server.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 按静音切分音频测试
+ * 采样率1000Hz，每帧20个采样；目标段长1秒（50帧），最多延长0.5秒（25帧），静音阈值-40dBFS
+ *
+ * @author Yangbuyi
+ * @date 2025/07/16
+ */
+public class SilenceSegmenterTest {
+    
+    private static final int SAMPLE_RATE = 1000;
+    private static final int LOUD = 10000;
+    private static final int QUIET = 5000;
+    
+    private final SilenceSegmenter segmenter = new SilenceSegmenter(SAMPLE_RATE, 1000, 500, -40);
+    private final List<SilenceSegmenter.Segment> segments = new ArrayList<>();
+    
+    @Test
+    public void testCutsAtFirstSilenceAfterTarget() throws Exception {
+        byte[] pcm = pcm(tone(1200, LOUD), tone(200, 0), tone(1000, LOUD));
+        
+        assertEquals(2, split(pcm));
+        
+        // 到达目标段长后仍有声音，在之后的第一个静音帧结束处切分
+        assertSegment(0, 0, 1220, segments.get(0));
+        assertSegment(1, 1220, 2400, segments.get(1));
+        assertEquals(pcm.length, segmenter.getBytesRead());
+        assertEquals(44 + 1220 * 2, segments.get(0).toWav().length);
+    }
+    
+    @Test
+    public void testCutsAtQuietestFrameWithoutSilence() throws Exception {
+        byte[] pcm = pcm(tone(1200, LOUD), tone(20, QUIET), tone(780, LOUD));
+        
+        assertEquals(2, split(pcm));
+        
+        // 延长区间内没有静音，在最安静的帧处切分
+        assertSegment(0, 0, 1220, segments.get(0));
+        assertSegment(1, 1220, 2000, segments.get(1));
+    }
+    
+    @Test
+    public void testSkipsSilentSegments() throws Exception {
+        byte[] pcm = pcm(tone(1000, LOUD), tone(2200, 0), tone(1000, LOUD));
+        
+        assertEquals(2, split(pcm));
+        
+        // 中间两段全程静音，跳过后编号连续，时间仍按原始位置
+        assertSegment(0, 0, 1020, segments.get(0));
+        assertSegment(1, 3020, 4200, segments.get(1));
+    }
+    
+    @Test
+    public void testAllSilence() throws Exception {
+        assertEquals(0, split(pcm(tone(3000, 0))));
+        assertTrue(segments.isEmpty());
+    }
+    
+    private int split(byte[] pcm) throws Exception {
+        return segmenter.split(new ByteArrayInputStream(pcm), segments::add);
+    }
+    
+    private static void assertSegment(int index, long startMillis, long endMillis, SilenceSegmenter.Segment segment) {
+        assertEquals(index, segment.getIndex());
+        assertEquals(startMillis, segment.getStartMillis());
+        assertEquals(endMillis, segment.getEndMillis());
+    }
+    
+    private static byte[] pcm(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+    
+    /**
+     * 指定时长的方波，幅度为0时为静音
+     */
+    private static byte[] tone(int millis, int amplitude) {
+        int samples = millis * SAMPLE_RATE / 1000;
+        byte[] pcm = new byte[samples * 2];
+        for (int i = 0; i < samples; i++) {
+            int sample = i % 2 == 0 ? amplitude : -amplitude;
+            pcm[i * 2] = (byte) sample;
+            pcm[i * 2 + 1] = (byte) (sample >> 8);
+        }
+        return pcm;
+    }
+}